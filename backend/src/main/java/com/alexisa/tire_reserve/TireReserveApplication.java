@@ -1,15 +1,23 @@
 package com.alexisa.tire_reserve;
 
 import com.alexisa.tire_reserve.config.WorkshopsProperties;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.util.DigestUtils;
 import org.springframework.web.servlet.function.*;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.Set;
 
+@Slf4j
 @SpringBootApplication
 @EnableConfigurationProperties(WorkshopsProperties.class)
 public class TireReserveApplication {
@@ -18,16 +26,36 @@ public class TireReserveApplication {
 		SpringApplication.run(TireReserveApplication.class, args);
 	}
 
+	/**
+	 * Serves {@code index.html} for every view path. The page is read once and kept in memory, clients revalidate
+	 * it on every load through its ETag, so a new build is picked up while the hashed assets stay cached.
+	 */
 	@Bean
-	public RouterFunction<ServerResponse> viewRouter() {
+	public RouterFunction<ServerResponse> viewRouter() throws IOException {
 		ClassPathResource index = new ClassPathResource("static/index.html");
-		Set<String> extensions = Set.of("js", "css", "ico", "png", "ttf", "eot", "woff2", "woff");
+		Set<String> extensions = Set.of("js", "css", "ico", "png", "ttf", "eot", "woff2", "woff", "gz", "br");
 		RequestPredicate viewPredicate = RequestPredicates
 				.path("/api/**")
 				.or(RequestPredicates.pathExtension((ext) -> ext != null && extensions.contains(ext)))
-				.negate();
+				.negate()
+				.and(RequestPredicates.method(HttpMethod.GET).or(RequestPredicates.method(HttpMethod.HEAD)));
 
-		return RouterFunctions.route().resource(viewPredicate, index).build();
+		if (!index.exists()) {
+			log.warn("Frontend is not built, '{}' not found", index.getPath());
+			return RouterFunctions.route(viewPredicate, request -> ServerResponse.notFound().build());
+		}
+		byte[] indexContent;
+		try (InputStream inputStream = index.getInputStream()) {
+			indexContent = inputStream.readAllBytes();
+		}
+		String indexETag = "\"" + DigestUtils.md5DigestAsHex(indexContent) + "\"";
+
+		return RouterFunctions.route(viewPredicate, request -> request.checkNotModified(indexETag)
+				.orElseGet(() -> ServerResponse.ok()
+						.contentType(MediaType.TEXT_HTML)
+						.eTag(indexETag)
+						.cacheControl(CacheControl.noCache())
+						.body(indexContent)));
 	}
 
 }
@@ -1,6 +1,7 @@
 package com.alexisa.tire_reserve.config;
 
 import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
@@ -10,6 +11,7 @@ import java.time.Duration;
 
 @Configuration
 @Slf4j
+@Getter
 public class CacheConfig {
 
     @Value("${workshops.cache.expire-after-write}")
@@ -18,6 +20,13 @@ public class CacheConfig {
     @Value("${workshops.cache.refresh-after-write}")
     private Duration refreshAfterWrite;
 
+    /**
+     * Whether the workshops are refreshed by {@link com.alexisa.tire_reserve.service.workshop.WorkshopRefreshScheduler},
+     * reads then never trigger refreshes
+     */
+    @Value("${workshops.refresh.scheduled}")
+    private boolean scheduledRefresh;
+
     private static String formatDuration(Duration duration){
         long s = duration.getSeconds();
         return String.format("%d:%02d:%02d", s / 3600, (s % 3600) / 60, (s % 60));
@@ -27,12 +36,13 @@ public class CacheConfig {
     public Caffeine<Object, Object> getCaffeine() {
 
         log.info(
-                "Configured workshops cache to expire after write in '{}' and refresh after write in '{}'",
+                "Configured workshops cache to expire after write in '{}' and {} refresh in '{}'",
                 formatDuration(expireAfterWrite),
+                scheduledRefresh ? "scheduled" : "read triggered",
                 formatDuration(refreshAfterWrite)
         );
-        return Caffeine.newBuilder()
-                .expireAfterWrite(expireAfterWrite)
-                .refreshAfterWrite(refreshAfterWrite);
+        Caffeine<Object, Object> caffeine = Caffeine.newBuilder()
+                .expireAfterWrite(expireAfterWrite);
+        return scheduledRefresh ? caffeine : caffeine.refreshAfterWrite(refreshAfterWrite);
     }
 }
@@ -0,0 +1,31 @@
+package com.alexisa.tire_reserve.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.CacheControl;
+import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.resource.EncodedResourceResolver;
+import org.springframework.web.servlet.resource.PathResourceResolver;
+
+import java.time.Duration;
+
+/**
+ * The built frontend assets have content hashes in their names, so they are cached as immutable.
+ * The build writes brotli and gzip variants next to the assets, which are served based on {@code Accept-Encoding}.
+ */
+@Configuration
+public class StaticResourcesConfig implements WebMvcConfigurer {
+
+    public static final String ASSETS_PATH_PATTERN = "/assets/**";
+    private static final Duration ASSETS_MAX_AGE = Duration.ofDays(365);
+
+    @Override
+    public void addResourceHandlers(ResourceHandlerRegistry registry) {
+        registry.addResourceHandler(ASSETS_PATH_PATTERN)
+                .addResourceLocations("classpath:/static/assets/")
+                .setCacheControl(CacheControl.maxAge(ASSETS_MAX_AGE).cachePublic().immutable())
+                .resourceChain(true)
+                .addResolver(new EncodedResourceResolver())
+                .addResolver(new PathResourceResolver());
+    }
+}
@@ -10,10 +10,12 @@ import lombok.NonNull;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.boot.context.properties.ConfigurationPropertiesBinding;
 import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
+import org.springframework.boot.context.properties.bind.DefaultValue;
 import org.springframework.core.convert.converter.Converter;
 import org.springframework.stereotype.Component;
 import org.springframework.validation.annotation.Validated;
 
+import java.time.ZoneId;
 import java.util.List;
 import java.util.Map;
 
@@ -36,7 +38,9 @@ public record WorkshopsProperties(@NotNull @NotEmpty Map<String, @Valid Workshop
             @NotBlank
             String email,
             @Valid @NotEmpty
-            List<ServiceableVehicle> serviceableVehicles
+            List<ServiceableVehicle> serviceableVehicles,
+            @NotNull @DefaultValue("UTC")
+            ZoneId timeZone
     ){}
 
     @Component
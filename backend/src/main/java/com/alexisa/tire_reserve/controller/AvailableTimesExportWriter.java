@@ -0,0 +1,52 @@
+package com.alexisa.tire_reserve.controller;
+
+import com.alexisa.tire_reserve.model.domain.EncodedTimes;
+import com.alexisa.tire_reserve.model.domain.TireChangeTime;
+import com.alexisa.tire_reserve.model.domain.enums.AvailableTimesExportFormat;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+
+/**
+ * Writes exported times one line at a time, NDJSON lines are the pre-encoded JSON of the times.
+ */
+final class AvailableTimesExportWriter {
+
+    private static final byte[] CSV_HEADER = "workshopId,id,time\n".getBytes(StandardCharsets.UTF_8);
+    private static final byte NEW_LINE = '\n';
+
+    private AvailableTimesExportWriter() { }
+
+    static void write(
+            Iterator<TireChangeTime> times,
+            EncodedTimes encodedTimes,
+            AvailableTimesExportFormat format,
+            OutputStream out
+    ) throws IOException {
+        if (format == AvailableTimesExportFormat.CSV) {
+            out.write(CSV_HEADER);
+        }
+        while (times.hasNext()) {
+            TireChangeTime time = times.next();
+            switch (format) {
+                case NDJSON -> out.write(encodedTimes.get(time));
+                case CSV -> out.write(String.join(
+                        ",",
+                        time.getWorkshopId().name(),
+                        csvValue(time.getId()),
+                        time.getInstant().toString()
+                ).getBytes(StandardCharsets.UTF_8));
+            }
+            out.write(NEW_LINE);
+        }
+    }
+
+    private static String csvValue(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,149 @@
+package com.alexisa.tire_reserve.controller;
+
+import com.alexisa.tire_reserve.model.domain.enums.ServiceableVehicle;
+import com.alexisa.tire_reserve.model.domain.enums.WorkshopId;
+import com.alexisa.tire_reserve.model.dto.EncodedAvailableTireTimesDTO;
+import com.alexisa.tire_reserve.model.dto.TireChangeTimesFilterDTO;
+import com.alexisa.tire_reserve.service.workshop.WorkshopsService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Warms up the application before it reports being ready for traffic. The available times of all workshops are
+ * fetched into the cache, after which varying searches are run through the controller and written by
+ * {@link EncodedAvailableTireTimesConverter}, so the first users aren't served by a cold cache or interpreted code.
+ * <p>
+ * Application runners are called before the readiness state changes to accepting traffic, so the readiness probe
+ * only reports the application as ready once the warm-up is over. The warm-up is given up after
+ * {@code workshops.warm-up.deadline}. Its thread isn't interrupted then, so a slow workshop keeps being loaded in the
+ * background, and no searches are started after the deadline.
+ */
+@Slf4j
+@Component
+public class AvailableTimesWarmUp implements ApplicationRunner {
+
+    private static final int SEARCH_DAYS = 14;
+    private static final HttpOutputMessage DISCARDING_OUTPUT = new HttpOutputMessage() {
+        private final HttpHeaders headers = new HttpHeaders();
+
+        @Override
+        @NonNull
+        public OutputStream getBody() {
+            return OutputStream.nullOutputStream();
+        }
+
+        @Override
+        @NonNull
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+    };
+
+    private final WorkshopsService workshopsService;
+    private final TireChangeWebController controller;
+    private final EncodedAvailableTireTimesConverter converter;
+    private final Duration deadline;
+    private final int iterations;
+
+    public AvailableTimesWarmUp(
+            WorkshopsService workshopsService,
+            TireChangeWebController controller,
+            EncodedAvailableTireTimesConverter converter,
+            @Value("${workshops.warm-up.deadline}") Duration deadline,
+            @Value("${workshops.warm-up.iterations}") int iterations
+    ) {
+        this.workshopsService = workshopsService;
+        this.controller = controller;
+        this.converter = converter;
+        this.deadline = deadline;
+        this.iterations = iterations;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws InterruptedException {
+        long deadlineNanos = System.nanoTime() + deadline.toNanos();
+        ExecutorService executor = Executors.newSingleThreadExecutor(
+                Thread.ofPlatform().name("cache-warm-up").daemon().factory()
+        );
+        try {
+            Future<Void> warmUp = executor.submit(() -> {
+                warmUp(deadlineNanos);
+                return null;
+            });
+            warmUp.get(deadline.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            log.warn("Cache warm-up didn't finish in '{}', accepting traffic regardless", deadline);
+        } catch (ExecutionException e) {
+            log.warn("Cache warm-up failed, accepting traffic regardless", e.getCause());
+        } finally {
+            // Not interrupted, the prefetch finishes on its own and the searches stop at the deadline
+            executor.shutdown();
+        }
+    }
+
+    private void warmUp(long deadlineNanos) throws IOException {
+        long start = System.nanoTime();
+        List<WorkshopId> failedWorkshops = workshopsService.prefetchAvailableTimes();
+        if (!failedWorkshops.isEmpty()) {
+            // Searches fetch failed workshops again, which would only add load to the failing workshops
+            log.warn("Cache warm-up couldn't fetch the times of workshops {}, skipping warm-up searches", failedWorkshops);
+            return;
+        }
+        if (workshopsService.getWorkshops().isEmpty()) {
+            return;
+        }
+
+        List<ServiceableVehicle> vehicles = workshopsService.getWorkshops().get(0).serviceableVehicles();
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        int searches = 0;
+        while (searches < iterations && System.nanoTime() < deadlineNanos) {
+            // Different days are searched, so the results are computed rather than served from the result cache
+            TireChangeTimesFilterDTO filter = warmUpFilter(today.plusDays(searches % SEARCH_DAYS), vehicles, searches);
+            converter.write(controller.getAvailableTireChangeTimes(filter), MediaType.APPLICATION_JSON, DISCARDING_OUTPUT);
+            EncodedAvailableTireTimesDTO earliest = controller.getEarliestAvailableTireChangeTimes(filter, 10);
+            converter.write(earliest, MediaType.APPLICATION_JSON, DISCARDING_OUTPUT);
+            searches++;
+        }
+        log.info("Cache warmed up with {} searches in {} ms", searches, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    /**
+     * @param vehicles vehicles served by one of the workshops, so the vehicle constraint allows some workshop
+     * @return filter of a week from {@code fromDay}, cycling through the combinations of the optional constraints
+     */
+    private static TireChangeTimesFilterDTO warmUpFilter(LocalDate fromDay, List<ServiceableVehicle> vehicles, int search) {
+        boolean byVehicle = (search & 1) != 0;
+        boolean byLocalTime = (search & 2) != 0;
+        return new TireChangeTimesFilterDTO(
+                null,
+                fromDay.atStartOfDay().toInstant(ZoneOffset.UTC),
+                fromDay.plusDays(7).atStartOfDay().toInstant(ZoneOffset.UTC),
+                byVehicle ? vehicles : null,
+                byLocalTime ? List.of(DayOfWeek.MONDAY, DayOfWeek.WEDNESDAY, DayOfWeek.FRIDAY) : null,
+                byLocalTime ? LocalTime.of(8, 0) : null,
+                byLocalTime ? LocalTime.of(17, 0) : null
+        );
+    }
+}
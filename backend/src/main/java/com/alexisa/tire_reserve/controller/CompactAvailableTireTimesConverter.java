@@ -0,0 +1,65 @@
+package com.alexisa.tire_reserve.controller;
+
+import com.alexisa.tire_reserve.model.dto.CompactAvailableTireTimesDTO;
+import com.alexisa.tire_reserve.model.dto.EncodedAvailableTireTimesDTO;
+import com.fasterxml.jackson.core.StreamWriteFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+/**
+ * Writes {@link EncodedAvailableTireTimesDTO} as {@link CompactAvailableTireTimesDTO} in CBOR or Smile,
+ * for clients asking for one of them in the {@code Accept} header. JSON stays the default.
+ */
+@Component
+public class CompactAvailableTireTimesConverter extends AbstractHttpMessageConverter<EncodedAvailableTireTimesDTO> {
+
+    public static final MediaType APPLICATION_SMILE = new MediaType("application", "x-jackson-smile");
+
+    private final ObjectMapper cborMapper = CBORMapper.builder()
+            .disable(StreamWriteFeature.AUTO_CLOSE_TARGET)
+            .build();
+    private final ObjectMapper smileMapper = SmileMapper.builder()
+            .disable(StreamWriteFeature.AUTO_CLOSE_TARGET)
+            .build();
+
+    public CompactAvailableTireTimesConverter() {
+        super(MediaType.APPLICATION_CBOR, APPLICATION_SMILE);
+    }
+
+    @Override
+    protected boolean supports(@NonNull Class<?> clazz) {
+        return EncodedAvailableTireTimesDTO.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    protected boolean canRead(MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    @NonNull
+    protected EncodedAvailableTireTimesDTO readInternal(
+            @NonNull Class<? extends EncodedAvailableTireTimesDTO> clazz,
+            @NonNull HttpInputMessage inputMessage
+    ) {
+        throw new HttpMessageNotReadableException("Compact available times can only be written", inputMessage);
+    }
+
+    @Override
+    protected void writeInternal(EncodedAvailableTireTimesDTO dto, HttpOutputMessage outputMessage) throws IOException {
+        ObjectMapper mapper = APPLICATION_SMILE.isCompatibleWith(outputMessage.getHeaders().getContentType())
+                ? smileMapper
+                : cborMapper;
+        mapper.writeValue(outputMessage.getBody(), CompactAvailableTireTimesDTO.dtoFromModel(dto));
+    }
+}
@@ -0,0 +1,114 @@
+package com.alexisa.tire_reserve.controller;
+
+import com.alexisa.tire_reserve.model.domain.TireChangeTime;
+import com.alexisa.tire_reserve.model.domain.enums.WorkshopId;
+import com.alexisa.tire_reserve.model.dto.EncodedAvailableTireTimesDTO;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes {@link EncodedAvailableTireTimesDTO} as JSON by copying the pre-encoded JSON of every time into the
+ * response, instead of mapping the times to DTOs and serializing them through Jackson.
+ * The output is the same as the JSON of the equivalent {@link com.alexisa.tire_reserve.model.dto.AvailableTireTimesDTO}.
+ * <p>
+ * Registered ahead of the other converters of the response, so JSON stays the default format.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class EncodedAvailableTireTimesConverter extends AbstractHttpMessageConverter<EncodedAvailableTireTimesDTO> {
+
+    private static final byte[] TIMES_START = "{\"tireChangeTimes\":[".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] FAILED_WORKSHOPS_START = "],\"failedWorkshopIds\":[".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] VERSIONS_START = "],\"workshopVersions\":{".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] ARRAY_END = "]".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] OBJECT_END = "}".getBytes(StandardCharsets.UTF_8);
+    private static final byte COMMA = ',';
+
+    public EncodedAvailableTireTimesConverter() {
+        super(MediaType.APPLICATION_JSON);
+    }
+
+    @Override
+    protected boolean supports(@NonNull Class<?> clazz) {
+        return EncodedAvailableTireTimesDTO.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    protected boolean canRead(MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    @NonNull
+    protected EncodedAvailableTireTimesDTO readInternal(
+            @NonNull Class<? extends EncodedAvailableTireTimesDTO> clazz,
+            @NonNull HttpInputMessage inputMessage
+    ) {
+        throw new HttpMessageNotReadableException("Encoded available times can only be written", inputMessage);
+    }
+
+    @Override
+    protected void writeInternal(EncodedAvailableTireTimesDTO dto, HttpOutputMessage outputMessage) throws IOException {
+        OutputStream out = outputMessage.getBody();
+
+        out.write(TIMES_START);
+        List<TireChangeTime> times = dto.tireChangeTimes();
+        for (int i = 0; i < times.size(); i++) {
+            if (i > 0) {
+                out.write(COMMA);
+            }
+            // Times which didn't come from the cache aren't encoded beforehand
+            out.write(dto.encodedTimes().get(times.get(i)));
+        }
+
+        out.write(FAILED_WORKSHOPS_START);
+        Iterator<WorkshopId> failedWorkshops = dto.failedWorkshopIds().iterator();
+        while (failedWorkshops.hasNext()) {
+            writeQuoted(out, failedWorkshops.next().name());
+            if (failedWorkshops.hasNext()) {
+                out.write(COMMA);
+            }
+        }
+
+        if (dto.workshopVersions() == null) {
+            out.write(ARRAY_END);
+        } else {
+            out.write(VERSIONS_START);
+            Iterator<Map.Entry<WorkshopId, Long>> versions = dto.workshopVersions().entrySet().iterator();
+            while (versions.hasNext()) {
+                Map.Entry<WorkshopId, Long> version = versions.next();
+                writeQuoted(out, version.getKey().name());
+                out.write(':');
+                out.write(version.getValue().toString().getBytes(StandardCharsets.US_ASCII));
+                if (versions.hasNext()) {
+                    out.write(COMMA);
+                }
+            }
+            out.write(OBJECT_END);
+        }
+        out.write(OBJECT_END);
+    }
+
+    /**
+     * Only for values which don't need escaping, like the names of enum constants
+     */
+    private static void writeQuoted(OutputStream out, String value) throws IOException {
+        out.write('"');
+        out.write(value.getBytes(StandardCharsets.UTF_8));
+        out.write('"');
+    }
+}
@@ -1,27 +1,67 @@
 package com.alexisa.tire_reserve.controller;
 
+import com.alexisa.tire_reserve.config.CacheConfig;
+import com.alexisa.tire_reserve.config.WorkshopsProperties;
 import com.alexisa.tire_reserve.exceptions.service.workshops.WsServiceCommunicationException;
 import com.alexisa.tire_reserve.exceptions.service.workshops.response.WsServiceResponseException;
 import com.alexisa.tire_reserve.model.domain.TireChangeTime;
+import com.alexisa.tire_reserve.model.domain.AvailableDaysResponse;
+import com.alexisa.tire_reserve.model.domain.AvailableTimesCursor;
+import com.alexisa.tire_reserve.model.domain.AvailableTimesDelta;
+import com.alexisa.tire_reserve.model.domain.AvailableTimesExport;
 import com.alexisa.tire_reserve.model.domain.AvailableTimesResponse;
 import com.alexisa.tire_reserve.model.domain.BookTimeRequest;
+import com.alexisa.tire_reserve.model.domain.EncodedTimes;
 import com.alexisa.tire_reserve.model.domain.TireChangeTimesFilter;
+import com.alexisa.tire_reserve.model.domain.enums.AvailableTimesExportFormat;
+import com.alexisa.tire_reserve.model.domain.enums.ServiceableVehicle;
+import com.alexisa.tire_reserve.model.domain.enums.WorkshopId;
 import com.alexisa.tire_reserve.model.domain.error.WsServiceErrorDescription;
+import com.alexisa.tire_reserve.model.dto.AvailableDaysDTO;
+import com.alexisa.tire_reserve.model.dto.AvailableTimesBatchDTO;
+import com.alexisa.tire_reserve.model.dto.AvailableTimesBatchRequestDTO;
+import com.alexisa.tire_reserve.model.dto.AvailableTimesChangesDTO;
+import com.alexisa.tire_reserve.model.dto.AvailableTimesChangesRequestDTO;
 import com.alexisa.tire_reserve.model.dto.AvailableTireTimeDTO;
-import com.alexisa.tire_reserve.model.dto.AvailableTireTimesDTO;
+import com.alexisa.tire_reserve.model.dto.BootstrapDTO;
+import com.alexisa.tire_reserve.model.dto.EncodedAvailableTireTimesDTO;
 import com.alexisa.tire_reserve.model.dto.TireChangeTimesFilterDTO;
 import com.alexisa.tire_reserve.model.dto.WsServiceErrorDTO;
 import com.alexisa.tire_reserve.model.dto.workshop.WorkshopDTO;
 import com.alexisa.tire_reserve.model.dto.workshop.WorkshopsRequestDTO;
+import com.alexisa.tire_reserve.service.events.AvailableTimesEventsService;
 import com.alexisa.tire_reserve.service.workshop.WorkshopsService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.lang.Nullable;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.nio.charset.StandardCharsets;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
 
 @Slf4j
 @RequiredArgsConstructor
@@ -30,29 +70,407 @@ import java.util.List;
 @CrossOrigin
 public class TireChangeWebController {
 
+    public static final String FAILED_WORKSHOP_IDS_HEADER = "X-Failed-Workshop-Ids";
+    public static final int BOOTSTRAP_DAYS = 7;
+    private static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    private static final MediaType TEXT_CSV = new MediaType("text", "csv", StandardCharsets.UTF_8);
+    private static final List<MediaType> CACHEABLE_MEDIA_TYPES = List.of(
+            MediaType.APPLICATION_JSON, MediaType.APPLICATION_CBOR, CompactAvailableTireTimesConverter.APPLICATION_SMILE
+    );
+
     private final WorkshopsService workshopsService;
+    private final AvailableTimesEventsService availableTimesEventsService;
+    private final CacheConfig cacheConfig;
+    private volatile CachedWorkshopsDTO cachedWorkshopsDTO;
 
     @GetMapping("/workshops")
     public WorkshopsRequestDTO getWorkshops(){
-        List<WorkshopDTO> workshopDTOS = workshopsService.getWorkshops().stream()
-                .map(WorkshopDTO::fromWorkshopProperties)
-                .toList();
-        return new WorkshopsRequestDTO(workshopDTOS);
+        return getWorkshopsDTO();
+    }
+
+    /**
+     * Combines the workshops and the earliest available times of the default search of the frontend, the next
+     * {@value #BOOTSTRAP_DAYS} days of all workshops from now, so the first render needs a single request.
+     * The search starts from the current minute, so revalidations within a minute can still be answered with 304.
+     * Only served as JSON, the compact formats don't cover the workshops.
+     */
+    @GetMapping(value = "/bootstrap", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<BootstrapDTO> getBootstrap(
+            @RequestParam(defaultValue = "50") int limit,
+            WebRequest webRequest
+    ) {
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MINUTES);
+        TireChangeTimesFilter filter = new TireChangeTimesFilter(null, now, now.plus(Duration.ofDays(BOOTSTRAP_DAYS)), null);
+
+        String eTag = availableTimesETag(filter, workshopsService.getAvailableTimesVersions(filter), limit);
+        CacheControl cacheControl = CacheControl.maxAge(cacheConfig.getRefreshAfterWrite()).mustRevalidate();
+        if (webRequest.checkNotModified(eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).cacheControl(cacheControl).build();
+        }
+
+        AvailableTimesResponse availableTimesResponse = workshopsService.getEarliestAvailableTireChangeTimes(filter, limit);
+
+        return withSnapshotAge(ResponseEntity.ok())
+                .eTag(eTag)
+                .cacheControl(cacheControl)
+                .body(new BootstrapDTO(getWorkshopsDTO().workshops(), toAvailableTireTimesDTO(availableTimesResponse)));
+    }
+
+    /**
+     * The workshops are fixed after start up, so their DTOs are only built again if the service returns
+     * a different list of workshops.
+     */
+    private WorkshopsRequestDTO getWorkshopsDTO() {
+        List<WorkshopsProperties.WorkshopProperties> workshops = workshopsService.getWorkshops();
+        CachedWorkshopsDTO cached = cachedWorkshopsDTO;
+        if (cached == null || cached.workshops() != workshops) {
+            List<WorkshopDTO> workshopDTOS = workshops.stream()
+                    .map(WorkshopDTO::fromWorkshopProperties)
+                    .toList();
+            cached = new CachedWorkshopsDTO(workshops, new WorkshopsRequestDTO(workshopDTOS));
+            cachedWorkshopsDTO = cached;
+        }
+        return cached.dto();
     }
 
+    private record CachedWorkshopsDTO(List<WorkshopsProperties.WorkshopProperties> workshops, WorkshopsRequestDTO dto) { }
+
     @PostMapping("/tire-change-times/available")
     @ResponseStatus(HttpStatus.OK)
-    public AvailableTireTimesDTO getAvailableTireChangeTimes(@RequestBody TireChangeTimesFilterDTO filterDTO) {
+    public EncodedAvailableTireTimesDTO getAvailableTireChangeTimes(@RequestBody TireChangeTimesFilterDTO filterDTO) {
 
         TireChangeTimesFilter filter = TireChangeTimesFilter.fromDTO(filterDTO);
 
         AvailableTimesResponse availableTimesResponse = workshopsService.getAvailableTireChangeTimes(filter);
 
-        List<AvailableTireTimeDTO> availableTimeDTOs = availableTimesResponse.availableTimes().stream()
-                .sorted(Comparator.comparing(TireChangeTime::getInstant))
-                .map(AvailableTireTimeDTO::dtoFromModel)
+        return toAvailableTireTimesDTO(availableTimesResponse);
+    }
+
+    /**
+     * Cacheable equivalent of {@link #getAvailableTireChangeTimes(TireChangeTimesFilterDTO)}. The ETag is derived
+     * from the normalized filter, the negotiated format and the versions of the cached times of the queried
+     * workshops, a matching {@code If-None-Match} header is answered with 304 without querying the times.
+     * <p>
+     * While days of the filter are left to be fetched on demand, e.g. after a failed or slow fetch, the times are
+     * answered from the already fetched days without an ETag and are not stored, so the next request queries the
+     * times again, which fetches those days, instead of being answered with 304 for the same versions.
+     */
+    @GetMapping("/tire-change-times/available")
+    public ResponseEntity<EncodedAvailableTireTimesDTO> getAvailableTireChangeTimes(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fromDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate toDate,
+            @RequestParam(required = false) List<WorkshopId> selectedWorkshops,
+            @RequestParam(required = false) List<ServiceableVehicle> serviceableVehicles,
+            @RequestParam(required = false) List<DayOfWeek> weekdays,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.TIME) LocalTime timeOfDayFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.TIME) LocalTime timeOfDayTo,
+            WebRequest webRequest
+    ) throws HttpMediaTypeNotAcceptableException {
+        TireChangeTimesFilter filter = new TireChangeTimesFilter(
+                selectedWorkshops,
+                fromDate.atStartOfDay().toInstant(ZoneOffset.UTC),
+                toDate == null ? null : toDate.atStartOfDay().toInstant(ZoneOffset.UTC),
+                serviceableVehicles,
+                weekdays,
+                timeOfDayFrom,
+                timeOfDayTo
+        ).normalized();
+
+        MediaType mediaType = negotiateMediaType(webRequest.getHeader(HttpHeaders.ACCEPT));
+        // Versions are read before the times, so the ETag can only be older than the returned times
+        if (workshopsService.hasUncoveredDays(filter)) {
+            return withSnapshotAge(ResponseEntity.ok())
+                    .cacheControl(CacheControl.noStore())
+                    .varyBy(HttpHeaders.ACCEPT)
+                    .contentType(mediaType)
+                    .body(toAvailableTireTimesDTO(workshopsService.getAvailableTireChangeTimes(filter)));
+        }
+        String eTag = availableTimesETag(filter, workshopsService.getAvailableTimesVersions(filter), mediaType);
+        CacheControl cacheControl = CacheControl.maxAge(cacheConfig.getRefreshAfterWrite()).mustRevalidate();
+        if (webRequest.checkNotModified(eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).cacheControl(cacheControl)
+                    .varyBy(HttpHeaders.ACCEPT).build();
+        }
+
+        AvailableTimesResponse availableTimesResponse = workshopsService.getAvailableTireChangeTimes(filter);
+
+        return withSnapshotAge(ResponseEntity.ok())
+                .eTag(eTag)
+                .cacheControl(cacheControl)
+                .varyBy(HttpHeaders.ACCEPT)
+                .contentType(mediaType)
+                .body(toAvailableTireTimesDTO(availableTimesResponse));
+    }
+
+    /**
+     * Adds the {@code Age} header while the times are served from snapshots restored at start up, so clients can
+     * tell they are older than the usual refresh interval.
+     */
+    private ResponseEntity.BodyBuilder withSnapshotAge(ResponseEntity.BodyBuilder response) {
+        Duration snapshotAge = workshopsService.getRestoredSnapshotAge();
+        if (snapshotAge != null) {
+            response.header(HttpHeaders.AGE, String.valueOf(Math.max(snapshotAge.toSeconds(), 0)));
+        }
+        return response;
+    }
+
+    /**
+     * Negotiates the format of a cacheable response from the {@code Accept} header up front, so the format is part
+     * of the ETag and the body is written in the same format. JSON is preferred over the compact formats on a tie.
+     *
+     * @throws HttpMediaTypeNotAcceptableException if none of the formats is accepted
+     */
+    static MediaType negotiateMediaType(@Nullable String accept) throws HttpMediaTypeNotAcceptableException {
+        List<MediaType> acceptedTypes = accept == null || accept.isBlank()
+                ? List.of(MediaType.ALL)
+                : MediaType.parseMediaTypes(accept);
+        MediaType selected = null;
+        double selectedQuality = 0;
+        for (MediaType mediaType : CACHEABLE_MEDIA_TYPES) {
+            double quality = acceptedQuality(acceptedTypes, mediaType);
+            if (quality > selectedQuality) {
+                selected = mediaType;
+                selectedQuality = quality;
+            }
+        }
+        if (selected == null) {
+            throw new HttpMediaTypeNotAcceptableException(CACHEABLE_MEDIA_TYPES);
+        }
+        return selected;
+    }
+
+    /**
+     * @return quality of the most specific accepted type including the media type, 0 if none of them includes it
+     */
+    private static double acceptedQuality(List<MediaType> acceptedTypes, MediaType mediaType) {
+        MediaType mostSpecific = null;
+        for (MediaType acceptedType : acceptedTypes) {
+            if (acceptedType.includes(mediaType) && (mostSpecific == null || specificity(acceptedType) > specificity(mostSpecific))) {
+                mostSpecific = acceptedType;
+            }
+        }
+        return mostSpecific == null ? 0 : mostSpecific.getQualityValue();
+    }
+
+    private static int specificity(MediaType mediaType) {
+        if (mediaType.isWildcardType()) {
+            return 0;
+        }
+        return mediaType.isWildcardSubtype() ? 1 : 2;
+    }
+
+    private static String availableTimesETag(TireChangeTimesFilter filter, Map<WorkshopId, Long> versions, Object... other) {
+        StringBuilder eTagSource = new StringBuilder().append(filter).append('|').append(versions);
+        for (Object value : other) {
+            eTagSource.append('|').append(value);
+        }
+        return "W/\"" + DigestUtils.md5DigestAsHex(eTagSource.toString().getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+
+    @PostMapping("/tire-change-times/available/batch")
+    @ResponseStatus(HttpStatus.OK)
+    public AvailableTimesBatchDTO getAvailableTireChangeTimesBatch(@RequestBody AvailableTimesBatchRequestDTO requestDTO) {
+        List<TireChangeTimesFilter> filters = Objects.requireNonNullElse(requestDTO.filters(), List.<TireChangeTimesFilterDTO>of())
+                .stream()
+                .map(TireChangeTimesFilter::fromDTO)
                 .toList();
-        return new AvailableTireTimesDTO(availableTimeDTOs, availableTimesResponse.failedWorkshops());
+
+        List<AvailableTimesResponse> availableTimesResponses = workshopsService.getAvailableTireChangeTimesBatch(filters);
+
+        return new AvailableTimesBatchDTO(availableTimesResponses.stream()
+                .map(this::toAvailableTireTimesDTO)
+                .toList());
+    }
+
+    @PostMapping("/tire-change-times/available/earliest")
+    @ResponseStatus(HttpStatus.OK)
+    public EncodedAvailableTireTimesDTO getEarliestAvailableTireChangeTimes(
+            @RequestBody TireChangeTimesFilterDTO filterDTO,
+            @RequestParam(defaultValue = "10") int limit
+    ) {
+        TireChangeTimesFilter filter = TireChangeTimesFilter.fromDTO(filterDTO);
+
+        AvailableTimesResponse availableTimesResponse = workshopsService.getEarliestAvailableTireChangeTimes(filter, limit);
+
+        return toAvailableTireTimesDTO(availableTimesResponse);
+    }
+
+    @PostMapping("/tire-change-times/available/nearest")
+    @ResponseStatus(HttpStatus.OK)
+    public EncodedAvailableTireTimesDTO getNearestAvailableTireChangeTimes(
+            @RequestBody TireChangeTimesFilterDTO filterDTO,
+            @RequestParam Instant target,
+            @RequestParam(defaultValue = "10") int limit
+    ) {
+        TireChangeTimesFilter filter = TireChangeTimesFilter.fromDTO(filterDTO);
+
+        AvailableTimesResponse availableTimesResponse = workshopsService.getNearestAvailableTireChangeTimes(filter, target, limit);
+
+        return toAvailableTireTimesDTO(availableTimesResponse);
+    }
+
+    @PostMapping("/tire-change-times/available/changes")
+    @ResponseStatus(HttpStatus.OK)
+    public AvailableTimesChangesDTO getAvailableTireChangeTimesChanges(@RequestBody AvailableTimesChangesRequestDTO requestDTO) {
+        TireChangeTimesFilter filter = TireChangeTimesFilter.fromDTO(requestDTO.filter());
+        Map<WorkshopId, Long> knownVersions = Objects.requireNonNullElse(requestDTO.knownVersions(), Map.of());
+
+        AvailableTimesDelta delta = workshopsService.getAvailableTimesDelta(filter, knownVersions);
+
+        return AvailableTimesChangesDTO.dtoFromModel(delta);
+    }
+
+    @GetMapping("/tire-change-times/available/days")
+    public AvailableDaysDTO getAvailableDays(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fromDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate toDate,
+            @RequestParam(required = false) List<WorkshopId> selectedWorkshops,
+            @RequestParam(required = false) List<ServiceableVehicle> serviceableVehicles,
+            @RequestParam(required = false) List<DayOfWeek> weekdays,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.TIME) LocalTime timeOfDayFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.TIME) LocalTime timeOfDayTo,
+            @RequestParam(defaultValue = "false") boolean perWorkshop
+    ) {
+        TireChangeTimesFilter filter = new TireChangeTimesFilter(
+                selectedWorkshops,
+                fromDate.atStartOfDay().toInstant(ZoneOffset.UTC),
+                toDate == null ? null : toDate.atStartOfDay().toInstant(ZoneOffset.UTC),
+                serviceableVehicles,
+                weekdays,
+                timeOfDayFrom,
+                timeOfDayTo
+        ).normalized();
+
+        AvailableDaysResponse availableDaysResponse = workshopsService.getAvailableDays(filter, perWorkshop);
+
+        return AvailableDaysDTO.dtoFromModel(availableDaysResponse);
+    }
+
+    /**
+     * Streams the added and removed available times of the allowed workshops as Server-Sent Events,
+     * the event id is the version of the workshop times after the change.
+     */
+    @GetMapping(value = "/tire-change-times/available/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamAvailableTimesEvents(
+            @RequestParam(required = false) List<WorkshopId> selectedWorkshops,
+            @RequestParam(required = false) List<ServiceableVehicle> serviceableVehicles
+    ) {
+        return availableTimesEventsService.subscribe(selectedWorkshops, serviceableVehicles);
+    }
+
+    /**
+     * Streams every available time matching the filter as NDJSON or CSV lines, without collecting the times
+     * into a response first. An interrupted export can be resumed by passing the time, workshop id and id of the
+     * last received line, the response is gzip compressed when the client accepts it.
+     */
+    @GetMapping("/tire-change-times/available/export")
+    public ResponseEntity<StreamingResponseBody> exportAvailableTireChangeTimes(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fromDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate toDate,
+            @RequestParam(required = false) List<WorkshopId> selectedWorkshops,
+            @RequestParam(required = false) List<ServiceableVehicle> serviceableVehicles,
+            @RequestParam(defaultValue = "NDJSON") AvailableTimesExportFormat format,
+            @RequestParam(required = false) Instant afterTime,
+            @RequestParam(required = false) WorkshopId afterWorkshopId,
+            @RequestParam(required = false) String afterId,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding
+    ) {
+        TireChangeTimesFilter filter = new TireChangeTimesFilter(
+                selectedWorkshops,
+                fromDate.atStartOfDay().toInstant(ZoneOffset.UTC),
+                toDate == null ? null : toDate.atStartOfDay().toInstant(ZoneOffset.UTC),
+                serviceableVehicles
+        );
+
+        AvailableTimesCursor after = null;
+        if (afterTime != null || afterWorkshopId != null || afterId != null) {
+            if (afterTime == null || afterWorkshopId == null || afterId == null) {
+                throw new IllegalArgumentException("Expected arguments 'afterTime', 'afterWorkshopId' and 'afterId' to be given together");
+            }
+            after = new AvailableTimesCursor(afterTime, afterWorkshopId, afterId);
+        }
+
+        AvailableTimesExport export = workshopsService.exportAvailableTireChangeTimes(filter, after);
+        EncodedTimes encodedTimes = workshopsService.getEncodedTimes();
+        boolean gzip = acceptsGzip(acceptEncoding);
+
+        StreamingResponseBody body = outputStream -> {
+            if (gzip) {
+                GZIPOutputStream gzipOutputStream = new GZIPOutputStream(outputStream, 8192);
+                AvailableTimesExportWriter.write(export.availableTimes(), encodedTimes, format, gzipOutputStream);
+                gzipOutputStream.finish();
+            } else {
+                AvailableTimesExportWriter.write(export.availableTimes(), encodedTimes, format, outputStream);
+            }
+        };
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(format == AvailableTimesExportFormat.CSV ? TEXT_CSV : APPLICATION_NDJSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                .header(FAILED_WORKSHOP_IDS_HEADER, export.failedWorkshops().stream()
+                        .map(WorkshopId::name)
+                        .collect(Collectors.joining(",")));
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
+    }
+
+    /**
+     * @return whether the {@code Accept-Encoding} header accepts gzip with a non-zero quality, directly or through
+     * {@code *} if gzip isn't listed
+     */
+    static boolean acceptsGzip(@Nullable String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Double gzipQuality = null;
+        Double wildcardQuality = null;
+        for (String element : acceptEncoding.split(",")) {
+            String[] parts = element.split(";");
+            String coding = parts[0].trim().toLowerCase(Locale.ROOT);
+            double quality = 1;
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim();
+                if (parameter.regionMatches(true, 0, "q=", 0, 2)) {
+                    try {
+                        quality = Double.parseDouble(parameter.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        quality = 0;
+                    }
+                }
+            }
+            if (coding.equals("gzip") || coding.equals("x-gzip")) {
+                gzipQuality = gzipQuality == null ? quality : Math.max(gzipQuality, quality);
+            } else if (coding.equals("*")) {
+                wildcardQuality = quality;
+            }
+        }
+        double quality = gzipQuality != null ? gzipQuality : wildcardQuality != null ? wildcardQuality : 0;
+        return quality > 0;
+    }
+
+    private EncodedAvailableTireTimesDTO toAvailableTireTimesDTO(AvailableTimesResponse availableTimesResponse) {
+        List<TireChangeTime> times = availableTimesResponse.availableTimes();
+        // Cached results are already sorted, they are serialized as is instead of being copied on every request
+        List<TireChangeTime> sortedTimes = isSortedByInstant(times)
+                ? times
+                : times.stream().sorted(Comparator.comparing(TireChangeTime::getInstant)).toList();
+        return new EncodedAvailableTireTimesDTO(
+                sortedTimes,
+                availableTimesResponse.failedWorkshops(),
+                availableTimesResponse.workshopVersions(),
+                workshopsService.getEncodedTimes()
+        );
+    }
+
+    private static boolean isSortedByInstant(List<TireChangeTime> times) {
+        for (int i = 1; i < times.size(); i++) {
+            if (times.get(i).getInstant().isBefore(times.get(i - 1).getInstant())) {
+                return false;
+            }
+        }
+        return true;
     }
 
     @PostMapping("/tire-change-times/available/book")
@@ -0,0 +1,19 @@
+package com.alexisa.tire_reserve.model.domain;
+
+import com.alexisa.tire_reserve.model.domain.enums.WorkshopId;
+import org.springframework.lang.Nullable;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+public record AvailableDaysResponse(
+        List<AvailableDay> availableDays,
+        List<WorkshopId> failedWorkshops
+) {
+    public record AvailableDay(
+            LocalDate date,
+            int count,
+            @Nullable Map<WorkshopId, Integer> workshopCounts
+    ) { }
+}
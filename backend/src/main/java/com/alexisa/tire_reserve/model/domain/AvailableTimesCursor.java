@@ -0,0 +1,25 @@
+package com.alexisa.tire_reserve.model.domain;
+
+import com.alexisa.tire_reserve.model.domain.enums.WorkshopId;
+
+import java.time.Instant;
+import java.util.Comparator;
+
+/**
+ * Position in the available times ordered by {@link #TIME_ORDER}, an export resumed from a cursor
+ * continues with the times after it.
+ */
+public record AvailableTimesCursor(Instant time, WorkshopId workshopId, String id) {
+
+    public static final Comparator<TireChangeTime> TIME_ORDER = Comparator
+            .comparing(TireChangeTime::getInstant)
+            .thenComparing(TireChangeTime::getWorkshopId)
+            .thenComparing(TireChangeTime::getId);
+
+    /**
+     * @return whether the given time is at or before this cursor, meaning it was already exported
+     */
+    public boolean isPassed(TireChangeTime tireChangeTime) {
+        return TIME_ORDER.compare(tireChangeTime, new TireChangeTime(workshopId, id, time)) <= 0;
+    }
+}
@@ -0,0 +1,19 @@
+package com.alexisa.tire_reserve.model.domain;
+
+import com.alexisa.tire_reserve.model.domain.enums.WorkshopId;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Changes of the available times since the versions known by the client. Removed times should be applied before
+ * the added times. For workshops in {@code resetWorkshops} the changes couldn't be resolved, so the client should
+ * discard its times of those workshops and {@code addedTimes} contains all of their current times instead.
+ */
+public record AvailableTimesDelta(
+        List<TireChangeTime> addedTimes,
+        List<TireChangeTime> removedTimes,
+        List<WorkshopId> resetWorkshops,
+        List<WorkshopId> failedWorkshops,
+        Map<WorkshopId, Long> workshopVersions
+) { }
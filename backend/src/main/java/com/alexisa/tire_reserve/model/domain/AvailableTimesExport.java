@@ -0,0 +1,14 @@
+package com.alexisa.tire_reserve.model.domain;
+
+import com.alexisa.tire_reserve.model.domain.enums.WorkshopId;
+
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * @param availableTimes lazily merged times of the cached workshop times, ordered as {@link AvailableTimesCursor#TIME_ORDER}
+ */
+public record AvailableTimesExport(
+        Iterator<TireChangeTime> availableTimes,
+        List<WorkshopId> failedWorkshops
+) { }
@@ -1,10 +1,17 @@
 package com.alexisa.tire_reserve.model.domain;
 
 import com.alexisa.tire_reserve.model.domain.enums.WorkshopId;
+import org.springframework.lang.Nullable;
 
 import java.util.List;
+import java.util.Map;
 
 public record AvailableTimesResponse(
         List<TireChangeTime> availableTimes,
-        List<WorkshopId> failedWorkshops
-) { }
+        List<WorkshopId> failedWorkshops,
+        @Nullable Map<WorkshopId, Long> workshopVersions
+) {
+    public AvailableTimesResponse(List<TireChangeTime> availableTimes, List<WorkshopId> failedWorkshops) {
+        this(availableTimes, failedWorkshops, null);
+    }
+}
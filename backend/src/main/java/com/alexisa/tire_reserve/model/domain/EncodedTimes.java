@@ -0,0 +1,44 @@
+package com.alexisa.tire_reserve.model.domain;
+
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import org.springframework.lang.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Looks up the pre-encoded UTF-8 JSON of times, which is the same as the JSON of their
+ * {@code AvailableTireTimeDTO}, so responses can be written without mapping and formatting the times again.
+ */
+@FunctionalInterface
+public interface EncodedTimes {
+
+    EncodedTimes NONE = time -> null;
+
+    /**
+     * @return pre-encoded JSON of the time, {@code null} if it hasn't been encoded beforehand
+     */
+    @Nullable
+    byte[] find(TireChangeTime time);
+
+    /**
+     * @return pre-encoded JSON of the time, encoding it if it hasn't been encoded beforehand
+     */
+    default byte[] get(TireChangeTime time) {
+        byte[] encodedJson = find(time);
+        return encodedJson != null ? encodedJson : encode(time);
+    }
+
+    static byte[] encode(TireChangeTime time) {
+        JsonStringEncoder encoder = JsonStringEncoder.getInstance();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(96);
+        out.writeBytes("{\"workshopId\":\"".getBytes(StandardCharsets.UTF_8));
+        out.writeBytes(encoder.quoteAsUTF8(time.getWorkshopId().name()));
+        out.writeBytes("\",\"id\":\"".getBytes(StandardCharsets.UTF_8));
+        out.writeBytes(encoder.quoteAsUTF8(time.getId()));
+        out.writeBytes("\",\"time\":\"".getBytes(StandardCharsets.UTF_8));
+        out.writeBytes(encoder.quoteAsUTF8(time.getInstant().toString()));
+        out.writeBytes("\"}".getBytes(StandardCharsets.UTF_8));
+        return out.toByteArray();
+    }
+}
@@ -39,8 +39,11 @@ public class TireChangeTime {
     public boolean isReservedSet(){
         return reserved.get();
     }
-    public void setReservedTrue(){
-        reserved.set(true);
+    /**
+     * @return whether this call reserved the time, {@code false} if it already was reserved
+     */
+    public boolean setReservedTrue(){
+        return reserved.compareAndSet(false, true);
     }
 
     public boolean equals(Object o) {
@@ -6,21 +6,71 @@ import com.alexisa.tire_reserve.model.dto.TireChangeTimesFilterDTO;
 import org.springframework.lang.NonNull;
 import org.springframework.lang.Nullable;
 
+import java.time.DayOfWeek;
 import java.time.Instant;
+import java.time.LocalTime;
 import java.util.List;
 
+/**
+ * {@code weekdays}, {@code timeOfDayFrom} (inclusive) and {@code timeOfDayTo} (exclusive) are evaluated
+ * in the time zone of each workshop. A time of day window where {@code timeOfDayTo} is before
+ * {@code timeOfDayFrom} wraps around midnight.
+ */
 public record TireChangeTimesFilter(
         @Nullable List<WorkshopId> selectedWorkshops,
         @NonNull Instant fromDate,
         @Nullable Instant toDate,
-        @Nullable List<ServiceableVehicle> serviceableVehicles
+        @Nullable List<ServiceableVehicle> serviceableVehicles,
+        @Nullable List<DayOfWeek> weekdays,
+        @Nullable LocalTime timeOfDayFrom,
+        @Nullable LocalTime timeOfDayTo
 ) {
 
+    public TireChangeTimesFilter(
+            @Nullable List<WorkshopId> selectedWorkshops,
+            @NonNull Instant fromDate,
+            @Nullable Instant toDate,
+            @Nullable List<ServiceableVehicle> serviceableVehicles
+    ) {
+        this(selectedWorkshops, fromDate, toDate, serviceableVehicles, null, null, null);
+    }
+
+    /**
+     * @return equivalent filter with the list values sorted, without duplicates and with empty lists
+     * replaced by {@code null}
+     */
+    public TireChangeTimesFilter normalized() {
+        return new TireChangeTimesFilter(
+                normalizedList(selectedWorkshops),
+                fromDate,
+                toDate,
+                normalizedList(serviceableVehicles),
+                normalizedList(weekdays),
+                timeOfDayFrom,
+                timeOfDayTo
+        );
+    }
+
+    @Nullable
+    private static <T extends Comparable<T>> List<T> normalizedList(@Nullable List<T> values) {
+        if (values == null || values.isEmpty()) {
+            return null;
+        }
+        return values.stream().distinct().sorted().toList();
+    }
+
+    public boolean hasLocalTimeConstraints() {
+        return (weekdays != null && !weekdays.isEmpty()) || timeOfDayFrom != null || timeOfDayTo != null;
+    }
+
     public static TireChangeTimesFilter fromDTO(TireChangeTimesFilterDTO dto){
         return new TireChangeTimesFilter(
                 dto.selectedWorkshops(),
                 dto.fromDate(),
                 dto.toDate(),
-                dto.serviceableVehicles());
+                dto.serviceableVehicles(),
+                dto.weekdays(),
+                dto.timeOfDayFrom(),
+                dto.timeOfDayTo());
     }
 }
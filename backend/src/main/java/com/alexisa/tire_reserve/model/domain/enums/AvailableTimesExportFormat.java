@@ -0,0 +1,6 @@
+package com.alexisa.tire_reserve.model.domain.enums;
+
+public enum AvailableTimesExportFormat {
+    NDJSON,
+    CSV
+}
@@ -0,0 +1,25 @@
+package com.alexisa.tire_reserve.model.dto;
+
+import com.alexisa.tire_reserve.model.domain.AvailableDaysResponse;
+import com.alexisa.tire_reserve.model.domain.enums.WorkshopId;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+import java.util.Map;
+
+public record AvailableDaysDTO(List<AvailableDayDTO> days, List<WorkshopId> failedWorkshopIds) {
+
+    public static AvailableDaysDTO dtoFromModel(AvailableDaysResponse availableDaysResponse) {
+        List<AvailableDayDTO> dayDTOs = availableDaysResponse.availableDays().stream()
+                .map(day -> new AvailableDayDTO(day.date().toString(), day.count(), day.workshopCounts()))
+                .toList();
+        return new AvailableDaysDTO(dayDTOs, availableDaysResponse.failedWorkshops());
+    }
+
+    public record AvailableDayDTO(
+            String date,
+            int count,
+            @JsonInclude(JsonInclude.Include.NON_NULL)
+            Map<WorkshopId, Integer> workshopCounts
+    ) { }
+}
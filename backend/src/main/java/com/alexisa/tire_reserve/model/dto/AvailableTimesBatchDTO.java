@@ -0,0 +1,11 @@
+package com.alexisa.tire_reserve.model.dto;
+
+import java.util.List;
+
+/**
+ * @param results available times of each filter of the request, in the same order
+ */
+public record AvailableTimesBatchDTO(
+        List<EncodedAvailableTireTimesDTO> results
+) {
+}
@@ -0,0 +1,10 @@
+package com.alexisa.tire_reserve.model.dto;
+
+import org.springframework.lang.NonNull;
+
+import java.util.List;
+
+public record AvailableTimesBatchRequestDTO(
+        @NonNull List<TireChangeTimesFilterDTO> filters
+) {
+}
@@ -0,0 +1,25 @@
+package com.alexisa.tire_reserve.model.dto;
+
+import com.alexisa.tire_reserve.model.domain.AvailableTimesDelta;
+import com.alexisa.tire_reserve.model.domain.enums.WorkshopId;
+
+import java.util.List;
+import java.util.Map;
+
+public record AvailableTimesChangesDTO(
+        List<AvailableTireTimeDTO> addedTimes,
+        List<AvailableTireTimeDTO> removedTimes,
+        List<WorkshopId> resetWorkshopIds,
+        List<WorkshopId> failedWorkshopIds,
+        Map<WorkshopId, Long> workshopVersions
+) {
+    public static AvailableTimesChangesDTO dtoFromModel(AvailableTimesDelta delta) {
+        return new AvailableTimesChangesDTO(
+                delta.addedTimes().stream().map(AvailableTireTimeDTO::dtoFromModel).toList(),
+                delta.removedTimes().stream().map(AvailableTireTimeDTO::dtoFromModel).toList(),
+                delta.resetWorkshops(),
+                delta.failedWorkshops(),
+                delta.workshopVersions()
+        );
+    }
+}
@@ -0,0 +1,13 @@
+package com.alexisa.tire_reserve.model.dto;
+
+import com.alexisa.tire_reserve.model.domain.enums.WorkshopId;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+
+import java.util.Map;
+
+public record AvailableTimesChangesRequestDTO(
+        @NonNull TireChangeTimesFilterDTO filter,
+        @Nullable Map<WorkshopId, Long> knownVersions
+) {
+}
@@ -2,6 +2,7 @@ package com.alexisa.tire_reserve.model.dto;
 
 import com.alexisa.tire_reserve.model.domain.TireChangeTime;
 import com.alexisa.tire_reserve.model.domain.enums.WorkshopId;
+import com.fasterxml.jackson.databind.util.StdConverter;
 
 public record AvailableTireTimeDTO(WorkshopId workshopId, String id, String time) {
 
@@ -12,4 +13,11 @@ public record AvailableTireTimeDTO(WorkshopId workshopId, String id, String time
                 tireChangeTime.getInstant().toString()
         );
     }
+
+    public static class FromModelConverter extends StdConverter<TireChangeTime, AvailableTireTimeDTO> {
+        @Override
+        public AvailableTireTimeDTO convert(TireChangeTime tireChangeTime) {
+            return dtoFromModel(tireChangeTime);
+        }
+    }
 }
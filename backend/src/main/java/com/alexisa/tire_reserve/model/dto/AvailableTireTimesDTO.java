@@ -1,8 +1,15 @@
 package com.alexisa.tire_reserve.model.dto;
 
 import com.alexisa.tire_reserve.model.domain.enums.WorkshopId;
+import com.fasterxml.jackson.annotation.JsonInclude;
 
 import java.util.List;
+import java.util.Map;
 
-public record AvailableTireTimesDTO(List<AvailableTireTimeDTO> tireChangeTimes, List<WorkshopId> failedWorkshopIds) {
+public record AvailableTireTimesDTO(
+        List<AvailableTireTimeDTO> tireChangeTimes,
+        List<WorkshopId> failedWorkshopIds,
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        Map<WorkshopId, Long> workshopVersions
+) {
 }
@@ -0,0 +1,14 @@
+package com.alexisa.tire_reserve.model.dto;
+
+import com.alexisa.tire_reserve.model.dto.workshop.WorkshopDTO;
+
+import java.util.List;
+
+/**
+ * Everything the frontend needs for its first render, the workshops and the earliest times of the default search.
+ */
+public record BootstrapDTO(
+        List<WorkshopDTO> workshops,
+        EncodedAvailableTireTimesDTO availableTimes
+) {
+}
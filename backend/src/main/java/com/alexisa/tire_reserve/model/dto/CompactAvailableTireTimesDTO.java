@@ -0,0 +1,55 @@
+package com.alexisa.tire_reserve.model.dto;
+
+import com.alexisa.tire_reserve.model.domain.TireChangeTime;
+import com.alexisa.tire_reserve.model.domain.enums.WorkshopId;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact form of {@link AvailableTireTimesDTO} for the binary response formats.
+ * <p>
+ * Times are stored column-wise, the i-th time is made up of the i-th element of every array.
+ * The workshop of a time is given as an index into {@code workshops} and its instant in epoch seconds.
+ */
+public record CompactAvailableTireTimesDTO(
+        List<WorkshopId> workshops,
+        int[] workshopIndexes,
+        String[] ids,
+        long[] epochSeconds,
+        List<WorkshopId> failedWorkshopIds,
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        Map<WorkshopId, Long> workshopVersions
+) {
+
+    public static CompactAvailableTireTimesDTO dtoFromModel(EncodedAvailableTireTimesDTO dto) {
+        List<TireChangeTime> times = dto.tireChangeTimes();
+        List<WorkshopId> workshops = new ArrayList<>();
+        Map<WorkshopId, Integer> workshopIndexesById = new EnumMap<>(WorkshopId.class);
+
+        int[] workshopIndexes = new int[times.size()];
+        String[] ids = new String[times.size()];
+        long[] epochSeconds = new long[times.size()];
+        for (int i = 0; i < times.size(); i++) {
+            TireChangeTime time = times.get(i);
+            workshopIndexes[i] = workshopIndexesById.computeIfAbsent(time.getWorkshopId(), workshopId -> {
+                workshops.add(workshopId);
+                return workshops.size() - 1;
+            });
+            ids[i] = time.getId();
+            epochSeconds[i] = time.getInstant().getEpochSecond();
+        }
+
+        return new CompactAvailableTireTimesDTO(
+                workshops,
+                workshopIndexes,
+                ids,
+                epochSeconds,
+                dto.failedWorkshopIds(),
+                dto.workshopVersions()
+        );
+    }
+}
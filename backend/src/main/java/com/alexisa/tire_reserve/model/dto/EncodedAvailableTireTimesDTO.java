@@ -0,0 +1,35 @@
+package com.alexisa.tire_reserve.model.dto;
+
+import com.alexisa.tire_reserve.model.domain.EncodedTimes;
+import com.alexisa.tire_reserve.model.domain.TireChangeTime;
+import com.alexisa.tire_reserve.model.domain.enums.WorkshopId;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Write-only equivalent of {@link AvailableTireTimesDTO}, which keeps the times as they are cached.
+ * JSON responses are written from the pre-encoded times of {@code encodedTimes} by
+ * {@code EncodedAvailableTireTimesConverter}, other formats fall back to serializing the times through
+ * {@link AvailableTireTimeDTO}.
+ */
+public record EncodedAvailableTireTimesDTO(
+        @JsonSerialize(contentConverter = AvailableTireTimeDTO.FromModelConverter.class)
+        List<TireChangeTime> tireChangeTimes,
+        List<WorkshopId> failedWorkshopIds,
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        Map<WorkshopId, Long> workshopVersions,
+        @JsonIgnore
+        EncodedTimes encodedTimes
+) {
+    public EncodedAvailableTireTimesDTO(
+            List<TireChangeTime> tireChangeTimes,
+            List<WorkshopId> failedWorkshopIds,
+            Map<WorkshopId, Long> workshopVersions
+    ) {
+        this(tireChangeTimes, failedWorkshopIds, workshopVersions, EncodedTimes.NONE);
+    }
+}
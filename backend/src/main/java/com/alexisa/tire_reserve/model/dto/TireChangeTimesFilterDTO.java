@@ -10,8 +10,10 @@ import org.springframework.lang.NonNull;
 import org.springframework.lang.Nullable;
 
 import java.io.IOException;
+import java.time.DayOfWeek;
 import java.time.Instant;
 import java.time.LocalDate;
+import java.time.LocalTime;
 import java.time.ZoneOffset;
 import java.util.List;
 
@@ -21,7 +23,10 @@ public record TireChangeTimesFilterDTO(
         @NonNull Instant fromDate,
         @JsonDeserialize(using = LocalDateToInstantDeserializer.class)
         @Nullable Instant toDate,
-        @Nullable List<ServiceableVehicle> serviceableVehicles
+        @Nullable List<ServiceableVehicle> serviceableVehicles,
+        @Nullable List<DayOfWeek> weekdays,
+        @Nullable LocalTime timeOfDayFrom,
+        @Nullable LocalTime timeOfDayTo
 ) {
     private static class LocalDateToInstantDeserializer extends JsonDeserializer<Instant> {
 
@@ -0,0 +1,186 @@
+package com.alexisa.tire_reserve.service.events;
+
+import com.alexisa.tire_reserve.model.domain.TireChangeTime;
+import com.alexisa.tire_reserve.model.domain.enums.ServiceableVehicle;
+import com.alexisa.tire_reserve.model.domain.enums.WorkshopId;
+import com.alexisa.tire_reserve.model.dto.AvailableTireTimeDTO;
+import com.alexisa.tire_reserve.service.events.bus.SlotEvent;
+import com.alexisa.tire_reserve.service.events.bus.SlotEventBus;
+import com.alexisa.tire_reserve.service.events.bus.SlotEventConsumer;
+import com.alexisa.tire_reserve.service.workshop.WorkshopsService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Pushes the added and removed available times to Server-Sent Events subscribers.
+ * <p>
+ * Emitters are completed asynchronously by the servlet container, so idle subscribers don't hold a thread.
+ * Every subscriber has a bounded queue of pending events which is drained on a virtual thread, a subscriber
+ * which can't keep up with the changes is sent a {@code resync} event and disconnected, so it can reconnect and
+ * query the available times again instead of slowing down the other subscribers.
+ */
+@Slf4j
+@Service
+public class AvailableTimesEventsService implements SlotEventConsumer {
+
+    public static final String SLOT_ADDED_EVENT = "slot-added";
+    public static final String SLOT_REMOVED_EVENT = "slot-removed";
+    public static final String RESYNC_EVENT = "resync";
+    private static final Set<ResponseBodyEmitter.DataWithMediaType> HEARTBEAT_EVENT = SseEmitter.event().comment("heartbeat").build();
+
+    private final WorkshopsService workshopsService;
+    private final Duration emitterTimeout;
+    private final int queueCapacity;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final ExecutorService senderExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final ScheduledExecutorService heartbeatExecutor = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("available-times-events-heartbeat").daemon().factory()
+    );
+
+    public AvailableTimesEventsService(
+            WorkshopsService workshopsService,
+            SlotEventBus slotEventBus,
+            @Value("${workshops.events.emitter-timeout}") Duration emitterTimeout,
+            @Value("${workshops.events.heartbeat-interval}") Duration heartbeatInterval,
+            @Value("${workshops.events.queue-capacity}") int queueCapacity
+    ) {
+        this.workshopsService = workshopsService;
+        this.emitterTimeout = emitterTimeout;
+        this.queueCapacity = queueCapacity;
+
+        slotEventBus.addConsumer("sse", this);
+        heartbeatExecutor.scheduleAtFixedRate(
+                this::sendHeartbeats,
+                heartbeatInterval.toMillis(),
+                heartbeatInterval.toMillis(),
+                TimeUnit.MILLISECONDS
+        );
+    }
+
+    /**
+     * @throws IllegalArgumentException if the selection doesn't allow any workshops
+     */
+    public SseEmitter subscribe(
+            @Nullable List<WorkshopId> selectedWorkshops,
+            @Nullable List<ServiceableVehicle> serviceableVehicles
+    ) {
+        Set<WorkshopId> allowedWorkshops = workshopsService.resolveAllowedWorkshops(selectedWorkshops, serviceableVehicles);
+
+        SseEmitter emitter = new SseEmitter(emitterTimeout.toMillis());
+        Subscriber subscriber = new Subscriber(emitter, allowedWorkshops, new ArrayBlockingQueue<>(queueCapacity));
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+
+        log.debug("Added available times events subscriber for workshops {}, {} subscribers", allowedWorkshops, subscribers.size());
+        return emitter;
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    @Override
+    public void onEvent(SlotEvent event, long sequence, boolean endOfBatch) {
+        String eventName = switch (event.getType()) {
+            case TIME_ADDED -> SLOT_ADDED_EVENT;
+            case TIME_REMOVED -> SLOT_REMOVED_EVENT;
+            default -> null;
+        };
+        if (eventName == null || event.getTime() == null || subscribers.isEmpty()) {
+            return;
+        }
+        // The bus reuses the event, so the SSE event is built once and shared by the subscribers
+        Set<ResponseBodyEmitter.DataWithMediaType> sseEvent = timeEvent(eventName, event.getTime(), event.getVersion()).build();
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.allowedWorkshops().contains(event.getWorkshopId())) {
+                enqueue(subscriber, sseEvent);
+            }
+        }
+    }
+
+    private static SseEmitter.SseEventBuilder timeEvent(String eventName, TireChangeTime time, long version) {
+        return SseEmitter.event()
+                .name(eventName)
+                .id(String.valueOf(version))
+                .data(AvailableTireTimeDTO.dtoFromModel(time));
+    }
+
+    private void sendHeartbeats() {
+        for (Subscriber subscriber : subscribers) {
+            // Heartbeats are only needed to keep idle connections open
+            if (subscriber.pendingEvents().isEmpty()) {
+                enqueue(subscriber, HEARTBEAT_EVENT);
+            }
+        }
+    }
+
+    private void enqueue(Subscriber subscriber, Set<ResponseBodyEmitter.DataWithMediaType> event) {
+        if (!subscriber.pendingEvents().offer(event)) {
+            log.info("Disconnecting available times events subscriber which couldn't keep up with the changes");
+            subscribers.remove(subscriber);
+            subscriber.pendingEvents().clear();
+            subscriber.pendingEvents().offer(SseEmitter.event().name(RESYNC_EVENT).data("").build());
+            subscriber.closing().set(true);
+        }
+        if (subscriber.draining().compareAndSet(false, true)) {
+            senderExecutor.execute(() -> drain(subscriber));
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        try {
+            Set<ResponseBodyEmitter.DataWithMediaType> event;
+            while ((event = subscriber.pendingEvents().poll()) != null) {
+                subscriber.emitter().send(event);
+            }
+            if (subscriber.closing().get()) {
+                subscriber.emitter().complete();
+            }
+        } catch (IOException | IllegalStateException e) {
+            log.debug("Failed sending available times event, removing subscriber", e);
+            subscribers.remove(subscriber);
+            subscriber.emitter().completeWithError(e);
+        } finally {
+            subscriber.draining().set(false);
+        }
+        // Events offered after the queue was seen empty but before draining was reset
+        if (!subscriber.pendingEvents().isEmpty() && subscriber.draining().compareAndSet(false, true)) {
+            senderExecutor.execute(() -> drain(subscriber));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeatExecutor.shutdownNow();
+        senderExecutor.shutdownNow();
+        subscribers.forEach(subscriber -> subscriber.emitter().complete());
+        subscribers.clear();
+    }
+
+    private record Subscriber(
+            SseEmitter emitter,
+            Set<WorkshopId> allowedWorkshops,
+            Queue<Set<ResponseBodyEmitter.DataWithMediaType>> pendingEvents,
+            AtomicBoolean draining,
+            AtomicBoolean closing
+    ) {
+        private Subscriber(SseEmitter emitter, Set<WorkshopId> allowedWorkshops, Queue<Set<ResponseBodyEmitter.DataWithMediaType>> pendingEvents) {
+            this(emitter, allowedWorkshops, pendingEvents, new AtomicBoolean(false), new AtomicBoolean(false));
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.alexisa.tire_reserve.service.events.bus;
+
+import com.alexisa.tire_reserve.model.domain.TireChangeTime;
+import com.alexisa.tire_reserve.model.domain.enums.WorkshopId;
+import lombok.Getter;
+import org.springframework.lang.Nullable;
+
+/**
+ * Slot lifecycle event published through the {@link SlotEventBus}.
+ * <p>
+ * Instances are preallocated by the bus and reused for every lap of the ring, so consumers must not keep a reference
+ * to the event after handling it, only to the values read from it.
+ */
+@Getter
+public final class SlotEvent {
+
+    private SlotEventType type;
+    private WorkshopId workshopId;
+    /**
+     * Version of the workshop times after the event, 0 for events which are not tied to a version of the times
+     */
+    private long version;
+    @Nullable
+    private TireChangeTime time;
+    @Nullable
+    private String timeId;
+
+    SlotEvent() { }
+
+    void set(SlotEventType type, WorkshopId workshopId, long version, @Nullable TireChangeTime time, @Nullable String timeId) {
+        this.type = type;
+        this.workshopId = workshopId;
+        this.version = version;
+        this.time = time;
+        this.timeId = timeId;
+    }
+
+    void copyFrom(SlotEvent other) {
+        set(other.type, other.workshopId, other.version, other.time, other.timeId);
+    }
+}
@@ -0,0 +1,189 @@
+package com.alexisa.tire_reserve.service.events.bus;
+
+import com.alexisa.tire_reserve.model.domain.TireChangeTime;
+import com.alexisa.tire_reserve.model.domain.enums.WorkshopId;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * In-process bus for {@link SlotEvent}s, built on a ring buffer of preallocated events.
+ * <p>
+ * Publishing is serialized, so the ring has a single writer at a time, which only claims the next event, fills it
+ * and moves the cursor forward. Every consumer runs on its own thread and follows the cursor with its own sequence,
+ * handling all the events published since its last pass as one batch, so a slow consumer doesn't delay the publisher
+ * or the other consumers.
+ * <p>
+ * The publisher never waits for the consumers, it is called while bookings and refreshes are in progress. A consumer
+ * which falls a whole ring behind is resynced instead: it skips the events which were overwritten and continues from
+ * the oldest event still in the ring. Consumers copy each event before handling it and check the claimed sequence
+ * afterwards, so an event overwritten while being copied is skipped as well instead of being handled torn.
+ */
+@Slf4j
+@Component
+public class SlotEventBus {
+
+    private static final long CONSUMER_IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final SlotEvent[] ring;
+    private final int mask;
+    private final AtomicLong cursor = new AtomicLong(-1);
+    /**
+     * Sequence of the event being written, ahead of the cursor while the publisher fills the event
+     */
+    private final AtomicLong claimed = new AtomicLong(-1);
+    private final AtomicLong droppedEvents = new AtomicLong();
+    private final List<ConsumerRunner> consumers = new CopyOnWriteArrayList<>();
+
+    public SlotEventBus(@Value("${workshops.events.bus-ring-size}") int ringSize) {
+        if (ringSize <= 0 || Integer.bitCount(ringSize) != 1) {
+            throw new IllegalArgumentException("Ring size must be a power of two, got: " + ringSize);
+        }
+        ring = new SlotEvent[ringSize];
+        for (int i = 0; i < ringSize; i++) {
+            ring[i] = new SlotEvent();
+        }
+        mask = ringSize - 1;
+    }
+
+    /**
+     * Starts a consumer thread receiving the events published from now on.
+     */
+    public synchronized void addConsumer(String name, SlotEventConsumer consumer) {
+        ConsumerRunner runner = new ConsumerRunner(name, consumer, cursor.get());
+        consumers.add(runner);
+        runner.thread.start();
+        log.info("Added slot event consumer '{}'", name);
+    }
+
+    public void publish(SlotEventType type, WorkshopId workshopId, long version, @Nullable TireChangeTime time) {
+        publish(type, workshopId, version, time, time == null ? null : time.getId());
+    }
+
+    public synchronized void publish(
+            SlotEventType type,
+            WorkshopId workshopId,
+            long version,
+            @Nullable TireChangeTime time,
+            @Nullable String timeId
+    ) {
+        long sequence = cursor.get() + 1;
+        claimed.set(sequence);
+        // The event must not be changed before consumers can see it is claimed
+        VarHandle.storeStoreFence();
+        ring[(int) (sequence & mask)].set(type, workshopId, version, time, timeId);
+        cursor.set(sequence);
+
+        for (ConsumerRunner consumer : consumers) {
+            if (consumer.waiting) {
+                LockSupport.unpark(consumer.thread);
+            }
+        }
+    }
+
+    private long minimumConsumerSequence() {
+        long minimum = Long.MAX_VALUE;
+        for (ConsumerRunner consumer : consumers) {
+            minimum = Math.min(minimum, consumer.sequence.get());
+        }
+        return minimum;
+    }
+
+    public long getCursor() {
+        return cursor.get();
+    }
+
+    /**
+     * @return amount of events consumers skipped as they were overwritten before being handled
+     */
+    public long getDroppedEvents() {
+        return droppedEvents.get();
+    }
+
+    /**
+     * @return amount of published events the slowest consumer has not yet handled
+     */
+    public long getBacklog() {
+        return consumers.isEmpty() ? 0 : cursor.get() - minimumConsumerSequence();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (ConsumerRunner consumer : consumers) {
+            consumer.running = false;
+            LockSupport.unpark(consumer.thread);
+        }
+        consumers.clear();
+    }
+
+    private class ConsumerRunner implements Runnable {
+        private final String name;
+        private final SlotEventConsumer consumer;
+        private final AtomicLong sequence;
+        private final SlotEvent event = new SlotEvent();
+        private final Thread thread;
+        private volatile boolean running = true;
+        private volatile boolean waiting;
+
+        private ConsumerRunner(String name, SlotEventConsumer consumer, long startSequence) {
+            this.name = name;
+            this.consumer = consumer;
+            this.sequence = new AtomicLong(startSequence);
+            this.thread = Thread.ofPlatform().name("slot-events-" + name).daemon().unstarted(this);
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                long next = sequence.get() + 1;
+                long available = cursor.get();
+                if (available < next) {
+                    waiting = true;
+                    // Checked again after flagging, so an event published in between doesn't wait for the timeout
+                    if (cursor.get() < next) {
+                        LockSupport.parkNanos(CONSUMER_IDLE_PARK_NANOS);
+                    }
+                    waiting = false;
+                    continue;
+                }
+
+                long oldest = claimed.get() - ring.length + 1;
+                if (next < oldest) {
+                    resync(next, oldest);
+                    continue;
+                }
+
+                for (long current = next; current <= available; current++) {
+                    event.copyFrom(ring[(int) (current & mask)]);
+                    VarHandle.loadLoadFence();
+                    if (claimed.get() - current >= ring.length) {
+                        // Overwritten while being copied, the next pass continues from the oldest event in the ring
+                        sequence.set(current - 1);
+                        break;
+                    }
+                    try {
+                        consumer.onEvent(event, current, current == available);
+                    } catch (Throwable e) {
+                        log.warn("Slot event consumer '{}' failed handling event {}", name, current, e);
+                    }
+                    sequence.set(current);
+                }
+            }
+        }
+
+        private void resync(long next, long oldest) {
+            droppedEvents.addAndGet(oldest - next);
+            log.warn("Slot event consumer '{}' fell behind, skipping {} events", name, oldest - next);
+            sequence.set(oldest - 1);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.alexisa.tire_reserve.service.events.bus;
+
+@FunctionalInterface
+public interface SlotEventConsumer {
+
+    /**
+     * Called on the thread of the consumer for every published event, in the order they were published.
+     *
+     * @param endOfBatch whether this is the last event currently available, allows consumers to flush work they
+     *                   batched over the previous events
+     */
+    void onEvent(SlotEvent event, long sequence, boolean endOfBatch);
+}
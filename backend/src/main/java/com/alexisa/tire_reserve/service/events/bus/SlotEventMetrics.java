@@ -0,0 +1,45 @@
+package com.alexisa.tire_reserve.service.events.bus;
+
+import com.alexisa.tire_reserve.model.domain.enums.WorkshopId;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Counts the published slot events per type and workshop. Counters are registered up front, so handling an event
+ * doesn't allocate meter ids.
+ */
+@Component
+public class SlotEventMetrics implements SlotEventConsumer {
+
+    private final Map<SlotEventType, Map<WorkshopId, Counter>> counters = new EnumMap<>(SlotEventType.class);
+
+    public SlotEventMetrics(SlotEventBus slotEventBus, MeterRegistry meterRegistry) {
+        for (SlotEventType type : SlotEventType.values()) {
+            Map<WorkshopId, Counter> workshopCounters = new EnumMap<>(WorkshopId.class);
+            for (WorkshopId workshopId : WorkshopId.values()) {
+                workshopCounters.put(workshopId, Counter.builder("tire_reserve.slot.events")
+                        .tag("type", type.name().toLowerCase())
+                        .tag("workshop", workshopId.name().toLowerCase())
+                        .register(meterRegistry));
+            }
+            counters.put(type, workshopCounters);
+        }
+        Gauge.builder("tire_reserve.slot.events.backlog", slotEventBus, SlotEventBus::getBacklog)
+                .register(meterRegistry);
+        FunctionCounter.builder("tire_reserve.slot.events.dropped", slotEventBus, SlotEventBus::getDroppedEvents)
+                .register(meterRegistry);
+
+        slotEventBus.addConsumer("metrics", this);
+    }
+
+    @Override
+    public void onEvent(SlotEvent event, long sequence, boolean endOfBatch) {
+        counters.get(event.getType()).get(event.getWorkshopId()).increment();
+    }
+}
@@ -0,0 +1,15 @@
+package com.alexisa.tire_reserve.service.events.bus;
+
+public enum SlotEventType {
+    /**
+     * Time became available, either fetched from the workshop or changed its instant
+     */
+    TIME_ADDED,
+    /**
+     * Time is no longer available, either reserved or missing from the times fetched from the workshop
+     */
+    TIME_REMOVED,
+    TIME_BOOKED,
+    BOOKING_FAILED,
+    REFRESH_FAILED
+}
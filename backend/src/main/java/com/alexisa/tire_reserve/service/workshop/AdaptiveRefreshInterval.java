@@ -0,0 +1,62 @@
+package com.alexisa.tire_reserve.service.workshop;
+
+import java.time.Duration;
+
+/**
+ * Refresh interval of a single workshop, adapted to how much its times change between refreshes.
+ * <p>
+ * After every refresh the interval is scaled by the ratio of {@code targetChurn} to the share of times which
+ * changed, so a workshop changing more than the target gets refreshed sooner and one changing less later.
+ * A single refresh scales the interval by at most {@link #MAX_STEP} in either direction, so one unusual refresh
+ * doesn't swing the interval to its bounds, and the interval is kept within {@code [minInterval, maxInterval]}.
+ */
+public final class AdaptiveRefreshInterval {
+
+    static final double MAX_STEP = 2;
+
+    private final Duration minInterval;
+    private final Duration maxInterval;
+    private final double targetChurn;
+    private Duration interval;
+
+    public AdaptiveRefreshInterval(Duration initialInterval, Duration minInterval, Duration maxInterval, double targetChurn) {
+        if (minInterval.isZero() || minInterval.isNegative() || maxInterval.compareTo(minInterval) < 0) {
+            throw new IllegalArgumentException(String.format(
+                    "Expected refresh interval bounds '%s' and '%s' to be positive and ascending",
+                    minInterval,
+                    maxInterval
+            ));
+        }
+        if (targetChurn <= 0) {
+            throw new IllegalArgumentException(String.format(
+                    "Expected target churn '%s' to be positive",
+                    targetChurn
+            ));
+        }
+        this.minInterval = minInterval;
+        this.maxInterval = maxInterval;
+        this.targetChurn = targetChurn;
+        this.interval = clamp(initialInterval);
+    }
+
+    public synchronized Duration current() {
+        return interval;
+    }
+
+    /**
+     * @param churn share of the times which changed in the last refresh
+     * @return interval until the next refresh
+     */
+    public synchronized Duration update(double churn) {
+        double factor = churn <= 0 ? MAX_STEP : Math.max(1 / MAX_STEP, Math.min(MAX_STEP, targetChurn / churn));
+        interval = clamp(Duration.ofMillis((long) (interval.toMillis() * factor)));
+        return interval;
+    }
+
+    private Duration clamp(Duration duration) {
+        if (duration.compareTo(minInterval) < 0) {
+            return minInterval;
+        }
+        return duration.compareTo(maxInterval) > 0 ? maxInterval : duration;
+    }
+}
@@ -0,0 +1,110 @@
+package com.alexisa.tire_reserve.service.workshop;
+
+import com.alexisa.tire_reserve.model.domain.TireChangeTime;
+import com.alexisa.tire_reserve.model.domain.enums.WorkshopId;
+
+import java.util.*;
+
+/**
+ * Bounded history of the changes between consecutive versions of the cached times of each workshop.
+ * <p>
+ * Changes are looked up by the version they start from, so a client knowing an older version can be sent only the
+ * times which were added and removed since, as long as the chain of changes up to the current version is still
+ * in the history.
+ */
+public class AvailableTimesChangeLog {
+
+    private final int maxChangesPerWorkshop;
+    private final Map<WorkshopId, LinkedHashMap<Long, AvailableTimesChange>> changesByWorkshop = new EnumMap<>(WorkshopId.class);
+
+    public AvailableTimesChangeLog(int maxChangesPerWorkshop) {
+        this.maxChangesPerWorkshop = maxChangesPerWorkshop;
+    }
+
+    public synchronized void record(AvailableTimesChange change) {
+        changesByWorkshop.computeIfAbsent(change.workshopId(), key -> new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, AvailableTimesChange> eldest) {
+                return size() > maxChangesPerWorkshop;
+            }
+        }).put(change.fromVersion(), change);
+    }
+
+    /**
+     * Combines the changes of the workshop from {@code fromVersion} to {@code toVersion}.
+     * Removed times are meant to be applied before the added times, a time can be in both if it was removed and
+     * added again with different data.
+     *
+     * @return combined change, empty if the history doesn't contain every change between the versions
+     */
+    public synchronized Optional<AvailableTimesChange> changesBetween(WorkshopId workshopId, long fromVersion, long toVersion) {
+        Map<Long, AvailableTimesChange> changes = changesByWorkshop.getOrDefault(workshopId, new LinkedHashMap<>());
+
+        Map<TireChangeTime, TireChangeTime> added = new LinkedHashMap<>();
+        Set<TireChangeTime> removed = new LinkedHashSet<>();
+        long version = fromVersion;
+        while (version != toVersion) {
+            AvailableTimesChange change = changes.get(version);
+            if (change == null) {
+                return Optional.empty();
+            }
+            for (TireChangeTime removedTime : change.removedTimes()) {
+                if (added.remove(removedTime) == null) {
+                    removed.add(removedTime);
+                }
+            }
+            for (TireChangeTime addedTime : change.addedTimes()) {
+                added.put(addedTime, addedTime);
+            }
+            version = change.toVersion();
+        }
+
+        return Optional.of(new AvailableTimesChange(
+                workshopId,
+                fromVersion,
+                toVersion,
+                List.copyOf(added.values()),
+                List.copyOf(removed)
+        ));
+    }
+
+    /**
+     * Computes the change from the unreserved times of {@code previous} to the unreserved times of {@code current}.
+     * Times are matched by workshop and id, a time whose instant changed is both removed and added.
+     */
+    public static AvailableTimesChange diff(CachedWsAvailableTimes previous, CachedWsAvailableTimes current) {
+        Map<TireChangeTime, TireChangeTime> previousTimes = new HashMap<>();
+        for (TireChangeTime time : Objects.requireNonNullElse(previous.availableTimes(), List.<TireChangeTime>of())) {
+            if (!time.isReservedSet()) {
+                previousTimes.put(time, time);
+            }
+        }
+
+        List<TireChangeTime> added = new ArrayList<>();
+        for (TireChangeTime time : Objects.requireNonNullElse(current.availableTimes(), List.<TireChangeTime>of())) {
+            TireChangeTime previousTime = previousTimes.remove(time);
+            if (previousTime == null) {
+                added.add(time);
+            } else if (!previousTime.getInstant().equals(time.getInstant())) {
+                added.add(time);
+                previousTimes.put(previousTime, previousTime);
+            }
+        }
+
+        return new AvailableTimesChange(
+                current.workshopId(),
+                previous.currentVersion(),
+                current.currentVersion(),
+                added,
+                List.copyOf(previousTimes.values())
+        );
+    }
+
+    public record AvailableTimesChange(
+            WorkshopId workshopId,
+            long fromVersion,
+            long toVersion,
+            List<TireChangeTime> addedTimes,
+            List<TireChangeTime> removedTimes
+    ) { }
+}
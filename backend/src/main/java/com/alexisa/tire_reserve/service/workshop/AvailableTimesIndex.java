@@ -0,0 +1,294 @@
+package com.alexisa.tire_reserve.service.workshop;
+
+import com.alexisa.tire_reserve.model.domain.AvailableTimesCursor;
+import com.alexisa.tire_reserve.model.domain.TireChangeTime;
+import com.alexisa.tire_reserve.model.domain.TireChangeTimesFilter;
+import com.alexisa.tire_reserve.model.domain.enums.ServiceableVehicle;
+import com.alexisa.tire_reserve.model.domain.enums.WorkshopId;
+import org.springframework.lang.Nullable;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+/**
+ * Bitmap index over the cached times of all workshops of a single cache population.
+ * <p>
+ * Every time is given an ordinal in {@link AvailableTimesCursor#TIME_ORDER}, so a range of instants is a contiguous
+ * range of ordinals and the matching times come out already sorted. {@code dayStarts} holds the first ordinal of
+ * every UTC day starting from {@code firstDay}, which narrows the range lookups down to the edge days.
+ * {@code workshopSlots} and {@code vehicleSlots} hold the ordinals of the times of each workshop and of the workshops
+ * serving each vehicle, so workshop and vehicle selections are answered by combining bitmaps instead of checking
+ * every time. Only the ordinals left in the result are materialized into times.
+ * <p>
+ * The index is immutable, reservations are still read from the times themselves as they happen after indexing.
+ */
+public final class AvailableTimesIndex {
+
+    private final List<CachedWsAvailableTimes> source;
+    private final TireChangeTime[] times;
+    @Nullable
+    private final LocalDate firstDay;
+    private final int[] dayStarts;
+    private final Map<WorkshopId, BitSet> workshopSlots;
+    private final Map<WorkshopId, int[]> workshopOrdinals;
+    private final Map<ServiceableVehicle, BitSet> vehicleSlots;
+
+    private AvailableTimesIndex(
+            List<CachedWsAvailableTimes> source,
+            TireChangeTime[] times,
+            @Nullable LocalDate firstDay,
+            int[] dayStarts,
+            Map<WorkshopId, BitSet> workshopSlots,
+            Map<WorkshopId, int[]> workshopOrdinals,
+            Map<ServiceableVehicle, BitSet> vehicleSlots
+    ) {
+        this.source = source;
+        this.times = times;
+        this.firstDay = firstDay;
+        this.dayStarts = dayStarts;
+        this.workshopSlots = workshopSlots;
+        this.workshopOrdinals = workshopOrdinals;
+        this.vehicleSlots = vehicleSlots;
+    }
+
+    /**
+     * @param serviceableVehicles vehicles served by each workshop
+     */
+    public static AvailableTimesIndex build(
+            List<CachedWsAvailableTimes> allTimes,
+            Map<WorkshopId, List<ServiceableVehicle>> serviceableVehicles
+    ) {
+        List<Slot> slots = new ArrayList<>();
+        Map<WorkshopId, int[]> workshopOrdinals = new EnumMap<>(WorkshopId.class);
+        for (CachedWsAvailableTimes wsTimes : allTimes) {
+            List<TireChangeTime> wsTimesList = wsTimes.availableTimes();
+            if (wsTimesList == null) {
+                continue;
+            }
+            workshopOrdinals.put(wsTimes.workshopId(), new int[wsTimesList.size()]);
+            for (int i = 0; i < wsTimesList.size(); i++) {
+                slots.add(new Slot(wsTimesList.get(i), i));
+            }
+        }
+        slots.sort(Comparator.comparing(Slot::time, AvailableTimesCursor.TIME_ORDER));
+
+        TireChangeTime[] times = new TireChangeTime[slots.size()];
+        Map<WorkshopId, BitSet> workshopSlots = new EnumMap<>(WorkshopId.class);
+        for (int ordinal = 0; ordinal < times.length; ordinal++) {
+            Slot slot = slots.get(ordinal);
+            times[ordinal] = slot.time();
+            workshopOrdinals.get(slot.time().getWorkshopId())[slot.workshopIndex()] = ordinal;
+            workshopSlots.computeIfAbsent(slot.time().getWorkshopId(), key -> new BitSet(times.length)).set(ordinal);
+        }
+
+        Map<ServiceableVehicle, BitSet> vehicleSlots = new EnumMap<>(ServiceableVehicle.class);
+        serviceableVehicles.forEach((workshopId, vehicles) -> {
+            BitSet wsSlots = workshopSlots.get(workshopId);
+            if (wsSlots == null) {
+                return;
+            }
+            for (ServiceableVehicle vehicle : vehicles) {
+                vehicleSlots.computeIfAbsent(vehicle, key -> new BitSet(times.length)).or(wsSlots);
+            }
+        });
+
+        if (times.length == 0) {
+            return new AvailableTimesIndex(allTimes, times, null, new int[]{0}, workshopSlots, workshopOrdinals, vehicleSlots);
+        }
+        LocalDate firstDay = CachedWsAvailableTimes.toUtcDate(times[0].getInstant());
+        LocalDate lastDay = CachedWsAvailableTimes.toUtcDate(times[times.length - 1].getInstant());
+        int[] dayStarts = new int[(int) ChronoUnit.DAYS.between(firstDay, lastDay) + 2];
+        int ordinal = 0;
+        for (int day = 0; day < dayStarts.length - 1; day++) {
+            Instant dayStart = firstDay.plusDays(day).atStartOfDay(ZoneOffset.UTC).toInstant();
+            while (ordinal < times.length && times[ordinal].getInstant().isBefore(dayStart)) {
+                ordinal++;
+            }
+            dayStarts[day] = ordinal;
+        }
+        dayStarts[dayStarts.length - 1] = times.length;
+
+        return new AvailableTimesIndex(allTimes, times, firstDay, dayStarts, workshopSlots, workshopOrdinals, vehicleSlots);
+    }
+
+    /**
+     * @return whether the index was built from the given cache population
+     */
+    public boolean isBuiltFrom(List<CachedWsAvailableTimes> allTimes) {
+        return source == allTimes;
+    }
+
+    public int size() {
+        return times.length;
+    }
+
+    /**
+     * Returns the unreserved times matching the filter, sorted by {@link AvailableTimesCursor#TIME_ORDER}.
+     * Large ranges of ordinals are filtered in parallel chunks on the given pool.
+     *
+     * @param allowedWorkshops workshops resolved from the filter, only their local time indexes are looked up
+     */
+    public List<TireChangeTime> query(
+            TireChangeTimesFilter filter,
+            Set<WorkshopId> allowedWorkshops,
+            ParallelFilterPool filterPool
+    ) {
+        int from = indexOfFirstNotBefore(filter.fromDate());
+        int to = filter.toDate() == null ? times.length : indexOfFirstAfter(filter.toDate());
+        if (from >= to) {
+            return List.of();
+        }
+        Map<WorkshopId, BitSet> localTimeIndexes = filter.hasLocalTimeConstraints()
+                ? localTimeIndexes(filter, allowedWorkshops)
+                : null;
+
+        return filterPool.queryRange(from, to, (chunkFrom, chunkTo) -> queryRange(filter, localTimeIndexes, chunkFrom, chunkTo));
+    }
+
+    private List<TireChangeTime> queryRange(
+            TireChangeTimesFilter filter,
+            @Nullable Map<WorkshopId, BitSet> localTimeIndexes,
+            int from,
+            int to
+    ) {
+        // Bitmaps are sliced to the range, so bit i stands for ordinal from + i
+        BitSet matching = null;
+        if (filter.selectedWorkshops() != null && !filter.selectedWorkshops().isEmpty()) {
+            matching = union(workshopSlots, filter.selectedWorkshops(), from, to);
+        }
+        if (filter.serviceableVehicles() != null && !filter.serviceableVehicles().isEmpty()) {
+            matching = and(matching, union(vehicleSlots, filter.serviceableVehicles(), from, to));
+        }
+        if (localTimeIndexes != null) {
+            matching = and(matching, localTimeMatching(localTimeIndexes, from, to));
+        }
+
+        List<TireChangeTime> result = new ArrayList<>(matching == null ? to - from : matching.cardinality());
+        if (matching == null) {
+            for (int ordinal = from; ordinal < to; ordinal++) {
+                addUnreserved(result, times[ordinal]);
+            }
+        } else {
+            for (int i = matching.nextSetBit(0); i >= 0; i = matching.nextSetBit(i + 1)) {
+                addUnreserved(result, times[from + i]);
+            }
+        }
+        return result;
+    }
+
+    private static void addUnreserved(List<TireChangeTime> result, TireChangeTime time) {
+        if (!time.isReservedSet()) {
+            result.add(time);
+        }
+    }
+
+    private static <K> BitSet union(Map<K, BitSet> bitmaps, Collection<K> keys, int from, int to) {
+        BitSet result = new BitSet(to - from);
+        for (K key : keys) {
+            BitSet bitmap = bitmaps.get(key);
+            if (bitmap != null) {
+                result.or(bitmap.get(from, to));
+            }
+        }
+        return result;
+    }
+
+    private static BitSet and(@Nullable BitSet matching, BitSet other) {
+        if (matching == null) {
+            return other;
+        }
+        matching.and(other);
+        return matching;
+    }
+
+    /**
+     * @return indexes of the times of each allowed workshop matching the local time constraints of the filter
+     */
+    private Map<WorkshopId, BitSet> localTimeIndexes(TireChangeTimesFilter filter, Set<WorkshopId> allowedWorkshops) {
+        Map<WorkshopId, BitSet> result = new EnumMap<>(WorkshopId.class);
+        for (CachedWsAvailableTimes wsTimes : source) {
+            if (workshopOrdinals.containsKey(wsTimes.workshopId()) && allowedWorkshops.contains(wsTimes.workshopId())) {
+                result.put(
+                        wsTimes.workshopId(),
+                        wsTimes.indexesMatchingLocalTime(filter.weekdays(), filter.timeOfDayFrom(), filter.timeOfDayTo())
+                );
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Maps the indexes of the workshop times matching the local time constraints onto the ordinals in the range.
+     * The ordinals of a workshop increase with its indexes, so only the indexes mapping into the range are visited.
+     */
+    private BitSet localTimeMatching(Map<WorkshopId, BitSet> localTimeIndexes, int from, int to) {
+        BitSet result = new BitSet(to - from);
+        localTimeIndexes.forEach((workshopId, indexes) -> {
+            int[] ordinals = workshopOrdinals.get(workshopId);
+            int firstIndex = Arrays.binarySearch(ordinals, from);
+            firstIndex = firstIndex >= 0 ? firstIndex : -firstIndex - 1;
+            for (int i = indexes.nextSetBit(firstIndex); i >= 0 && ordinals[i] < to; i = indexes.nextSetBit(i + 1)) {
+                result.set(ordinals[i] - from);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * @return first ordinal whose time is not before {@code instant}
+     */
+    int indexOfFirstNotBefore(Instant instant) {
+        int[] bounds = dayBounds(instant);
+        int low = bounds[0];
+        int high = bounds[1];
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (times[mid].getInstant().isBefore(instant)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return first ordinal whose time is after {@code instant}
+     */
+    int indexOfFirstAfter(Instant instant) {
+        int[] bounds = dayBounds(instant);
+        int low = bounds[0];
+        int high = bounds[1];
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (times[mid].getInstant().isAfter(instant)) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return ordinal range of the UTC day of the instant, an empty range at the edge if the day is outside the index
+     */
+    private int[] dayBounds(Instant instant) {
+        if (firstDay == null) {
+            return new int[]{0, 0};
+        }
+        long day = ChronoUnit.DAYS.between(firstDay, CachedWsAvailableTimes.toUtcDate(instant));
+        if (day < 0) {
+            return new int[]{0, 0};
+        }
+        if (day >= dayStarts.length - 1) {
+            return new int[]{times.length, times.length};
+        }
+        return new int[]{dayStarts[(int) day], dayStarts[(int) day + 1]};
+    }
+
+    private record Slot(TireChangeTime time, int workshopIndex) { }
+}
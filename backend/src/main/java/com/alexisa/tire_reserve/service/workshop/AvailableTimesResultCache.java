@@ -0,0 +1,165 @@
+package com.alexisa.tire_reserve.service.workshop;
+
+import com.alexisa.tire_reserve.model.domain.AvailableTimesResponse;
+import com.alexisa.tire_reserve.model.domain.TireChangeTime;
+import com.alexisa.tire_reserve.model.domain.TireChangeTimesFilter;
+import com.alexisa.tire_reserve.model.domain.enums.WorkshopId;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Bounded cache of available times query results.
+ * <p>
+ * Results are keyed by the workshops the filter resolves to, the filter range widened to whole UTC days, the local
+ * time constraints and the versions of the cached times of those workshops. Filters differing only in how they
+ * select the same workshops or in the time of day of their range share the same result, which is narrowed down to
+ * the requested range with a binary search. As the versions are part of the key, a result is never served for
+ * cached times it wasn't computed from, entries are additionally dropped when the times they were computed from
+ * get replaced or booked, so they don't take up space until evicted.
+ */
+@Component
+public class AvailableTimesResultCache {
+
+    private final Cache<ResultKey, AvailableTimesResponse> results;
+
+    public AvailableTimesResultCache(@Value("${workshops.cache.results-maximum-size}") long maximumSize) {
+        results = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Returns the times of the cached result matching the filter, computing the result of the day-aligned filter
+     * with {@code compute} if it isn't cached yet. Concurrent lookups of the same key compute the result once.
+     *
+     * @param compute computes the result of the given day-aligned filter, its times sorted ascending by instant
+     */
+    public AvailableTimesResponse get(
+            TireChangeTimesFilter filter,
+            Set<WorkshopId> allowedWorkshops,
+            Map<WorkshopId, Long> versions,
+            Supplier<AvailableTimesResponse> compute
+    ) {
+        ResultKey key = ResultKey.of(filter, allowedWorkshops, versions);
+        AvailableTimesResponse result = results.get(key, ignored -> compute.get());
+        return narrowed(result, filter);
+    }
+
+    /**
+     * @return the filter with its range widened to the start of the UTC day of {@code fromDate} and the end of
+     * the UTC day of {@code toDate}
+     */
+    public static TireChangeTimesFilter dayAligned(TireChangeTimesFilter filter) {
+        return new TireChangeTimesFilter(
+                filter.selectedWorkshops(),
+                startOfDay(filter.fromDate()),
+                filter.toDate() == null ? null : endOfDay(filter.toDate()),
+                filter.serviceableVehicles(),
+                filter.weekdays(),
+                filter.timeOfDayFrom(),
+                filter.timeOfDayTo()
+        );
+    }
+
+    private static Instant startOfDay(Instant instant) {
+        return instant.truncatedTo(ChronoUnit.DAYS);
+    }
+
+    private static Instant endOfDay(Instant instant) {
+        Instant startOfDay = startOfDay(instant);
+        return startOfDay.equals(instant) ? instant : startOfDay.plus(1, ChronoUnit.DAYS);
+    }
+
+    private static AvailableTimesResponse narrowed(AvailableTimesResponse result, TireChangeTimesFilter filter) {
+        List<TireChangeTime> times = result.availableTimes();
+        int from = firstIndex(times, 0, times.size(), instant -> instant.isBefore(filter.fromDate()));
+        int to = filter.toDate() == null
+                ? times.size()
+                : firstIndex(times, from, times.size(), instant -> !instant.isAfter(filter.toDate()));
+        if (from == 0 && to == times.size()) {
+            return result;
+        }
+        return new AvailableTimesResponse(times.subList(from, to), result.failedWorkshops(), result.workshopVersions());
+    }
+
+    /**
+     * @return first index in {@code [low, high)} whose instant doesn't satisfy {@code isBefore}, which has to hold
+     * for a prefix of the times
+     */
+    private static int firstIndex(List<TireChangeTime> times, int low, int high, Predicate<Instant> isBefore) {
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (isBefore.test(times.get(mid).getInstant())) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Drops the results computed from the cached times of the given workshop.
+     */
+    public void invalidate(WorkshopId workshopId) {
+        results.asMap().keySet().removeIf(key -> (key.workshopMask() & (1 << workshopId.ordinal())) != 0);
+    }
+
+    public void invalidateAll() {
+        results.invalidateAll();
+    }
+
+    public long size() {
+        return results.estimatedSize();
+    }
+
+    public long hitCount() {
+        return results.stats().hitCount();
+    }
+
+    private record ResultKey(
+            int workshopMask,
+            Instant fromDay,
+            @Nullable Instant toDay,
+            int weekdayMask,
+            @Nullable LocalTime timeOfDayFrom,
+            @Nullable LocalTime timeOfDayTo,
+            Map<WorkshopId, Long> versions
+    ) {
+        private static ResultKey of(TireChangeTimesFilter filter, Set<WorkshopId> allowedWorkshops, Map<WorkshopId, Long> versions) {
+            int workshopMask = 0;
+            for (WorkshopId workshopId : allowedWorkshops) {
+                workshopMask |= 1 << workshopId.ordinal();
+            }
+            int weekdayMask = 0;
+            if (filter.weekdays() != null) {
+                for (DayOfWeek weekday : filter.weekdays()) {
+                    weekdayMask |= 1 << weekday.ordinal();
+                }
+            }
+            return new ResultKey(
+                    workshopMask,
+                    startOfDay(filter.fromDate()),
+                    filter.toDate() == null ? null : endOfDay(filter.toDate()),
+                    weekdayMask,
+                    filter.timeOfDayFrom(),
+                    filter.timeOfDayTo(),
+                    Map.copyOf(versions)
+            );
+        }
+    }
+}
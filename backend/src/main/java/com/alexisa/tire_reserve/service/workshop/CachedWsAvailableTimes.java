@@ -0,0 +1,453 @@
+package com.alexisa.tire_reserve.service.workshop;
+
+import com.alexisa.tire_reserve.exceptions.service.workshops.WsServiceCommunicationException;
+import com.alexisa.tire_reserve.model.domain.EncodedTimes;
+import com.alexisa.tire_reserve.model.domain.TireChangeTime;
+import com.alexisa.tire_reserve.model.domain.enums.WorkshopId;
+import org.springframework.lang.Nullable;
+
+import java.time.*;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cached available times of a single workshop.
+ * <p>
+ * {@code availableTimes} is always sorted ascending by instant and then id, which allows range lookups to be answered
+ * with a binary search instead of scanning every time of the workshop.
+ * <p>
+ * {@code dayCounts} holds the amount of unreserved times per day in the time zone of the workshop starting from
+ * {@code firstDay}, it is decremented through {@link #reserve(TireChangeTime)} when a time gets booked.
+ * <p>
+ * {@code weekdayHourBuckets} holds a bitset of time indexes for every (weekday, hour) pair in the time zone
+ * of the workshop and {@code localMinutesOfDay} the minute of day of each time in that time zone, which allows
+ * weekday and time of day filters to be answered without converting the instants of the times.
+ * <p>
+ * {@code encodedTimes} holds the pre-encoded JSON of every time by its index, see {@link EncodedTimes}. The JSON of
+ * the times which are unchanged since the previous times of the workshop is taken over from them, only new times
+ * are encoded.
+ * <p>
+ * {@code reservedWords} is a bitmask of the indexes of the reserved times, kept up to date by
+ * {@link #reserve(TireChangeTime)}, which is cleared from the looked up ranges word by word.
+ * <p>
+ * {@code version} identifies the state of the cached times, it is taken from a sequence shared by all workshops
+ * when the times are cached and moved forward whenever a cached time gets reserved. The sequence is seeded
+ * from the current time, so versions don't repeat over application restarts.
+ */
+public record CachedWsAvailableTimes(
+        WorkshopId workshopId,
+        @Nullable ZoneId timeZone,
+        AtomicLong version,
+        @Nullable List<TireChangeTime> availableTimes,
+        @Nullable LocalDate firstDay,
+        @Nullable AtomicIntegerArray dayCounts,
+        @Nullable BitSet[] weekdayHourBuckets,
+        @Nullable short[] localMinutesOfDay,
+        @Nullable AtomicLongArray reservedWords,
+        @Nullable byte[][] encodedTimes,
+        @Nullable WsServiceCommunicationException cachePopulationEx
+) {
+    private static final int HOURS_IN_DAY = 24;
+    private static final int MINUTES_IN_HOUR = 60;
+    private static final AtomicLong VERSION_SEQUENCE = new AtomicLong(System.currentTimeMillis() * 1000);
+    private static final Comparator<TireChangeTime> TIME_ORDER = Comparator.comparing(TireChangeTime::getInstant)
+            .thenComparing(TireChangeTime::getId);
+
+    public static CachedWsAvailableTimes fromTimes(WorkshopId workshopId, ZoneId timeZone, List<TireChangeTime> times) {
+        return fromTimes(workshopId, timeZone, times, null, null);
+    }
+
+    public static CachedWsAvailableTimes fromTimes(
+            WorkshopId workshopId,
+            ZoneId timeZone,
+            List<TireChangeTime> times,
+            @Nullable CachedWsAvailableTimes previousTimes
+    ) {
+        return fromTimes(workshopId, timeZone, times, previousTimes, null);
+    }
+
+    /**
+     * @param previousTimes previous times of the workshop, whose JSON is taken over for the times still in them
+     * @param carriedReservations indexes of the previous times whose reservations are carried over to the times
+     *                            still in them, as the fetched times may not reflect the bookings yet
+     */
+    public static CachedWsAvailableTimes fromTimes(
+            WorkshopId workshopId,
+            ZoneId timeZone,
+            List<TireChangeTime> times,
+            @Nullable CachedWsAvailableTimes previousTimes,
+            @Nullable BitSet carriedReservations
+    ) {
+        List<TireChangeTime> sortedTimes = times.stream()
+                .sorted(TIME_ORDER)
+                .toList();
+        int[] previousIndexes = previousIndexes(sortedTimes, previousTimes);
+        if (carriedReservations != null) {
+            for (int i = 0; i < sortedTimes.size(); i++) {
+                if (previousIndexes[i] >= 0 && carriedReservations.get(previousIndexes[i])) {
+                    sortedTimes.get(i).setReservedTrue();
+                }
+            }
+        }
+
+        if (sortedTimes.isEmpty()) {
+            return new CachedWsAvailableTimes(
+                    workshopId, timeZone, nextVersion(), sortedTimes, null, new AtomicIntegerArray(0), createWeekdayHourBuckets(), new short[0],
+                    new AtomicLongArray(0), new byte[0][], null
+            );
+        }
+
+        LocalDate firstDay = LocalDate.ofInstant(sortedTimes.get(0).getInstant(), timeZone);
+        LocalDate lastDay = LocalDate.ofInstant(sortedTimes.get(sortedTimes.size() - 1).getInstant(), timeZone);
+        AtomicIntegerArray dayCounts = new AtomicIntegerArray((int) ChronoUnit.DAYS.between(firstDay, lastDay) + 1);
+        for (TireChangeTime time : sortedTimes) {
+            if (!time.isReservedSet()) {
+                dayCounts.incrementAndGet((int) ChronoUnit.DAYS.between(firstDay, LocalDate.ofInstant(time.getInstant(), timeZone)));
+            }
+        }
+
+        BitSet[] weekdayHourBuckets = createWeekdayHourBuckets();
+        short[] localMinutesOfDay = new short[sortedTimes.size()];
+        AtomicLongArray reservedWords = new AtomicLongArray(wordCount(sortedTimes.size()));
+        for (int i = 0; i < sortedTimes.size(); i++) {
+            TireChangeTime time = sortedTimes.get(i);
+            if (time.isReservedSet()) {
+                setReservedBit(reservedWords, i);
+            }
+            ZonedDateTime localTime = time.getInstant().atZone(timeZone);
+            int weekdayIndex = localTime.getDayOfWeek().getValue() - 1;
+            weekdayHourBuckets[weekdayIndex * HOURS_IN_DAY + localTime.getHour()].set(i);
+            localMinutesOfDay[i] = (short) (localTime.getHour() * MINUTES_IN_HOUR + localTime.getMinute());
+        }
+
+        return new CachedWsAvailableTimes(
+                workshopId, timeZone, nextVersion(), sortedTimes, firstDay, dayCounts, weekdayHourBuckets, localMinutesOfDay,
+                reservedWords, encodeTimes(sortedTimes, previousTimes, previousIndexes), null
+        );
+    }
+
+    /**
+     * Walks the sorted times along the sorted previous times, so the unchanged times are found in one pass
+     *
+     * @return index of each time in the previous times, {@code -1} for new times
+     */
+    private static int[] previousIndexes(List<TireChangeTime> sortedTimes, @Nullable CachedWsAvailableTimes previousTimes) {
+        List<TireChangeTime> previous = previousTimes == null || previousTimes.availableTimes() == null
+                ? List.of()
+                : previousTimes.availableTimes();
+        int[] previousIndexes = new int[sortedTimes.size()];
+        int previousIndex = 0;
+        for (int i = 0; i < sortedTimes.size(); i++) {
+            TireChangeTime time = sortedTimes.get(i);
+            while (previousIndex < previous.size() && TIME_ORDER.compare(previous.get(previousIndex), time) < 0) {
+                previousIndex++;
+            }
+            boolean unchanged = previousIndex < previous.size() && TIME_ORDER.compare(previous.get(previousIndex), time) == 0;
+            previousIndexes[i] = unchanged ? previousIndex : -1;
+        }
+        return previousIndexes;
+    }
+
+    private static byte[][] encodeTimes(
+            List<TireChangeTime> sortedTimes,
+            @Nullable CachedWsAvailableTimes previousTimes,
+            int[] previousIndexes
+    ) {
+        byte[][] previousEncodedTimes = previousTimes == null ? null : previousTimes.encodedTimes();
+        byte[][] encodedTimes = new byte[sortedTimes.size()][];
+        for (int i = 0; i < sortedTimes.size(); i++) {
+            encodedTimes[i] = previousIndexes[i] >= 0 && previousEncodedTimes != null
+                    ? previousEncodedTimes[previousIndexes[i]]
+                    : EncodedTimes.encode(sortedTimes.get(i));
+        }
+        return encodedTimes;
+    }
+
+    private static BitSet[] createWeekdayHourBuckets() {
+        BitSet[] buckets = new BitSet[DayOfWeek.values().length * HOURS_IN_DAY];
+        Arrays.setAll(buckets, i -> new BitSet());
+        return buckets;
+    }
+
+    public static CachedWsAvailableTimes fromException(WorkshopId workshopId, WsServiceCommunicationException ex) {
+        return new CachedWsAvailableTimes(workshopId, null, nextVersion(), null, null, null, null, null, null, null, ex);
+    }
+
+    /**
+     * Marks the given cached time as reserved and keeps the day counts up to date.
+     * @return whether the time got reserved by this call
+     */
+    public synchronized boolean reserve(TireChangeTime cachedTime) {
+        if (!cachedTime.setReservedTrue()) {
+            return false;
+        }
+        int index = indexOf(cachedTime);
+        if (reservedWords != null && index >= 0) {
+            setReservedBit(reservedWords, index);
+        }
+        if (dayCounts != null && firstDay != null && timeZone != null) {
+            dayCounts.decrementAndGet((int) ChronoUnit.DAYS.between(firstDay, LocalDate.ofInstant(cachedTime.getInstant(), timeZone)));
+        }
+        version.set(VERSION_SEQUENCE.incrementAndGet());
+        return true;
+    }
+
+    /**
+     * @return indexes of the reserved times
+     */
+    public BitSet reservedIndexes() {
+        if (reservedWords == null) {
+            return new BitSet();
+        }
+        long[] words = new long[reservedWords.length()];
+        for (int word = 0; word < words.length; word++) {
+            words[word] = reservedWords.get(word);
+        }
+        return BitSet.valueOf(words);
+    }
+
+    private static void setReservedBit(AtomicLongArray reservedWords, int index) {
+        reservedWords.getAndAccumulate(index >>> 6, 1L << (index & 63), (word, bit) -> word | bit);
+    }
+
+    /**
+     * @return pre-encoded JSON of the cached time, {@code null} if it isn't one of the cached times
+     */
+    @Nullable
+    public byte[] findEncodedJson(TireChangeTime time) {
+        int index = indexOf(time);
+        return index < 0 || encodedTimes == null ? null : encodedTimes[index];
+    }
+
+    /**
+     * @return index of the cached time, {@code -1} if it isn't one of the cached times
+     */
+    private int indexOf(TireChangeTime time) {
+        List<TireChangeTime> times = availableTimes == null ? List.of() : availableTimes;
+        for (int i = indexOfFirstNotBefore(time.getInstant()); i < times.size(); i++) {
+            TireChangeTime cachedTime = times.get(i);
+            if (!cachedTime.getInstant().equals(time.getInstant())) {
+                break;
+            }
+            if (cachedTime.equals(time)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Resolves the indexes of the unreserved times within {@code from} and {@code to} (both inclusive). The times are
+     * sorted, so the range is looked up with binary searches and only the reserved words are cleared from it.
+     *
+     * @param to end of the range, unbounded if {@code null}
+     */
+    public BitSet unreservedIndexesInRange(Instant from, @Nullable Instant to) {
+        List<TireChangeTime> times = availableTimes == null ? List.of() : availableTimes;
+        BitSet result = new BitSet(times.size());
+        int fromIndex = indexOfFirstNotBefore(from);
+        int toIndex = to == null ? times.size() : indexOfFirstAfter(to);
+        if (fromIndex >= toIndex) {
+            return result;
+        }
+        result.set(fromIndex, toIndex);
+        if (reservedWords != null) {
+            long[] mask = result.toLongArray();
+            for (int word = fromIndex >>> 6; word < mask.length; word++) {
+                mask[word] &= ~reservedWords.get(word);
+            }
+            return BitSet.valueOf(mask);
+        }
+        return result;
+    }
+
+    private static int wordCount(int length) {
+        return (length + Long.SIZE - 1) >>> 6;
+    }
+
+    public long currentVersion() {
+        return version.get();
+    }
+
+    private static AtomicLong nextVersion() {
+        return new AtomicLong(VERSION_SEQUENCE.incrementAndGet());
+    }
+
+    /**
+     * @return amount of unreserved times on the given local day of the workshop
+     */
+    public int getDayCount(LocalDate day) {
+        if (dayCounts == null || firstDay == null || day.isBefore(firstDay)) {
+            return 0;
+        }
+        long index = ChronoUnit.DAYS.between(firstDay, day);
+        return index < dayCounts.length() ? dayCounts.get((int) index) : 0;
+    }
+
+    /**
+     * @return the last local day of the workshop having times, {@code null} if there are no times
+     */
+    @Nullable
+    public LocalDate lastDay() {
+        if (dayCounts == null || firstDay == null) {
+            return null;
+        }
+        return firstDay.plusDays(dayCounts.length() - 1);
+    }
+
+    /**
+     * Counts the unreserved times within {@code from} and {@code to} (both inclusive) per local day of the workshop.
+     * The days in between the edge days of the range are read from the day counts, the edge days, which may be
+     * partly outside the range, and every day if {@code allowedIndexes} is given are counted from their times.
+     *
+     * @param to end of the range, unbounded if {@code null}
+     * @param allowedIndexes indexes of the times which may be counted, all times if {@code null}
+     * @return amount of times per day, days without any times are left out
+     */
+    public SortedMap<LocalDate, Integer> countsByLocalDay(Instant from, @Nullable Instant to, @Nullable BitSet allowedIndexes) {
+        SortedMap<LocalDate, Integer> result = new TreeMap<>();
+        if (dayCounts == null || firstDay == null || timeZone == null) {
+            return result;
+        }
+        LocalDate fromDay = LocalDate.ofInstant(from, timeZone);
+        LocalDate toDay = to == null ? null : LocalDate.ofInstant(to, timeZone);
+        if (allowedIndexes != null || fromDay.equals(toDay)) {
+            countTimesByLocalDay(result, from, to, allowedIndexes);
+            return result;
+        }
+
+        countTimesByLocalDay(result, from, fromDay.plusDays(1).atStartOfDay(timeZone).toInstant().minusNanos(1), null);
+        LocalDate lastDay = Objects.requireNonNull(lastDay());
+        LocalDate day = fromDay.plusDays(1).isAfter(firstDay) ? fromDay.plusDays(1) : firstDay;
+        for (; !day.isAfter(lastDay) && (toDay == null || day.isBefore(toDay)); day = day.plusDays(1)) {
+            int count = getDayCount(day);
+            if (count > 0) {
+                result.put(day, count);
+            }
+        }
+        if (to != null) {
+            countTimesByLocalDay(result, toDay.atStartOfDay(timeZone).toInstant(), to, null);
+        }
+        return result;
+    }
+
+    private void countTimesByLocalDay(
+            SortedMap<LocalDate, Integer> result,
+            Instant from,
+            @Nullable Instant to,
+            @Nullable BitSet allowedIndexes
+    ) {
+        List<TireChangeTime> times = Objects.requireNonNull(availableTimes);
+        BitSet matching = unreservedIndexesInRange(from, to);
+        if (allowedIndexes != null) {
+            matching.and(allowedIndexes);
+        }
+        for (int i = matching.nextSetBit(0); i >= 0; i = matching.nextSetBit(i + 1)) {
+            result.merge(LocalDate.ofInstant(times.get(i).getInstant(), timeZone), 1, Integer::sum);
+        }
+    }
+
+    /**
+     * Resolves the indexes of the times which are on one of the given local weekdays and within the given local
+     * time of day window, by combining the (weekday, hour) buckets. Only the minutes of the hours at the edges of
+     * the window are checked per time.
+     *
+     * @param weekdays allowed weekdays, all weekdays if {@code null} or empty
+     * @param timeOfDayFrom start of the window (inclusive), start of day if {@code null}
+     * @param timeOfDayTo end of the window (exclusive), end of day if {@code null}
+     */
+    public BitSet indexesMatchingLocalTime(
+            @Nullable Collection<DayOfWeek> weekdays,
+            @Nullable LocalTime timeOfDayFrom,
+            @Nullable LocalTime timeOfDayTo
+    ) {
+        BitSet result = new BitSet();
+        if (weekdayHourBuckets == null || localMinutesOfDay == null) {
+            return result;
+        }
+        Collection<DayOfWeek> allowedWeekdays = weekdays == null || weekdays.isEmpty()
+                ? EnumSet.allOf(DayOfWeek.class)
+                : weekdays;
+        int fromMinute = timeOfDayFrom == null ? 0 : timeOfDayFrom.getHour() * MINUTES_IN_HOUR + timeOfDayFrom.getMinute();
+        int toMinute = timeOfDayTo == null ? HOURS_IN_DAY * MINUTES_IN_HOUR : timeOfDayTo.getHour() * MINUTES_IN_HOUR + timeOfDayTo.getMinute();
+
+        for (int hour = 0; hour < HOURS_IN_DAY; hour++) {
+            int minutesInWindow = 0;
+            for (int minute = hour * MINUTES_IN_HOUR; minute < (hour + 1) * MINUTES_IN_HOUR; minute++) {
+                if (isMinuteInWindow(minute, fromMinute, toMinute)) {
+                    minutesInWindow++;
+                }
+            }
+            if (minutesInWindow == 0) {
+                continue;
+            }
+            boolean fullyInside = minutesInWindow == MINUTES_IN_HOUR;
+
+            for (DayOfWeek weekday : allowedWeekdays) {
+                BitSet bucket = weekdayHourBuckets[(weekday.getValue() - 1) * HOURS_IN_DAY + hour];
+                if (fullyInside) {
+                    result.or(bucket);
+                } else {
+                    for (int i = bucket.nextSetBit(0); i >= 0; i = bucket.nextSetBit(i + 1)) {
+                        if (isMinuteInWindow(localMinutesOfDay[i], fromMinute, toMinute)) {
+                            result.set(i);
+                        }
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    private static boolean isMinuteInWindow(int minute, int fromMinute, int toMinute) {
+        if (fromMinute <= toMinute) {
+            return minute >= fromMinute && minute < toMinute;
+        }
+        return minute >= fromMinute || minute < toMinute;
+    }
+
+    /**
+     * @return index of the first time which is not before {@code instant},
+     * or the amount of times if all of them are before it
+     */
+    public int indexOfFirstNotBefore(Instant instant) {
+        List<TireChangeTime> times = availableTimes == null ? List.of() : availableTimes;
+        int low = 0;
+        int high = times.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (times.get(mid).getInstant().isBefore(instant)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return index of the first time which is after {@code instant},
+     * or the amount of times if none of them are after it
+     */
+    public int indexOfFirstAfter(Instant instant) {
+        List<TireChangeTime> times = availableTimes == null ? List.of() : availableTimes;
+        int low = 0;
+        int high = times.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (times.get(mid).getInstant().isAfter(instant)) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    public static LocalDate toUtcDate(Instant instant) {
+        return LocalDate.ofInstant(instant, ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,131 @@
+package com.alexisa.tire_reserve.service.workshop;
+
+import com.alexisa.tire_reserve.exceptions.service.workshops.WsServiceCommunicationException;
+import com.alexisa.tire_reserve.model.domain.TireChangeTime;
+import com.alexisa.tire_reserve.model.domain.enums.WorkshopId;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.Period;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Fetches a window of days of a workshop as consecutive chunks of {@code chunkSize}, running at most
+ * {@code maxConcurrency} chunk requests of the workshop at a time, including those of concurrent fetches.
+ * <p>
+ * A failed chunk is retried on its own up to {@code chunkRetries} times, so a single failing request doesn't fail
+ * the whole window. The chunks are stitched in order of their days, times returned by two adjacent chunks are
+ * only kept once.
+ */
+@Slf4j
+public class ChunkedWindowFetcher {
+
+    private static final Duration RETRY_BACKOFF = Duration.ofMillis(100);
+
+    private final WorkshopId workshopId;
+    private final Period chunkSize;
+    private final int chunkRetries;
+    private final Semaphore concurrency;
+
+    public ChunkedWindowFetcher(WorkshopId workshopId, Period chunkSize, int maxConcurrency, int chunkRetries) {
+        LocalDate reference = LocalDate.of(2000, 1, 1);
+        if (!reference.plus(chunkSize).isAfter(reference) || maxConcurrency < 1 || chunkRetries < 0) {
+            throw new IllegalArgumentException(String.format(
+                    "Expected a positive chunk size '%s', a positive concurrency '%s' and non-negative retries '%s'",
+                    chunkSize,
+                    maxConcurrency,
+                    chunkRetries
+            ));
+        }
+        this.workshopId = workshopId;
+        this.chunkSize = chunkSize;
+        this.chunkRetries = chunkRetries;
+        this.concurrency = new Semaphore(maxConcurrency);
+    }
+
+    @FunctionalInterface
+    public interface WindowFetch {
+        List<TireChangeTime> fetch(LocalDate from, LocalDate until) throws WsServiceCommunicationException;
+    }
+
+    /**
+     * @throws WsServiceCommunicationException of the first chunk which failed every retry
+     */
+    public List<TireChangeTime> fetch(LocalDate from, LocalDate until, WindowFetch windowFetch) throws WsServiceCommunicationException {
+        List<LocalDate> chunkStarts = new ArrayList<>();
+        for (LocalDate start = from; start.isBefore(until); start = start.plus(chunkSize)) {
+            chunkStarts.add(start);
+        }
+        if (chunkStarts.size() <= 1) {
+            return fetchChunk(from, until, windowFetch);
+        }
+
+        List<Future<List<TireChangeTime>>> chunks = new ArrayList<>(chunkStarts.size());
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            for (int i = 0; i < chunkStarts.size(); i++) {
+                LocalDate start = chunkStarts.get(i);
+                LocalDate end = i + 1 < chunkStarts.size() ? chunkStarts.get(i + 1) : until;
+                chunks.add(executor.submit(() -> fetchChunk(start, end, windowFetch)));
+            }
+
+            Set<TireChangeTime> times = new LinkedHashSet<>();
+            for (Future<List<TireChangeTime>> chunk : chunks) {
+                times.addAll(chunk.get());
+            }
+            return List.copyOf(times);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof WsServiceCommunicationException communicationException) {
+                throw communicationException;
+            }
+            throw new WsServiceCommunicationException("Failed fetching chunk of available times", e.getCause(), workshopId);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WsServiceCommunicationException("Interrupted while fetching available times", e, workshopId);
+        } finally {
+            // Chunks still running after a failure aren't needed anymore
+            chunks.forEach(chunk -> chunk.cancel(true));
+            executor.shutdown();
+        }
+    }
+
+    private List<TireChangeTime> fetchChunk(LocalDate from, LocalDate until, WindowFetch windowFetch) throws WsServiceCommunicationException {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                concurrency.acquire();
+                try {
+                    return windowFetch.fetch(from, until);
+                } finally {
+                    concurrency.release();
+                }
+            } catch (WsServiceCommunicationException e) {
+                if (attempt >= chunkRetries) {
+                    throw e;
+                }
+                log.info("Retrying chunk from {} until {} of workshop '{}' after failed attempt {}", from, until, workshopId, attempt + 1);
+                sleep(RETRY_BACKOFF.multipliedBy(attempt + 1));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new WsServiceCommunicationException("Interrupted while fetching available times", e, workshopId);
+            }
+        }
+    }
+
+    private void sleep(Duration duration) throws WsServiceCommunicationException {
+        try {
+            Thread.sleep(duration);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WsServiceCommunicationException("Interrupted while fetching available times", e, workshopId);
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.alexisa.tire_reserve.service.workshop;
+
+import com.alexisa.tire_reserve.model.domain.enums.WorkshopId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.Period;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Windows of days whose times have been fetched into the cache for each windowed workshop, and when.
+ * <p>
+ * The windows of a workshop are kept as non-overlapping ranges keyed by their first day, a later fetch of an
+ * overlapping window takes over the overlapped days. Days past {@code workshops.fetch.on-demand-horizon} from today
+ * are never fetched on demand.
+ * <p>
+ * Days count as not fetched once they are older than the cache expiry and than the slowest refresh tier of
+ * {@code workshops.refresh.tiers} can leave them, its interval adapted up to {@code workshops.refresh.max-interval}
+ * and stretched by {@code workshops.refresh.jitter}. Days the tiers keep refreshing are then never fetched on demand
+ * in between.
+ */
+@Component
+public class FetchedIntervals {
+
+    private final Period onDemandHorizon;
+    private final Duration maxAge;
+    private final Map<WorkshopId, TreeMap<LocalDate, Interval>> intervals = new EnumMap<>(WorkshopId.class);
+
+    public FetchedIntervals(
+            @Value("${workshops.fetch.on-demand-horizon}") Period onDemandHorizon,
+            @Value("${workshops.cache.expire-after-write}") Duration expireAfterWrite,
+            @Value("${workshops.refresh.tiers}") List<String> tiers,
+            @Value("${workshops.refresh.max-interval}") Duration maxRefreshInterval,
+            @Value("${workshops.refresh.jitter}") double jitter
+    ) {
+        this.onDemandHorizon = onDemandHorizon;
+        Duration maxAge = expireAfterWrite;
+        for (RefreshTier tier : RefreshTier.parse(tiers)) {
+            Duration interval = tier.interval().compareTo(maxRefreshInterval) > 0 ? tier.interval() : maxRefreshInterval;
+            Duration slowestRefresh = Duration.ofMillis((long) (interval.toMillis() * (1 + jitter)));
+            maxAge = slowestRefresh.compareTo(maxAge) > 0 ? slowestRefresh : maxAge;
+        }
+        this.maxAge = maxAge;
+    }
+
+    /**
+     * @return age after which fetched days count as not fetched
+     */
+    public Duration getMaxAge() {
+        return maxAge;
+    }
+
+    /**
+     * Replaces all windows of the workshop with the given one, for fetches which replace all cached times.
+     */
+    public synchronized void reset(WorkshopId workshopId, LocalDate from, LocalDate until, Instant fetchedAt) {
+        TreeMap<LocalDate, Interval> wsIntervals = new TreeMap<>();
+        if (from.isBefore(until)) {
+            wsIntervals.put(from, new Interval(until, fetchedAt));
+        }
+        intervals.put(workshopId, wsIntervals);
+    }
+
+    public synchronized void clear(WorkshopId workshopId) {
+        intervals.remove(workshopId);
+    }
+
+    public synchronized void record(WorkshopId workshopId, LocalDate from, LocalDate until, Instant fetchedAt) {
+        if (!from.isBefore(until)) {
+            return;
+        }
+        TreeMap<LocalDate, Interval> wsIntervals = intervals.computeIfAbsent(workshopId, key -> new TreeMap<>());
+
+        // Trim the window starting before the new one, keeping its part after the new one as well
+        Map.Entry<LocalDate, Interval> before = wsIntervals.lowerEntry(from);
+        if (before != null && before.getValue().until().isAfter(from)) {
+            wsIntervals.put(before.getKey(), new Interval(from, before.getValue().fetchedAt()));
+            if (before.getValue().until().isAfter(until)) {
+                wsIntervals.put(until, before.getValue());
+            }
+        }
+        // Drop the windows starting within the new one, keeping the part of the last one after the new one
+        NavigableMap<LocalDate, Interval> overlapped = wsIntervals.subMap(from, true, until, false);
+        Map.Entry<LocalDate, Interval> last = overlapped.lastEntry();
+        if (last != null && last.getValue().until().isAfter(until)) {
+            wsIntervals.put(until, last.getValue());
+        }
+        overlapped.clear();
+        wsIntervals.put(from, new Interval(until, fetchedAt));
+    }
+
+    /**
+     * @return ranges of days from {@code from} until {@code until} (exclusive) which haven't been fetched or not
+     * recently enough, limited to the days from today until the on demand horizon
+     */
+    public synchronized List<DayRange> uncovered(WorkshopId workshopId, LocalDate from, LocalDate until, Instant now) {
+        LocalDate today = LocalDate.ofInstant(now, ZoneOffset.UTC);
+        LocalDate start = from.isBefore(today) ? today : from;
+        LocalDate horizon = today.plus(onDemandHorizon);
+        LocalDate end = until.isAfter(horizon) ? horizon : until;
+        List<DayRange> result = new ArrayList<>();
+        if (!start.isBefore(end)) {
+            return result;
+        }
+
+        Instant staleBefore = now.minus(maxAge);
+        TreeMap<LocalDate, Interval> wsIntervals = intervals.getOrDefault(workshopId, new TreeMap<>());
+        LocalDate day = start;
+        LocalDate firstKey = wsIntervals.floorKey(start);
+        for (Map.Entry<LocalDate, Interval> entry : wsIntervals.tailMap(firstKey == null ? start : firstKey, true).entrySet()) {
+            if (!entry.getKey().isBefore(end)) {
+                break;
+            }
+            Interval interval = entry.getValue();
+            if (!interval.until().isAfter(day) || interval.fetchedAt().isBefore(staleBefore)) {
+                continue;
+            }
+            if (entry.getKey().isAfter(day)) {
+                addRange(result, day, entry.getKey());
+            }
+            day = interval.until();
+        }
+        if (day.isBefore(end)) {
+            addRange(result, day, end);
+        }
+        return result;
+    }
+
+    /**
+     * Adds the range, extending the last range instead if they are adjacent
+     */
+    private static void addRange(List<DayRange> ranges, LocalDate from, LocalDate until) {
+        if (!ranges.isEmpty() && ranges.get(ranges.size() - 1).until().equals(from)) {
+            ranges.set(ranges.size() - 1, new DayRange(ranges.get(ranges.size() - 1).from(), until));
+        } else {
+            ranges.add(new DayRange(from, until));
+        }
+    }
+
+    /**
+     * @return parts of the ranges which aren't within any of the removed ranges
+     */
+    public static List<DayRange> subtract(List<DayRange> ranges, Collection<DayRange> removed) {
+        List<DayRange> result = new ArrayList<>();
+        for (DayRange range : ranges) {
+            List<DayRange> parts = List.of(range);
+            for (DayRange removedRange : removed) {
+                List<DayRange> remaining = new ArrayList<>();
+                for (DayRange part : parts) {
+                    if (!part.overlaps(removedRange.from(), removedRange.until())) {
+                        remaining.add(part);
+                        continue;
+                    }
+                    if (part.from().isBefore(removedRange.from())) {
+                        remaining.add(new DayRange(part.from(), removedRange.from()));
+                    }
+                    if (part.until().isAfter(removedRange.until())) {
+                        remaining.add(new DayRange(removedRange.until(), part.until()));
+                    }
+                }
+                parts = remaining;
+            }
+            result.addAll(parts);
+        }
+        return result;
+    }
+
+    /**
+     * Days from {@code from} until {@code until} (exclusive)
+     */
+    public record DayRange(LocalDate from, LocalDate until) {
+        public boolean overlaps(LocalDate otherFrom, LocalDate otherUntil) {
+            return from.isBefore(otherUntil) && otherFrom.isBefore(until);
+        }
+    }
+
+    private record Interval(LocalDate until, Instant fetchedAt) { }
+}
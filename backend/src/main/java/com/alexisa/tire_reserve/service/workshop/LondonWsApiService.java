@@ -13,6 +13,7 @@ import com.fasterxml.jackson.dataformat.xml.annotation.JacksonXmlRootElement;
 import jakarta.validation.constraints.NotBlank;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.http.HttpStatusCode;
 import org.springframework.http.MediaType;
@@ -20,6 +21,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestClient;
 
 import java.time.LocalDate;
+import java.time.Period;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
@@ -31,20 +33,28 @@ import java.util.Objects;
         value = "workshops.map.london.workshop-id",
         havingValue = "LONDON"
 )
-public class LondonWsApiService implements WsApiServiceI {
+public class LondonWsApiService implements WindowedWsApiServiceI {
 
     private final WorkshopsProperties.WorkshopProperties wsProps;
     private final RestClient restClient;
     private final WorkshopId workshopId;
+    private final ChunkedWindowFetcher windowFetcher;
+    private final Period horizon;
 
     public LondonWsApiService(
             WorkshopsProperties workshopsProperties,
             @Autowired
-            RestClient.Builder autoConfRestClientBuilder
+            RestClient.Builder autoConfRestClientBuilder,
+            @Value("${workshops.fetch.horizon}") Period horizon,
+            @Value("${workshops.fetch.chunk-size}") Period chunkSize,
+            @Value("${workshops.fetch.max-concurrency}") int maxConcurrency,
+            @Value("${workshops.fetch.chunk-retries}") int chunkRetries
     ) {
         this.wsProps = workshopsProperties.map().get("london");
         this.workshopId = wsProps.workshopId();
         restClient = createRestClient(autoConfRestClientBuilder.clone(), wsProps.apiPath());
+        windowFetcher = new ChunkedWindowFetcher(workshopId, chunkSize, maxConcurrency, chunkRetries);
+        this.horizon = horizon;
     }
 
     @Override
@@ -54,14 +64,34 @@ public class LondonWsApiService implements WsApiServiceI {
 
     private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
 
+    @Override
+    public Period getPrefetchHorizon() {
+        return horizon;
+    }
+
+    /**
+     * Fetches the days from today until {@code workshops.fetch.horizon}, the days past it are fetched on demand.
+     */
     @Override
     public List<TireChangeTime> getAllAvailableTireChangeTimes() throws WsServiceCommunicationException {
 
         LocalDate currentDateInUTC = LocalDate.now(ZoneId.of("UTC"));
-        LocalDate nextYear = currentDateInUTC.plusYears(1);
 
-        String fromDate = currentDateInUTC.format(DATE_TIME_FORMATTER);
-        String toDate = nextYear.format(DATE_TIME_FORMATTER);
+        return getAvailableTireChangeTimes(currentDateInUTC, currentDateInUTC.plus(horizon));
+    }
+
+    /**
+     * The window is requested in chunks of {@code workshops.fetch.chunk-size}, see {@link ChunkedWindowFetcher}.
+     */
+    @Override
+    public List<TireChangeTime> getAvailableTireChangeTimes(LocalDate from, LocalDate until) throws WsServiceCommunicationException {
+        return windowFetcher.fetch(from, until, this::fetchAvailableTireChangeTimes);
+    }
+
+    private List<TireChangeTime> fetchAvailableTireChangeTimes(LocalDate from, LocalDate until) throws WsServiceCommunicationException {
+
+        String fromDate = from.format(DATE_TIME_FORMATTER);
+        String toDate = until.format(DATE_TIME_FORMATTER);
 
         LondonAvailableTimesResponse apiResponse;
         try {
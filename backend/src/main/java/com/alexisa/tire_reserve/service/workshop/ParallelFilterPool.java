@@ -0,0 +1,101 @@
+package com.alexisa.tire_reserve.service.workshop;
+
+import jakarta.annotation.PreDestroy;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+/**
+ * Dedicated fork-join pool for filtering large ranges of times, kept apart from the common pool which the cache
+ * population uses for fetching the times of the workshops.
+ * <p>
+ * Ranges of at least {@code 2 * threshold} times are split into contiguous chunks of about {@code threshold} times,
+ * which are filtered in parallel and concatenated in their order, smaller ranges are filtered on the calling thread.
+ */
+@Slf4j
+@Component
+public class ParallelFilterPool {
+
+    /**
+     * Upper bound of chunks per worker, so ranges much larger than the threshold aren't split into tiny tasks
+     */
+    private static final int MAX_CHUNKS_PER_WORKER = 4;
+
+    private final ForkJoinPool pool;
+    @Getter
+    private final int threshold;
+
+    /**
+     * @param parallelism amount of worker threads, the amount of available processors if not positive
+     */
+    public ParallelFilterPool(
+            @Value("${workshops.filter.parallel-threshold}") int threshold,
+            @Value("${workshops.filter.parallelism}") int parallelism
+    ) {
+        if (threshold < 1) {
+            throw new IllegalArgumentException("Parallel filter threshold must be positive, got: " + threshold);
+        }
+        this.threshold = threshold;
+        this.pool = new ForkJoinPool(
+                parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors(),
+                forkJoinPool -> {
+                    ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+                    thread.setName("times-filter-" + thread.getPoolIndex());
+                    return thread;
+                },
+                null,
+                false
+        );
+        log.info("Configured parallel filtering of at least {} times on {} threads", 2 * threshold, pool.getParallelism());
+    }
+
+    /**
+     * Runs {@code query} over the range {@code [from, to)}, in parallel chunks if the range is large enough.
+     *
+     * @return results of the chunks concatenated in the order of the range
+     */
+    public <T> List<T> queryRange(int from, int to, RangeQuery<T> query) {
+        int size = to - from;
+        int parallelism = pool.getParallelism();
+        if (size < 2 * threshold || parallelism < 2) {
+            return query.query(from, to);
+        }
+
+        int chunkCount = Math.min((size + threshold - 1) / threshold, parallelism * MAX_CHUNKS_PER_WORKER);
+        int chunkSize = (size + chunkCount - 1) / chunkCount;
+        List<ForkJoinTask<List<T>>> chunks = new ArrayList<>(chunkCount);
+        for (int chunkFrom = from; chunkFrom < to; chunkFrom += chunkSize) {
+            int chunkStart = chunkFrom;
+            int chunkEnd = Math.min(chunkFrom + chunkSize, to);
+            chunks.add(pool.submit(() -> query.query(chunkStart, chunkEnd)));
+        }
+
+        List<List<T>> chunkResults = new ArrayList<>(chunks.size());
+        int resultSize = 0;
+        for (ForkJoinTask<List<T>> chunk : chunks) {
+            List<T> chunkResult = chunk.join();
+            chunkResults.add(chunkResult);
+            resultSize += chunkResult.size();
+        }
+        List<T> result = new ArrayList<>(resultSize);
+        chunkResults.forEach(result::addAll);
+        return result;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    @FunctionalInterface
+    public interface RangeQuery<T> {
+        List<T> query(int from, int to);
+    }
+}
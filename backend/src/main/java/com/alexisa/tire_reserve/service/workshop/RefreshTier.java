@@ -0,0 +1,60 @@
+package com.alexisa.tire_reserve.service.workshop;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.Period;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Window of days refreshed on its own interval, reaching from the horizon of the previous tier (or today) until
+ * {@code horizon} from today.
+ */
+public record RefreshTier(Period from, Period horizon, Duration interval) {
+
+    public LocalDate fromDay(LocalDate today) {
+        return today.plus(from);
+    }
+
+    public LocalDate untilDay(LocalDate today) {
+        return today.plus(horizon);
+    }
+
+    /**
+     * Parses tiers written as {@code <horizon>:<interval>}, e.g. {@code P14D:PT5M}, in ascending order of horizons.
+     * Blank values are skipped.
+     */
+    public static List<RefreshTier> parse(List<String> values) {
+        List<RefreshTier> tiers = new ArrayList<>();
+        Period from = Period.ZERO;
+        LocalDate reference = LocalDate.of(2000, 1, 1);
+        for (String value : values) {
+            if (value.isBlank()) {
+                continue;
+            }
+            String[] parts = value.trim().split(":");
+            Period horizon;
+            Duration interval;
+            try {
+                if (parts.length != 2) {
+                    throw new DateTimeParseException("Expected '<horizon>:<interval>'", value, 0);
+                }
+                horizon = Period.parse(parts[0]);
+                interval = Duration.parse(parts[1]);
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException(String.format("Invalid refresh tier '%s'", value), e);
+            }
+            if (!reference.plus(horizon).isAfter(reference.plus(from)) || interval.isZero() || interval.isNegative()) {
+                throw new IllegalArgumentException(String.format(
+                        "Expected refresh tier '%s' to have a positive interval and a horizon after '%s'",
+                        value,
+                        from
+                ));
+            }
+            tiers.add(new RefreshTier(from, horizon, interval));
+            from = horizon;
+        }
+        return tiers;
+    }
+}
@@ -0,0 +1,176 @@
+package com.alexisa.tire_reserve.service.workshop;
+
+import com.alexisa.tire_reserve.config.WorkshopsProperties;
+import com.alexisa.tire_reserve.model.domain.TireChangeTimesFilter;
+import com.alexisa.tire_reserve.model.domain.enums.WorkshopId;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fetches the days of searches which are outside the {@link FetchedIntervals} of the windowed workshops, through
+ * {@link WorkshopTimesRefresher#refreshWorkshopWindow}. Concurrent searches covering the same days share a single
+ * fetch of them.
+ */
+@Component
+@Slf4j
+public class UncoveredWindowLoader {
+
+    private final WorkshopTimesRefresher refresher;
+    private final FetchedIntervals fetchedIntervals;
+    /**
+     * Guards the pending on demand fetches of a workshop, only held while starting or finishing them
+     */
+    private final Map<WorkshopId, ReentrantLock> onDemandLocks = new EnumMap<>(WorkshopId.class);
+    /**
+     * Ranges of days being fetched on demand for each workshop, so concurrent searches fetch them once
+     */
+    private final Map<WorkshopId, Map<FetchedIntervals.DayRange, CompletableFuture<Void>>> pendingFetches = new EnumMap<>(WorkshopId.class);
+    private final ExecutorService onDemandExecutor;
+    private final Duration onDemandWait;
+
+    public UncoveredWindowLoader(
+            WorkshopTimesRefresher refresher,
+            FetchedIntervals fetchedIntervals,
+            @Value("${workshops.fetch.on-demand-wait}") Duration onDemandWait
+    ) {
+        this.refresher = refresher;
+        this.fetchedIntervals = fetchedIntervals;
+        this.onDemandWait = onDemandWait;
+        for (WorkshopsProperties.WorkshopProperties wsProps : refresher.getWorkshops()) {
+            onDemandLocks.put(wsProps.workshopId(), new ReentrantLock());
+            pendingFetches.put(wsProps.workshopId(), new HashMap<>());
+        }
+        onDemandExecutor = Executors.newFixedThreadPool(
+                Math.max(1, refresher.getWorkshops().size()),
+                Thread.ofPlatform().name("workshop-on-demand-", 0).daemon().factory()
+        );
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        onDemandExecutor.shutdownNow();
+    }
+
+    /**
+     * Fetches the days of the filter which haven't been fetched, or not recently enough, from the windowed
+     * workshops, so searches past the prefetch horizon are answered as well. Only the uncovered ranges of days are
+     * fetched, see {@link FetchedIntervals}, on the on demand executor rather than the request thread. The search
+     * waits up to {@code workshops.fetch.on-demand-wait} for them and is otherwise answered from the already fetched
+     * days. Open ended searches are answered from the already fetched days.
+     */
+    public void load(TireChangeTimesFilter filter, Set<WorkshopId> allowedWorkshops) {
+        Map<WorkshopId, List<FetchedIntervals.DayRange>> uncoveredWindows = getUncoveredWindows(filter, allowedWorkshops);
+        if (uncoveredWindows.isEmpty()) {
+            return;
+        }
+        LocalDate from = CachedWsAvailableTimes.toUtcDate(filter.fromDate());
+        LocalDate until = CachedWsAvailableTimes.toUtcDate(Objects.requireNonNull(filter.toDate())).plusDays(1);
+        List<CompletableFuture<Void>> fetches = new ArrayList<>();
+        for (Map.Entry<WorkshopId, List<FetchedIntervals.DayRange>> entry : uncoveredWindows.entrySet()) {
+            WorkshopId workshopId = entry.getKey();
+            List<FetchedIntervals.DayRange> uncovered = entry.getValue();
+            ReentrantLock lock = onDemandLocks.get(workshopId);
+            lock.lock();
+            try {
+                Map<FetchedIntervals.DayRange, CompletableFuture<Void>> pending = pendingFetches.get(workshopId);
+                // Finished fetches may not have removed themselves yet, a failed one is retried rather than joined
+                pending.values().removeIf(CompletableFuture::isDone);
+                pending.forEach((range, fetch) -> {
+                    if (range.overlaps(from, until)) {
+                        fetches.add(fetch);
+                    }
+                });
+                for (FetchedIntervals.DayRange range : FetchedIntervals.subtract(uncovered, pending.keySet())) {
+                    CompletableFuture<Void> fetch = CompletableFuture.runAsync(() -> fetchUncoveredWindow(workshopId, range), onDemandExecutor);
+                    pending.put(range, fetch);
+                    fetch.whenComplete((result, e) -> removePendingFetch(workshopId, range, fetch));
+                    fetches.add(fetch);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        if (fetches.isEmpty()) {
+            return;
+        }
+
+        try {
+            CompletableFuture.allOf(fetches.toArray(CompletableFuture[]::new)).get(onDemandWait.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            log.info("Uncovered days from {} until {} not fetched within {}, answering from the fetched days", from, until, onDemandWait);
+        } catch (ExecutionException e) {
+            log.warn("Fetching uncovered days from {} until {} failed", from, until, e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Checks whether the filter covers days which haven't been fetched from the windowed workshops it allows, without
+     * fetching them.
+     */
+    public boolean hasUncoveredDays(TireChangeTimesFilter filter, Set<WorkshopId> allowedWorkshops) {
+        return !getUncoveredWindows(filter, allowedWorkshops).isEmpty();
+    }
+
+    /**
+     * @return ranges of days of the filter which haven't been fetched, or not recently enough, per windowed workshop,
+     * workshops without such ranges are left out
+     */
+    private Map<WorkshopId, List<FetchedIntervals.DayRange>> getUncoveredWindows(
+            TireChangeTimesFilter filter,
+            Set<WorkshopId> allowedWorkshops
+    ) {
+        Map<WorkshopId, List<FetchedIntervals.DayRange>> uncoveredWindows = new EnumMap<>(WorkshopId.class);
+        if (filter.toDate() == null) {
+            return uncoveredWindows;
+        }
+        LocalDate from = CachedWsAvailableTimes.toUtcDate(filter.fromDate());
+        LocalDate until = CachedWsAvailableTimes.toUtcDate(filter.toDate()).plusDays(1);
+        Instant now = Instant.now();
+        for (WorkshopId workshopId : allowedWorkshops) {
+            if (!refresher.isWindowed(workshopId)) {
+                continue;
+            }
+            List<FetchedIntervals.DayRange> uncovered = fetchedIntervals.uncovered(workshopId, from, until, now);
+            if (!uncovered.isEmpty()) {
+                uncoveredWindows.put(workshopId, uncovered);
+            }
+        }
+        return uncoveredWindows;
+    }
+
+    private void fetchUncoveredWindow(WorkshopId workshopId, FetchedIntervals.DayRange range) {
+        // Loading the cache records the prefetched days, which then aren't fetched again
+        refresher.loadAllTimes();
+        for (FetchedIntervals.DayRange uncovered : fetchedIntervals.uncovered(workshopId, range.from(), range.until(), Instant.now())) {
+            log.info("Fetching uncovered days from {} until {} of workshop '{}'", uncovered.from(), uncovered.until(), workshopId);
+            refresher.refreshWorkshopWindow(workshopId, uncovered.from(), uncovered.until());
+        }
+    }
+
+    private void removePendingFetch(WorkshopId workshopId, FetchedIntervals.DayRange range, CompletableFuture<Void> fetch) {
+        ReentrantLock lock = onDemandLocks.get(workshopId);
+        lock.lock();
+        try {
+            // A later fetch of the range may have taken its place already
+            pendingFetches.get(workshopId).remove(range, fetch);
+        } finally {
+            lock.unlock();
+        }
+    }
+}
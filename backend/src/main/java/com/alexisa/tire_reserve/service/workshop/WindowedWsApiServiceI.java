@@ -0,0 +1,25 @@
+package com.alexisa.tire_reserve.service.workshop;
+
+import com.alexisa.tire_reserve.exceptions.service.workshops.WsServiceCommunicationException;
+import com.alexisa.tire_reserve.model.domain.TireChangeTime;
+
+import java.time.LocalDate;
+import java.time.Period;
+import java.util.List;
+
+/**
+ * Workshop api which can be asked for the available times of a window of days, so parts of the horizon can be
+ * refreshed without fetching all of it.
+ */
+public interface WindowedWsApiServiceI extends WsApiServiceI {
+    /**
+     * @return span of days from today fetched by {@link #getAllAvailableTireChangeTimes()}
+     */
+    Period getPrefetchHorizon();
+
+    /**
+     * @return available times from the start of {@code from} until the start of {@code until} in UTC
+     */
+    List<TireChangeTime> getAvailableTireChangeTimes(LocalDate from, LocalDate until)
+            throws WsServiceCommunicationException;
+}
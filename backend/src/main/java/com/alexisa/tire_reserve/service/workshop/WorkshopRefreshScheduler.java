@@ -0,0 +1,169 @@
+package com.alexisa.tire_reserve.service.workshop;
+
+import com.alexisa.tire_reserve.config.WorkshopsProperties;
+import com.alexisa.tire_reserve.model.domain.enums.WorkshopId;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalDouble;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Refreshes the cached times of every workshop on its own schedule, independent of reads, so reads are never the
+ * ones waiting for or triggering a refresh.
+ * <p>
+ * Each workshop starts from {@code workshops.cache.refresh-after-write} and its interval is adapted after every
+ * refresh by an {@link AdaptiveRefreshInterval}, so workshops whose times change a lot are refreshed more often than
+ * stable ones. Every delay is drawn anew from the interval spread by {@code workshops.refresh.jitter} in both
+ * directions, so the workshops of a node and the nodes of a deployment don't refresh in lockstep.
+ * Each scheduled refresh has a thread of its own, a slow workshop doesn't hold back the refreshes of the others.
+ * <p>
+ * Workshops which can be fetched by windows of days are refreshed by the tiers of {@code workshops.refresh.tiers}
+ * instead, each tier starting from its own interval. The near days, which get booked the most, are then refreshed
+ * often without fetching the whole horizon every time.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "workshops.refresh.scheduled", havingValue = "true")
+public class WorkshopRefreshScheduler {
+
+    private final WorkshopTimesRefresher refresher;
+    private final List<RefreshTask> tasks = new ArrayList<>();
+    private final double jitter;
+    private final ScheduledExecutorService executor;
+
+    public WorkshopRefreshScheduler(
+            WorkshopTimesRefresher refresher,
+            @Value("${workshops.cache.refresh-after-write}") Duration interval,
+            @Value("${workshops.refresh.min-interval}") Duration minInterval,
+            @Value("${workshops.refresh.max-interval}") Duration maxInterval,
+            @Value("${workshops.refresh.target-churn}") double targetChurn,
+            @Value("${workshops.refresh.jitter}") double jitter,
+            @Value("${workshops.refresh.tiers}") List<String> tiers,
+            @Nullable MeterRegistry meterRegistry
+    ) {
+        if (jitter < 0 || jitter >= 1) {
+            throw new IllegalArgumentException(String.format(
+                    "Expected property 'workshops.refresh.jitter' value '%s' to be at least 0 and less than 1",
+                    jitter
+            ));
+        }
+        this.refresher = refresher;
+        this.jitter = jitter;
+        List<RefreshTier> refreshTiers = RefreshTier.parse(tiers);
+        for (WorkshopsProperties.WorkshopProperties wsProps : refresher.getWorkshops()) {
+            WorkshopId workshopId = wsProps.workshopId();
+            if (refreshTiers.isEmpty() || !refresher.isWindowed(workshopId)) {
+                tasks.add(new RefreshTask(workshopId, null, new AdaptiveRefreshInterval(interval, minInterval, maxInterval, targetChurn)));
+                continue;
+            }
+            for (RefreshTier tier : refreshTiers) {
+                // The bounds are widened to the interval of the tier, so the tiers keep their intended cadence
+                tasks.add(new RefreshTask(workshopId, tier, new AdaptiveRefreshInterval(
+                        tier.interval(),
+                        minInterval.compareTo(tier.interval()) < 0 ? minInterval : tier.interval(),
+                        maxInterval.compareTo(tier.interval()) > 0 ? maxInterval : tier.interval(),
+                        targetChurn
+                )));
+            }
+        }
+        if (meterRegistry != null) {
+            for (RefreshTask task : tasks) {
+                Gauge.builder("tire_reserve.refresh.interval.seconds", task.interval(), value -> value.current().toSeconds())
+                        .tag("workshop", task.workshopId().name())
+                        .tag("horizon", task.tier() == null ? "all" : task.tier().horizon().toString())
+                        .register(meterRegistry);
+            }
+        }
+        executor = Executors.newScheduledThreadPool(
+                Math.max(1, tasks.size()),
+                Thread.ofPlatform().name("workshop-refresh-", 0).daemon().factory()
+        );
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        tasks.forEach(task -> scheduleRefresh(task, task.interval().current()));
+        log.info("Scheduled refreshes {} with a jitter of {}", getIntervals(), jitter);
+    }
+
+    /**
+     * @return current refresh interval of each workshop, or of each tier of the workshops refreshed by tiers
+     */
+    public Map<String, Duration> getIntervals() {
+        Map<String, Duration> result = new LinkedHashMap<>();
+        tasks.forEach(task -> result.put(task.toString(), task.interval().current()));
+        return result;
+    }
+
+    private void scheduleRefresh(RefreshTask task, Duration interval) {
+        if (executor.isShutdown()) {
+            return;
+        }
+        executor.schedule(() -> refresh(task), nextDelay(interval, jitter).toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private void refresh(RefreshTask task) {
+        Duration nextInterval = task.interval().current();
+        try {
+            OptionalDouble churn;
+            if (task.tier() == null) {
+                churn = refresher.refreshWorkshop(task.workshopId());
+            } else {
+                LocalDate today = LocalDate.now(ZoneOffset.UTC);
+                churn = refresher.refreshWorkshopWindow(
+                        task.workshopId(), task.tier().fromDay(today), task.tier().untilDay(today)
+                );
+            }
+            if (churn.isPresent()) {
+                nextInterval = task.interval().update(churn.getAsDouble());
+                log.debug("Refresh {} changed by {}, refreshing again in '{}'", task, churn.getAsDouble(), nextInterval);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Scheduled refresh {} failed", task, e);
+        } finally {
+            scheduleRefresh(task, nextInterval);
+        }
+    }
+
+    /**
+     * @return delay drawn uniformly from {@code interval} ± {@code jitter} of it
+     */
+    static Duration nextDelay(Duration interval, double jitter) {
+        double factor = jitter == 0 ? 1 : ThreadLocalRandom.current().nextDouble(1 - jitter, 1 + jitter);
+        return Duration.ofMillis((long) (interval.toMillis() * factor));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * @param tier window of days refreshed by the task, {@code null} if the whole workshop is refreshed
+     */
+    private record RefreshTask(WorkshopId workshopId, @Nullable RefreshTier tier, AdaptiveRefreshInterval interval) {
+        @Override
+        public String toString() {
+            return tier == null ? workshopId.name() : workshopId.name() + " " + tier.from() + ".." + tier.horizon();
+        }
+    }
+}
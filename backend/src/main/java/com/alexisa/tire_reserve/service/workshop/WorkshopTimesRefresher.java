@@ -0,0 +1,592 @@
+package com.alexisa.tire_reserve.service.workshop;
+
+import com.alexisa.tire_reserve.config.WorkshopsProperties;
+import com.alexisa.tire_reserve.exceptions.service.workshops.WsServiceCommunicationException;
+import com.alexisa.tire_reserve.model.domain.TireChangeTime;
+import com.alexisa.tire_reserve.model.domain.EncodedTimes;
+import com.alexisa.tire_reserve.model.domain.enums.ServiceableVehicle;
+import com.alexisa.tire_reserve.model.domain.enums.WorkshopId;
+import com.alexisa.tire_reserve.service.events.bus.SlotEventBus;
+import com.alexisa.tire_reserve.service.events.bus.SlotEventType;
+import com.alexisa.tire_reserve.service.workshop.snapshot.AvailableTimesSnapshot;
+import com.alexisa.tire_reserve.service.workshop.snapshot.AvailableTimesSnapshotStore;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.collections4.CollectionUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.time.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiFunction;
+import java.util.stream.Stream;
+
+/**
+ * Loads the available times of the configured workshops into the cache and keeps them up to date, by reloading all
+ * workshops or refreshing a single workshop or a window of its days. Every refresh records the change from the
+ * previously fetched times of the workshop in an {@link AvailableTimesChangeLog}, publishes it on the
+ * {@link SlotEventBus} and persists the fetched times as a snapshot.
+ * <p>
+ * Bookings are applied to the cached times here as well, as they have to be coordinated with the refreshes which
+ * replace the times they are made on.
+ */
+@Component
+@Slf4j
+public class WorkshopTimesRefresher {
+
+    private final Map<WorkshopId, WsApiServiceI> workshopServices;
+    private final Map<WorkshopId, List<ServiceableVehicle>> workshopServiceableVehiclesMap;
+    private final List<WorkshopsProperties.WorkshopProperties> workshops;
+    private final LoadingCache<String, List<CachedWsAvailableTimes>> cache;
+    private static final String cacheKey = "availableTimes";
+    private static final int MAX_CHANGES_PER_WORKSHOP = 64;
+    private final AvailableTimesChangeLog changeLog = new AvailableTimesChangeLog(MAX_CHANGES_PER_WORKSHOP);
+    /**
+     * Last successfully cached times of each workshop, used as the base for computing the changes of the next ones
+     */
+    private final Map<WorkshopId, CachedWsAvailableTimes> lastSuccessfulTimes = new ConcurrentHashMap<>();
+    /**
+     * Held through each refresh of a workshop, from fetching its times until they are swapped into the cache, so the
+     * refreshes of a workshop are applied one at a time in the order they were started
+     */
+    private final Map<WorkshopId, ReentrantLock> refreshLocks = new EnumMap<>(WorkshopId.class);
+    private final SlotEventBus slotEventBus;
+    private final AvailableTimesResultCache resultCache;
+    private final AvailableTimesSnapshotStore snapshotStore;
+    private final FetchedIntervals fetchedIntervals;
+    /**
+     * Fetch times of the restored snapshots which are served until the first refresh after start up
+     */
+    private final Map<WorkshopId, Instant> restoredSnapshotsFetchedAt = new ConcurrentHashMap<>();
+    @Nullable
+    private volatile AvailableTimesIndex index;
+
+    public WorkshopTimesRefresher(
+            WorkshopsProperties workshopsProperties,
+            @Autowired Caffeine<Object, Object> caffeine,
+            @Autowired(required = false) LondonWsApiService londonWsApiService,
+            @Autowired(required = false) ManchesterWsApiService manchesterWsApiService,
+            SlotEventBus slotEventBus,
+            AvailableTimesResultCache resultCache,
+            AvailableTimesSnapshotStore snapshotStore,
+            FetchedIntervals fetchedIntervals
+    ) {
+        this.slotEventBus = slotEventBus;
+        this.resultCache = resultCache;
+        this.snapshotStore = snapshotStore;
+        this.fetchedIntervals = fetchedIntervals;
+        workshopServices = new HashMap<>();
+        workshopServiceableVehiclesMap = new HashMap<>();
+
+        for (WorkshopsProperties.WorkshopProperties wsProps : workshopsProperties.map().values()) {
+            if (workshopServices.containsKey(wsProps.workshopId())){
+                throw new IllegalStateException("Multiple workshops configured for workshop: " + wsProps.workshopId().getName());
+            }
+
+            WsApiServiceI correspondingApi = switch (wsProps.workshopId()){
+                case MANCHESTER -> manchesterWsApiService;
+                case LONDON -> londonWsApiService;
+            };
+            if (correspondingApi != null) {
+                workshopServices.put(wsProps.workshopId(), correspondingApi);
+                workshopServiceableVehiclesMap.put(wsProps.workshopId(), wsProps.serviceableVehicles());
+                refreshLocks.put(wsProps.workshopId(), new ReentrantLock());
+            }
+        }
+        log.info("Configured workshop services: {}", workshopServices.keySet());
+        workshops = workshopsProperties.map().values().stream()
+                .filter(wsProps -> workshopServices.containsKey(wsProps.workshopId()))
+                .sorted(Comparator.comparing(WorkshopsProperties.WorkshopProperties::workshopId))
+                .toList();
+
+        cache = caffeine
+                .build(key -> updateAvailableTimesCache());
+    }
+
+    /**
+     * @return configured workshops ordered by id, the same list instance is returned on every call
+     */
+    public List<WorkshopsProperties.WorkshopProperties> getWorkshops() {
+        return workshops;
+    }
+
+    /**
+     * @return API service of the workshop, {@code null} if the workshop is not configured
+     */
+    @Nullable
+    public WsApiServiceI getWorkshopService(WorkshopId workshopId) {
+        return workshopServices.get(workshopId);
+    }
+
+    /**
+     * Serves the persisted snapshots of the last successful refreshes, if there is one for every configured workshop,
+     * while the first refresh runs in the background. Without complete snapshots the times are loaded on first use.
+     */
+    @EventListener(ApplicationStartedEvent.class)
+    public void restoreSnapshots() {
+        if (!snapshotStore.isEnabled() || workshops.isEmpty()) {
+            return;
+        }
+        List<CachedWsAvailableTimes> allTimes = new ArrayList<>(workshops.size());
+        Map<WorkshopId, Instant> fetchedAt = new EnumMap<>(WorkshopId.class);
+        for (WorkshopsProperties.WorkshopProperties wsProps : workshops) {
+            Optional<AvailableTimesSnapshot> snapshot = snapshotStore.load(wsProps.workshopId());
+            if (snapshot.isEmpty()) {
+                log.info("No usable snapshot of workshop '{}', loading available times on first use", wsProps.workshopId());
+                return;
+            }
+            CachedWsAvailableTimes wsTimes = CachedWsAvailableTimes.fromTimes(
+                    wsProps.workshopId(), wsProps.timeZone(), snapshot.get().times()
+            );
+            // Keeping the version of the snapshot keeps the ETags handed out before the restart valid
+            wsTimes.version().set(snapshot.get().version());
+            allTimes.add(wsTimes);
+            fetchedAt.put(wsProps.workshopId(), snapshot.get().fetchedAt());
+        }
+
+        for (CachedWsAvailableTimes wsTimes : allTimes) {
+            lastSuccessfulTimes.put(wsTimes.workshopId(), wsTimes);
+            recordPrefetch(wsTimes, fetchedAt.get(wsTimes.workshopId()));
+        }
+        restoredSnapshotsFetchedAt.putAll(fetchedAt);
+        cache.put(cacheKey, List.copyOf(allTimes));
+        log.info("Restored available times snapshots fetched at {}, refreshing in the background", fetchedAt);
+        cache.refresh(cacheKey);
+    }
+
+    /**
+     * Populates the cache if it isn't populated yet, fetching the times of all workshops in parallel.
+     *
+     * @return cached times of all workshops, including the ones which couldn't be fetched
+     */
+    public List<CachedWsAvailableTimes> loadAllTimes() {
+        return cache.get(cacheKey);
+    }
+
+    /**
+     * @return cached times of all workshops, loaded again if the times of any workshop couldn't be fetched
+     */
+    public List<CachedWsAvailableTimes> getAllTimes() {
+        List<CachedWsAvailableTimes> availableTimes = cache.get(cacheKey);
+
+        if (availableTimes.stream().anyMatch(wsTimes -> wsTimes.cachePopulationEx() != null)){
+            cache.invalidate(cacheKey);
+            return cache.get(cacheKey);
+        }
+
+        return availableTimes;
+    }
+
+    /**
+     * @return index of the given cache population, built on first use if the population was not indexed yet
+     */
+    public AvailableTimesIndex getIndex(List<CachedWsAvailableTimes> allTimes) {
+        AvailableTimesIndex currentIndex = index;
+        if (currentIndex == null || !currentIndex.isBuiltFrom(allTimes)) {
+            currentIndex = AvailableTimesIndex.build(allTimes, workshopServiceableVehiclesMap);
+            index = currentIndex;
+        }
+        return currentIndex;
+    }
+
+    /**
+     * @return time since the oldest restored snapshot which is still served was fetched, {@code null} once the
+     * times have been refreshed after start up
+     */
+    @Nullable
+    public Duration getRestoredSnapshotAge() {
+        return restoredSnapshotsFetchedAt.values().stream()
+                .min(Comparator.naturalOrder())
+                .map(fetchedAt -> Duration.between(fetchedAt, Instant.now()))
+                .orElse(null);
+    }
+
+    /**
+     * @return pre-encoded JSON of the times of the last successfully cached times of each workshop
+     */
+    public EncodedTimes getEncodedTimes() {
+        return time -> {
+            CachedWsAvailableTimes wsTimes = lastSuccessfulTimes.get(time.getWorkshopId());
+            return wsTimes == null ? null : wsTimes.findEncodedJson(time);
+        };
+    }
+
+    /**
+     * @see AvailableTimesChangeLog#changesBetween
+     */
+    public Optional<AvailableTimesChangeLog.AvailableTimesChange> changesBetween(WorkshopId workshopId, long fromVersion, long toVersion) {
+        return changeLog.changesBetween(workshopId, fromVersion, toVersion);
+    }
+
+    private List<CachedWsAvailableTimes> updateAvailableTimesCache(){
+        log.info("Repopulating available tire change times cache");
+
+        List<CachedWsAvailableTimes> allTimes = workshopServices.values()
+                .parallelStream()
+                .map(this::getAvailableTimesFromService)
+                .toList();
+        index = AvailableTimesIndex.build(allTimes, workshopServiceableVehiclesMap);
+        // Every workshop gets a new version, so none of the cached results can be served anymore
+        resultCache.invalidateAll();
+
+        Instant fetchedAt = Instant.now();
+        for (CachedWsAvailableTimes wsTimes : allTimes) {
+            onTimesFetched(wsTimes);
+            recordPrefetch(wsTimes, fetchedAt);
+        }
+        // The refreshed times replace the restored snapshots as a whole, even where a workshop failed
+        restoredSnapshotsFetchedAt.clear();
+        return allTimes;
+    }
+
+    /**
+     * Fetches the times of a single workshop and swaps them into the cached times, the other workshops keep their
+     * cached times and versions. A failed fetch keeps the cached times and version of the workshop as well, so reads
+     * don't have to wait for the workshop to be loaded again. If the cache isn't populated, the times of all
+     * workshops are loaded instead.
+     *
+     * @return share of the times which changed compared to the previously fetched times of the workshop, empty if
+     * the refresh failed or there were no previous times to compare to
+     */
+    public OptionalDouble refreshWorkshop(WorkshopId workshopId) {
+        WsApiServiceI service = workshopServices.get(workshopId);
+        if (service == null) {
+            throw new IllegalArgumentException(String.format("Workshop '%s' is not configured", workshopId));
+        }
+        if (cache.getIfPresent(cacheKey) == null) {
+            cache.get(cacheKey);
+            return OptionalDouble.empty();
+        }
+
+        ReentrantLock lock = refreshLocks.get(workshopId);
+        lock.lock();
+        try {
+            CachedWsAvailableTimes fetchBase = lastSuccessfulTimes.get(workshopId);
+            BitSet reservedBeforeFetch = fetchBase == null ? new BitSet() : fetchBase.reservedIndexes();
+            Instant fetchedAt = Instant.now();
+            List<TireChangeTime> times;
+            try {
+                times = service.getAllAvailableTireChangeTimes();
+                log.info("Received {} available times from workshop with id '{}'", times.size(), workshopId);
+            } catch (WsServiceCommunicationException e) {
+                log.warn("Failed refreshing cache of workshop '{}", workshopId, e);
+                slotEventBus.publish(SlotEventType.REFRESH_FAILED, workshopId, 0, null);
+                return OptionalDouble.empty();
+            }
+
+            ZoneId timeZone = service.getWorkshopProperties().timeZone();
+            WorkshopTimesSwap swap = swapWorkshopTimes(workshopId, fetchBase, reservedBeforeFetch, (previousTimes, carriedReservations) ->
+                    CachedWsAvailableTimes.fromTimes(workshopId, timeZone, times, previousTimes, carriedReservations)
+            );
+            if (swap == null) {
+                // Expired while fetching, the next read loads all workshops
+                return OptionalDouble.empty();
+            }
+            recordPrefetch(swap.wsTimes(), fetchedAt);
+            AvailableTimesChangeLog.AvailableTimesChange change = swap.change();
+            if (change == null) {
+                return OptionalDouble.empty();
+            }
+            int timesCount = Objects.requireNonNull(swap.wsTimes().availableTimes()).size();
+            // Compared to the larger of the previous and the fetched times
+            timesCount = Math.max(timesCount, timesCount - change.addedTimes().size() + change.removedTimes().size());
+            return OptionalDouble.of((double) (change.addedTimes().size() + change.removedTimes().size()) / Math.max(1, timesCount));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return whether parts of the horizon of the workshop can be refreshed through {@link #refreshWorkshopWindow}
+     */
+    public boolean isWindowed(WorkshopId workshopId) {
+        return workshopServices.get(workshopId) instanceof WindowedWsApiServiceI;
+    }
+
+    /**
+     * Fetches the times of the workshop from the start of {@code from} until the start of {@code until} in UTC and
+     * merges them into the cached times of the workshop, replacing the cached times of that window. Cached times
+     * before today are dropped. A failed fetch keeps the cached times, as the rest of the horizon is unaffected.
+     * If the workshop has no cached times to merge into, the whole workshop is refreshed instead.
+     *
+     * @return share of the times of the window which changed, empty if the refresh failed or there were no
+     * previous times to compare to
+     */
+    public OptionalDouble refreshWorkshopWindow(WorkshopId workshopId, LocalDate from, LocalDate until) {
+        if (!(workshopServices.get(workshopId) instanceof WindowedWsApiServiceI service)) {
+            throw new IllegalArgumentException(String.format("Workshop '%s' can't be refreshed by windows", workshopId));
+        }
+        CachedWsAvailableTimes currentWsTimes = getCachedWsTimes(workshopId);
+        if (currentWsTimes == null || currentWsTimes.availableTimes() == null) {
+            return refreshWorkshop(workshopId);
+        }
+
+        ReentrantLock lock = refreshLocks.get(workshopId);
+        lock.lock();
+        try {
+            CachedWsAvailableTimes fetchBase = lastSuccessfulTimes.get(workshopId);
+            BitSet reservedBeforeFetch = fetchBase == null ? new BitSet() : fetchBase.reservedIndexes();
+            Instant fetchedAt = Instant.now();
+            List<TireChangeTime> windowTimes;
+            try {
+                windowTimes = service.getAvailableTireChangeTimes(from, until);
+                log.debug("Received {} available times from {} until {} from workshop with id '{}'", windowTimes.size(), from, until, workshopId);
+            } catch (WsServiceCommunicationException e) {
+                log.warn("Failed refreshing times from {} until {} of workshop '{}'", from, until, workshopId, e);
+                slotEventBus.publish(SlotEventType.REFRESH_FAILED, workshopId, 0, null);
+                return OptionalDouble.empty();
+            }
+
+            Instant windowStart = from.atStartOfDay(ZoneOffset.UTC).toInstant();
+            Instant windowEnd = until.atStartOfDay(ZoneOffset.UTC).toInstant();
+            Instant today = LocalDate.now(ZoneOffset.UTC).atStartOfDay(ZoneOffset.UTC).toInstant();
+            ZoneId timeZone = service.getWorkshopProperties().timeZone();
+            WorkshopTimesSwap swap = swapWorkshopTimes(workshopId, fetchBase, reservedBeforeFetch, (previousTimes, carriedReservations) -> {
+                if (previousTimes == null || previousTimes.availableTimes() == null) {
+                    return null;
+                }
+                List<TireChangeTime> times = new ArrayList<>(previousTimes.availableTimes().size() + windowTimes.size());
+                for (TireChangeTime time : previousTimes.availableTimes()) {
+                    if (!time.getInstant().isBefore(today) && !isWithin(time, windowStart, windowEnd)) {
+                        times.add(time);
+                    }
+                }
+                for (TireChangeTime time : windowTimes) {
+                    if (isWithin(time, windowStart, windowEnd)) {
+                        times.add(time);
+                    }
+                }
+                return CachedWsAvailableTimes.fromTimes(workshopId, timeZone, times, previousTimes, carriedReservations);
+            });
+            if (swap == null || swap.previousTimes() == null) {
+                // Expired or failed while fetching, the next refresh replaces the times as a whole
+                return OptionalDouble.empty();
+            }
+            fetchedIntervals.record(workshopId, from, until, fetchedAt);
+            AvailableTimesChangeLog.AvailableTimesChange change = swap.change();
+            if (change == null) {
+                return OptionalDouble.empty();
+            }
+            long changedTimes = Stream.concat(change.addedTimes().stream(), change.removedTimes().stream())
+                    .filter(time -> isWithin(time, windowStart, windowEnd))
+                    .count();
+            long windowTimesCount = Math.max(
+                    windowTimes.stream().filter(time -> isWithin(time, windowStart, windowEnd)).count(),
+                    Objects.requireNonNull(swap.previousTimes().availableTimes()).stream()
+                            .filter(time -> isWithin(time, windowStart, windowEnd))
+                            .count()
+            );
+            return OptionalDouble.of((double) changedTimes / Math.max(1, windowTimesCount));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Builds the new times of the workshop from its last fetched times and swaps them into the cache. The last fetched
+     * times are held meanwhile, so the bookings made on them since {@code reservedBeforeFetch} are carried over to the
+     * new times and later bookings are made on the new times, see {@link #reserveBookedTime}. The change from
+     * the last fetched times is recorded within the swap as well, so the recorded changes and the saved snapshots
+     * follow the order of the swaps.
+     *
+     * @param fetchBase last fetched times when the fetch was started, {@code null} if there were none
+     * @param reservedBeforeFetch indexes of the times of {@code fetchBase} which were reserved when the fetch was started
+     * @param build builds the new times from the last fetched times and the indexes of their reservations to carry
+     *              over, {@code null} keeps the cached times
+     * @return the swap, {@code null} if the cache isn't populated or the cached times were kept
+     */
+    @Nullable
+    private WorkshopTimesSwap swapWorkshopTimes(
+            WorkshopId workshopId,
+            @Nullable CachedWsAvailableTimes fetchBase,
+            BitSet reservedBeforeFetch,
+            BiFunction<CachedWsAvailableTimes, BitSet, CachedWsAvailableTimes> build
+    ) {
+        WorkshopTimesSwap[] swap = new WorkshopTimesSwap[1];
+        List<CachedWsAvailableTimes> allTimes = cache.asMap().computeIfPresent(cacheKey, (key, cachedTimes) -> cachedTimes.stream()
+                .map(cachedWsTimes -> {
+                    if (cachedWsTimes.workshopId() != workshopId) {
+                        return cachedWsTimes;
+                    }
+                    CachedWsAvailableTimes previousTimes = lastSuccessfulTimes.get(workshopId);
+                    // Without previous times there are no bookings to carry over, the cached times are held instead
+                    synchronized (Objects.requireNonNullElse(previousTimes, cachedWsTimes)) {
+                        BitSet carriedReservations = previousTimes == null ? new BitSet() : previousTimes.reservedIndexes();
+                        if (previousTimes == fetchBase) {
+                            carriedReservations.andNot(reservedBeforeFetch);
+                        }
+                        CachedWsAvailableTimes wsTimes = build.apply(previousTimes, carriedReservations);
+                        if (wsTimes == null) {
+                            return cachedWsTimes;
+                        }
+                        swap[0] = new WorkshopTimesSwap(previousTimes, wsTimes, onTimesFetched(wsTimes));
+                        return wsTimes;
+                    }
+                })
+                .toList());
+        if (allTimes == null || swap[0] == null) {
+            return null;
+        }
+        index = AvailableTimesIndex.build(allTimes, workshopServiceableVehiclesMap);
+        resultCache.invalidate(workshopId);
+        restoredSnapshotsFetchedAt.remove(workshopId);
+        return swap[0];
+    }
+
+    /**
+     * @param previousTimes last fetched times of the workshop before the swap, {@code null} if there were none
+     * @param wsTimes times swapped into the cache
+     * @param change change from the previous times, {@code null} if there were none
+     */
+    private record WorkshopTimesSwap(
+            @Nullable CachedWsAvailableTimes previousTimes,
+            CachedWsAvailableTimes wsTimes,
+            @Nullable AvailableTimesChangeLog.AvailableTimesChange change
+    ) { }
+
+    @Nullable
+    private CachedWsAvailableTimes getCachedWsTimes(WorkshopId workshopId) {
+        List<CachedWsAvailableTimes> cachedTimes = cache.getIfPresent(cacheKey);
+        return cachedTimes == null ? null : cachedTimes.stream()
+                .filter(wsTimes -> wsTimes.workshopId() == workshopId)
+                .findFirst()
+                .orElse(null);
+    }
+
+    /**
+     * Records the days fetched by a fetch of all times of a windowed workshop, which replaces its fetched windows
+     */
+    private void recordPrefetch(CachedWsAvailableTimes wsTimes, Instant fetchedAt) {
+        if (!(workshopServices.get(wsTimes.workshopId()) instanceof WindowedWsApiServiceI service)) {
+            return;
+        }
+        if (wsTimes.availableTimes() == null) {
+            fetchedIntervals.clear(wsTimes.workshopId());
+            return;
+        }
+        LocalDate today = LocalDate.ofInstant(fetchedAt, ZoneOffset.UTC);
+        fetchedIntervals.reset(wsTimes.workshopId(), today, today.plus(service.getPrefetchHorizon()), fetchedAt);
+    }
+
+    private static boolean isWithin(TireChangeTime time, Instant from, Instant until) {
+        return !time.getInstant().isBefore(from) && time.getInstant().isBefore(until);
+    }
+
+    /**
+     * Synchronized, as the times of a full reload aren't swapped in through {@link #swapWorkshopTimes}.
+     *
+     * @return change from the previously fetched times of the workshop, {@code null} if the fetch failed or there
+     * are no previous times
+     */
+    @Nullable
+    private synchronized AvailableTimesChangeLog.AvailableTimesChange onTimesFetched(CachedWsAvailableTimes wsTimes) {
+        if (wsTimes.availableTimes() == null) {
+            slotEventBus.publish(SlotEventType.REFRESH_FAILED, wsTimes.workshopId(), 0, null);
+            return null;
+        }
+        snapshotStore.save(wsTimes.workshopId(), wsTimes.currentVersion(), Instant.now(), wsTimes.availableTimes());
+        CachedWsAvailableTimes previousTimes = lastSuccessfulTimes.put(wsTimes.workshopId(), wsTimes);
+        if (previousTimes == null) {
+            return null;
+        }
+        AvailableTimesChangeLog.AvailableTimesChange change = AvailableTimesChangeLog.diff(previousTimes, wsTimes);
+        recordChange(change);
+        return change;
+    }
+
+    private CachedWsAvailableTimes getAvailableTimesFromService(WsApiServiceI service) {
+        WorkshopId workshopId = service.getWorkshopProperties().workshopId();
+        List<TireChangeTime> times;
+        try {
+            times = service.getAllAvailableTireChangeTimes();
+            log.info("Received {} available times from workshop with id '{}'", times.size(), workshopId);
+        } catch (WsServiceCommunicationException e) {
+            log.warn("Failed refreshing cache of workshop '{}", workshopId, e);
+            return CachedWsAvailableTimes.fromException(workshopId, e);
+        }
+        return CachedWsAvailableTimes.fromTimes(
+                workshopId, service.getWorkshopProperties().timeZone(), times, lastSuccessfulTimes.get(workshopId)
+        );
+    }
+
+    /**
+     * Reserves the booked time in the last fetched times of the workshop, which the cache serves. Times which were
+     * swapped out while waiting for them aren't served anymore, the booking is made on the swapped in times instead.
+     */
+    public void reserveBookedTime(TireChangeTime bookedTime) {
+        // Loads the times if they aren't cached
+        getAllTimes();
+        CachedWsAvailableTimes wsTimes = lastSuccessfulTimes.get(bookedTime.getWorkshopId());
+        while (wsTimes != null) {
+            AvailableTimesChangeLog.AvailableTimesChange change;
+            synchronized (wsTimes) {
+                CachedWsAvailableTimes currentWsTimes = lastSuccessfulTimes.get(bookedTime.getWorkshopId());
+                if (currentWsTimes != wsTimes) {
+                    wsTimes = currentWsTimes;
+                    continue;
+                }
+                change = reserveCachedTime(wsTimes, bookedTime);
+            }
+            // Published after releasing the times, so bookings of the workshop don't wait for the consumers
+            if (change != null) {
+                publishChange(change);
+            }
+            return;
+        }
+    }
+
+    /**
+     * Called holding the times
+     *
+     * @return change of the reservation, {@code null} if the time isn't cached or was already reserved
+     */
+    @Nullable
+    private AvailableTimesChangeLog.AvailableTimesChange reserveCachedTime(CachedWsAvailableTimes wsTimes, TireChangeTime bookedTime) {
+        List<TireChangeTime> times = wsTimes.availableTimes();
+        if (CollectionUtils.isEmpty(times)) {
+            return null;
+        }
+        TireChangeTime cachedTime = times.stream()
+                .filter(bookedTime::equals)
+                .findFirst()
+                .orElse(null);
+        long previousVersion = wsTimes.currentVersion();
+        if (cachedTime == null || !wsTimes.reserve(cachedTime)) {
+            return null;
+        }
+        AvailableTimesChangeLog.AvailableTimesChange change = new AvailableTimesChangeLog.AvailableTimesChange(
+                wsTimes.workshopId(),
+                previousVersion,
+                wsTimes.currentVersion(),
+                List.of(),
+                List.of(cachedTime)
+        );
+        changeLog.record(change);
+        resultCache.invalidate(change.workshopId());
+        return change;
+    }
+
+    private void recordChange(AvailableTimesChangeLog.AvailableTimesChange change) {
+        changeLog.record(change);
+        resultCache.invalidate(change.workshopId());
+        publishChange(change);
+    }
+
+    private void publishChange(AvailableTimesChangeLog.AvailableTimesChange change) {
+        if (change.addedTimes().isEmpty() && change.removedTimes().isEmpty()) {
+            return;
+        }
+        for (TireChangeTime removedTime : change.removedTimes()) {
+            slotEventBus.publish(SlotEventType.TIME_REMOVED, change.workshopId(), change.toVersion(), removedTime);
+        }
+        for (TireChangeTime addedTime : change.addedTimes()) {
+            slotEventBus.publish(SlotEventType.TIME_ADDED, change.workshopId(), change.toVersion(), addedTime);
+        }
+    }
+}
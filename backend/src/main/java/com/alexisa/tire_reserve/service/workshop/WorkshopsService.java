@@ -4,69 +4,321 @@ import com.alexisa.tire_reserve.config.WorkshopsProperties;
 import com.alexisa.tire_reserve.exceptions.service.workshops.WsServiceCommunicationException;
 import com.alexisa.tire_reserve.exceptions.service.workshops.response.WsServiceResponseException;
 import com.alexisa.tire_reserve.model.domain.TireChangeTime;
+import com.alexisa.tire_reserve.model.domain.AvailableDaysResponse;
+import com.alexisa.tire_reserve.model.domain.EncodedTimes;
+import com.alexisa.tire_reserve.model.domain.AvailableTimesCursor;
+import com.alexisa.tire_reserve.model.domain.AvailableTimesExport;
+import com.alexisa.tire_reserve.model.domain.AvailableTimesDelta;
 import com.alexisa.tire_reserve.model.domain.AvailableTimesResponse;
 import com.alexisa.tire_reserve.model.domain.BookTimeRequest;
 import com.alexisa.tire_reserve.model.domain.TireChangeTimesFilter;
 import com.alexisa.tire_reserve.model.domain.enums.ServiceableVehicle;
 import com.alexisa.tire_reserve.model.domain.enums.WorkshopId;
-import com.github.benmanes.caffeine.cache.Caffeine;
-import com.github.benmanes.caffeine.cache.LoadingCache;
-import lombok.extern.slf4j.Slf4j;
+import com.alexisa.tire_reserve.service.events.bus.SlotEventBus;
+import com.alexisa.tire_reserve.service.events.bus.SlotEventType;
 import org.apache.commons.collections4.CollectionUtils;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
 
-import java.time.Instant;
+import java.time.*;
 import java.util.*;
 import java.util.stream.Stream;
 
+/**
+ * Answers the queries of the available times from the times cached by the {@link WorkshopTimesRefresher}, fetching
+ * the days of a query which aren't cached through the {@link UncoveredWindowLoader} first, and books times.
+ */
 @Service
-@Slf4j
 public class WorkshopsService {
 
-    private final Map<WorkshopId, WsApiServiceI> workshopServices;
-    private final Map<WorkshopId, List<ServiceableVehicle>> workshopServiceableVehiclesMap;
-    private final LoadingCache<String, List<CachedWsAvailableTimes>> cache;
-    private static final String cacheKey = "availableTimes";
+    /**
+     * Workshops serving each vehicle, so vehicle selections are resolved with set operations on the enum bitmasks
+     */
+    private final Map<ServiceableVehicle, Set<WorkshopId>> vehicleWorkshops = new EnumMap<>(ServiceableVehicle.class);
+    public static final int MAX_QUERY_LIMIT = 1000;
+    public static final int MAX_BATCH_FILTERS = 20;
+    private final WorkshopTimesRefresher refresher;
+    private final UncoveredWindowLoader uncoveredWindowLoader;
+    private final SlotEventBus slotEventBus;
+    private final AvailableTimesResultCache resultCache;
+    private final ParallelFilterPool filterPool;
 
     public WorkshopsService(
-            WorkshopsProperties workshopsProperties,
-            @Autowired Caffeine<Object, Object> caffeine,
-            @Autowired(required = false) LondonWsApiService londonWsApiService,
-            @Autowired(required = false) ManchesterWsApiService manchesterWsApiService
+            WorkshopTimesRefresher refresher,
+            UncoveredWindowLoader uncoveredWindowLoader,
+            SlotEventBus slotEventBus,
+            AvailableTimesResultCache resultCache,
+            ParallelFilterPool filterPool
     ) {
-        workshopServices = new HashMap<>();
-        workshopServiceableVehiclesMap = new HashMap<>();
+        this.refresher = refresher;
+        this.uncoveredWindowLoader = uncoveredWindowLoader;
+        this.slotEventBus = slotEventBus;
+        this.resultCache = resultCache;
+        this.filterPool = filterPool;
+        for (WorkshopsProperties.WorkshopProperties wsProps : refresher.getWorkshops()) {
+            wsProps.serviceableVehicles().forEach(vehicle ->
+                    vehicleWorkshops.computeIfAbsent(vehicle, key -> EnumSet.noneOf(WorkshopId.class)).add(wsProps.workshopId())
+            );
+        }
+    }
+
+    /**
+     * Populates the cache if it isn't populated yet, fetching the times of all workshops in parallel.
+     *
+     * @return workshops whose times couldn't be fetched
+     */
+    public List<WorkshopId> prefetchAvailableTimes() {
+        return getAllFailedServiceIds(refresher.loadAllTimes());
+    }
+
+    /**
+     * @see WorkshopTimesRefresher#getRestoredSnapshotAge
+     */
+    @Nullable
+    public Duration getRestoredSnapshotAge() {
+        return refresher.getRestoredSnapshotAge();
+    }
+
+    /**
+     * @see WorkshopTimesRefresher#getEncodedTimes
+     */
+    public EncodedTimes getEncodedTimes() {
+        return refresher.getEncodedTimes();
+    }
+
+    /**
+     * @return configured workshops ordered by id, the same list instance is returned on every call
+     */
+    public List<WorkshopsProperties.WorkshopProperties> getWorkshops(){
+        return refresher.getWorkshops();
+    }
+
+    /**
+     * Returns the unreserved times matching the filter, sorted ascending by instant.
+     * <p>
+     * Results are cached in {@link AvailableTimesResultCache} for the versions of the cached times they were
+     * computed from, so repeated searches are answered without filtering and sorting the times again.
+     */
+    public AvailableTimesResponse getAvailableTireChangeTimes(TireChangeTimesFilter filter) {
+        Set<WorkshopId> allowedWorkshops = resolveFilter(filter);
+
+        List<CachedWsAvailableTimes> allTimes = refresher.getAllTimes();
+        Map<WorkshopId, Long> versions = getVersions(allTimes, allowedWorkshops);
+
+        return resultCache.get(filter, allowedWorkshops, versions, () -> computeAvailableTireChangeTimes(
+                AvailableTimesResultCache.dayAligned(filter),
+                allowedWorkshops,
+                allTimes,
+                versions
+        ));
+    }
+
+    private AvailableTimesResponse computeAvailableTireChangeTimes(
+            TireChangeTimesFilter filter,
+            Set<WorkshopId> allowedWorkshops,
+            List<CachedWsAvailableTimes> allTimes,
+            Map<WorkshopId, Long> versions
+    ) {
+        List<WorkshopId> failedServiceIds = getAllFailedServiceIds(allTimes).stream()
+                .filter(allowedWorkshops::contains)
+                .toList();
+
+        return new AvailableTimesResponse(refresher.getIndex(allTimes).query(filter, allowedWorkshops, filterPool), failedServiceIds, versions);
+    }
+
+    /**
+     * Evaluates several filters against a single read of the cached times, so the responses are consistent with
+     * each other. Each workshop is scanned once over the union of the ranges of the filters allowing it, checking
+     * every time against each of those filters.
+     *
+     * @return responses in the order of the filters
+     */
+    public List<AvailableTimesResponse> getAvailableTireChangeTimesBatch(List<TireChangeTimesFilter> filters) {
+        if (filters.isEmpty() || filters.size() > MAX_BATCH_FILTERS) {
+            throw new IllegalArgumentException(String.format(
+                    "Expected the amount of filters '%s' to be between 1 and %s",
+                    filters.size(),
+                    MAX_BATCH_FILTERS
+            ));
+        }
+        List<Set<WorkshopId>> allowedWorkshops = filters.stream()
+                .map(this::resolveFilter)
+                .toList();
+
+        List<CachedWsAvailableTimes> allTimes = refresher.getAllTimes();
+        List<WorkshopId> failedServiceIds = getAllFailedServiceIds(allTimes);
 
-        for (WorkshopsProperties.WorkshopProperties wsProps : workshopsProperties.map().values()) {
-            if (workshopServices.containsKey(wsProps.workshopId())){
-                throw new IllegalStateException("Multiple workshops configured for workshop: " + wsProps.workshopId().getName());
+        List<List<TireChangeTime>> results = new ArrayList<>(filters.size());
+        for (int f = 0; f < filters.size(); f++) {
+            results.add(new ArrayList<>());
+        }
+
+        int[] starts = new int[filters.size()];
+        int[] ends = new int[filters.size()];
+        BitSet[] matchingIndexes = new BitSet[filters.size()];
+        for (CachedWsAvailableTimes wsTimes : allTimes) {
+            List<TireChangeTime> times = wsTimes.availableTimes();
+            if (times == null) {
+                continue;
             }
 
-            WsApiServiceI correspondingApi = switch (wsProps.workshopId()){
-                case MANCHESTER -> manchesterWsApiService;
-                case LONDON -> londonWsApiService;
-            };
-            if (correspondingApi != null) {
-                workshopServices.put(wsProps.workshopId(), correspondingApi);
-                workshopServiceableVehiclesMap.put(wsProps.workshopId(), wsProps.serviceableVehicles());
+            int scanStart = times.size();
+            int scanEnd = 0;
+            for (int f = 0; f < filters.size(); f++) {
+                TireChangeTimesFilter filter = filters.get(f);
+                if (!allowedWorkshops.get(f).contains(wsTimes.workshopId())) {
+                    starts[f] = 0;
+                    ends[f] = 0;
+                    continue;
+                }
+                starts[f] = wsTimes.indexOfFirstNotBefore(filter.fromDate());
+                ends[f] = filter.toDate() == null ? times.size() : wsTimes.indexOfFirstAfter(filter.toDate());
+                matchingIndexes[f] = localTimeMatchingIndexes(wsTimes, filter);
+                scanStart = Math.min(scanStart, starts[f]);
+                scanEnd = Math.max(scanEnd, ends[f]);
+            }
+
+            for (int i = scanStart; i < scanEnd; i++) {
+                TireChangeTime time = times.get(i);
+                if (time.isReservedSet()) {
+                    continue;
+                }
+                for (int f = 0; f < filters.size(); f++) {
+                    if (i >= starts[f] && i < ends[f] && (matchingIndexes[f] == null || matchingIndexes[f].get(i))) {
+                        results.get(f).add(time);
+                    }
+                }
             }
         }
-        log.info("Configured workshop services: {}", workshopServices.keySet());
 
-        cache = caffeine
-                .build(key -> updateAvailableTimesCache());
+        List<AvailableTimesResponse> responses = new ArrayList<>(filters.size());
+        for (int f = 0; f < filters.size(); f++) {
+            Set<WorkshopId> filterWorkshops = allowedWorkshops.get(f);
+            responses.add(new AvailableTimesResponse(
+                    results.get(f),
+                    failedServiceIds.stream().filter(filterWorkshops::contains).toList(),
+                    getVersions(allTimes, filterWorkshops)
+            ));
+        }
+        return responses;
     }
 
-    public List<WorkshopsProperties.WorkshopProperties> getWorkshops(){
-        return workshopServices.values().stream()
-                .map(WsApiServiceI::getWorkshopProperties)
+    private Stream<TireChangeTime> filterTimes(CachedWsAvailableTimes wsTimes, TireChangeTimesFilter filter) {
+        List<TireChangeTime> times = Objects.requireNonNull(wsTimes.availableTimes());
+        BitSet matchingIndexes = wsTimes.unreservedIndexesInRange(filter.fromDate(), filter.toDate());
+        BitSet localTimeIndexes = localTimeMatchingIndexes(wsTimes, filter);
+        if (localTimeIndexes != null) {
+            matchingIndexes.and(localTimeIndexes);
+        }
+        return matchingIndexes.stream().mapToObj(times::get);
+    }
+
+    /**
+     * Returns the changes of the available times matching the filter since the given versions of the workshops.
+     * The changes are resolved from the history of changes between the versions of the cached times, workshops
+     * whose known version is missing or too old are reset by returning all of their matching times.
+     */
+    public AvailableTimesDelta getAvailableTimesDelta(TireChangeTimesFilter filter, Map<WorkshopId, Long> knownVersions) {
+        Set<WorkshopId> allowedWorkshops = resolveFilter(filter);
+
+        List<CachedWsAvailableTimes> allTimes = refresher.getAllTimes();
+        List<WorkshopId> failedServiceIds = getAllFailedServiceIds(allTimes).stream()
+                .filter(allowedWorkshops::contains)
                 .toList();
+        Map<WorkshopId, Long> versions = getVersions(allTimes, allowedWorkshops);
+
+        List<TireChangeTime> addedTimes = new ArrayList<>();
+        List<TireChangeTime> removedTimes = new ArrayList<>();
+        List<WorkshopId> resetWorkshops = new ArrayList<>();
+        for (CachedWsAvailableTimes wsTimes : allTimes) {
+            if (!allowedWorkshops.contains(wsTimes.workshopId()) || wsTimes.availableTimes() == null) {
+                continue;
+            }
+            long currentVersion = versions.get(wsTimes.workshopId());
+            Long knownVersion = knownVersions.get(wsTimes.workshopId());
+
+            Optional<AvailableTimesChangeLog.AvailableTimesChange> change = knownVersion == null
+                    ? Optional.empty()
+                    : refresher.changesBetween(wsTimes.workshopId(), knownVersion, currentVersion);
+            if (change.isPresent()) {
+                ZoneId timeZone = Objects.requireNonNull(refresher.getWorkshopService(wsTimes.workshopId())).getWorkshopProperties().timeZone();
+                change.get().addedTimes().stream()
+                        .filter(time -> !time.isReservedSet() && matchesFilter(time, timeZone, filter))
+                        .forEach(addedTimes::add);
+                removedTimes.addAll(change.get().removedTimes());
+            } else {
+                resetWorkshops.add(wsTimes.workshopId());
+                filterTimes(wsTimes, filter).forEach(addedTimes::add);
+            }
+        }
+        addedTimes.sort(Comparator.comparing(TireChangeTime::getInstant));
+
+        return new AvailableTimesDelta(addedTimes, removedTimes, resetWorkshops, failedServiceIds, versions);
     }
 
-    public AvailableTimesResponse getAvailableTireChangeTimes(TireChangeTimesFilter filter) {
+    /**
+     * Evaluates the filter against a single time, meant for checking a few times without the cached indexes.
+     */
+    private static boolean matchesFilter(TireChangeTime time, ZoneId timeZone, TireChangeTimesFilter filter) {
+        Instant instant = time.getInstant();
+        if (instant.isBefore(filter.fromDate()) || (filter.toDate() != null && instant.isAfter(filter.toDate()))) {
+            return false;
+        }
+        if (!filter.hasLocalTimeConstraints()) {
+            return true;
+        }
+        ZonedDateTime zonedTime = instant.atZone(timeZone);
+        if (filter.weekdays() != null && !filter.weekdays().isEmpty() && !filter.weekdays().contains(zonedTime.getDayOfWeek())) {
+            return false;
+        }
+        LocalTime from = filter.timeOfDayFrom() == null ? LocalTime.MIN : filter.timeOfDayFrom();
+        LocalTime timeOfDay = zonedTime.toLocalTime();
+        if (filter.timeOfDayTo() == null) {
+            return !timeOfDay.isBefore(from);
+        }
+        if (from.isBefore(filter.timeOfDayTo())) {
+            return !timeOfDay.isBefore(from) && timeOfDay.isBefore(filter.timeOfDayTo());
+        }
+        return !timeOfDay.isBefore(from) || timeOfDay.isBefore(filter.timeOfDayTo());
+    }
+
+    private static Map<WorkshopId, Long> getVersions(List<CachedWsAvailableTimes> allTimes, Set<WorkshopId> workshopIds) {
+        SortedMap<WorkshopId, Long> versions = new TreeMap<>();
+        for (CachedWsAvailableTimes wsTimes : allTimes) {
+            if (workshopIds.contains(wsTimes.workshopId())) {
+                versions.put(wsTimes.workshopId(), wsTimes.currentVersion());
+            }
+        }
+        return versions;
+    }
+
+    /**
+     * Returns the versions of the cached times of the workshops allowed by the filter. The versions change
+     * whenever the cached times of a workshop get replaced or one of them gets booked, so they can be used
+     * to detect whether a previously returned response is still up to date.
+     */
+    public SortedMap<WorkshopId, Long> getAvailableTimesVersions(TireChangeTimesFilter filter) {
+        Set<WorkshopId> allowedWorkshops = validateFilter(filter);
+
+        return new TreeMap<>(getVersions(refresher.getAllTimes(), allowedWorkshops));
+    }
+
+    /**
+     * Validates the filter and fetches the windows of its days which aren't cached, see {@link UncoveredWindowLoader#load}
+     *
+     * @return workshops allowed by the filter
+     */
+    private Set<WorkshopId> resolveFilter(TireChangeTimesFilter filter) {
+        Set<WorkshopId> allowedWorkshops = validateFilter(filter);
+        uncoveredWindowLoader.load(filter, allowedWorkshops);
+        return allowedWorkshops;
+    }
+
+    /**
+     * @return workshops allowed by the filter
+     */
+    private Set<WorkshopId> validateFilter(TireChangeTimesFilter filter) {
         if (filter.toDate() != null && ! filter.toDate().isAfter(filter.fromDate())){
             throw new IllegalArgumentException(String.format(
                     "Expected argument 'toDate' value '%s' to be after 'fromDate' value '%s'",
@@ -75,107 +327,283 @@ public class WorkshopsService {
             ));
         }
 
-        Set<WorkshopId> allowedWorkshops = allowedWorkshopIds(filter.selectedWorkshops(), filter.serviceableVehicles());
+        if (filter.timeOfDayFrom() != null && filter.timeOfDayFrom().equals(filter.timeOfDayTo())) {
+            throw new IllegalArgumentException(String.format(
+                    "Expected argument 'timeOfDayFrom' value '%s' to differ from 'timeOfDayTo' value '%s'",
+                    filter.timeOfDayFrom(),
+                    filter.timeOfDayTo()
+            ));
+        }
+
+        return resolveAllowedWorkshops(filter.selectedWorkshops(), filter.serviceableVehicles());
+    }
+
+    /**
+     * Checks whether the filter covers days which haven't been fetched from the windowed workshops it allows, without
+     * fetching them. Until they are fetched the times of the filter are answered from the already fetched days, so
+     * a response for them is not final even while the versions stay the same, e.g. after a failed on demand fetch.
+     */
+    public boolean hasUncoveredDays(TireChangeTimesFilter filter) {
+        return uncoveredWindowLoader.hasUncoveredDays(filter, validateFilter(filter));
+    }
+
+    /**
+     * @return configured workshops which are selected and serve any of the given vehicles,
+     * {@code null} or empty arguments don't restrict the workshops
+     * @throws IllegalArgumentException if no workshops are allowed
+     */
+    public Set<WorkshopId> resolveAllowedWorkshops(
+            @Nullable List<WorkshopId> selectedWorkshops,
+            @Nullable List<ServiceableVehicle> serviceableVehicles
+    ) {
+        Set<WorkshopId> allowedWorkshops = allowedWorkshopIds(selectedWorkshops, serviceableVehicles);
         if (allowedWorkshops.isEmpty()){
             throw new IllegalArgumentException(String.format(
                     "The combination of selected workshops '%s' and serviceable vehicles '%s' doesn't allow for any times to be queried",
-                    filter.selectedWorkshops(),
-                    filter.serviceableVehicles()
+                    selectedWorkshops,
+                    serviceableVehicles
             ));
         }
+        return allowedWorkshops;
+    }
 
-        List<CachedWsAvailableTimes> allTimes = getAllAvailableTimesFromCache();
-        List<WorkshopId> failedServiceIds = getAllFailedServiceIds(allTimes);
-        failedServiceIds =failedServiceIds.stream().filter(allowedWorkshops::contains).toList();
+    /**
+     * Returns at most {@code limit} earliest unreserved times matching the filter, sorted ascending by instant.
+     * <p>
+     * The per workshop times are kept sorted, so the search starts from a binary searched position in each
+     * workshop and merges the workshops until {@code limit} times have been found.
+     */
+    public AvailableTimesResponse getEarliestAvailableTireChangeTimes(TireChangeTimesFilter filter, int limit) {
+        Set<WorkshopId> allowedWorkshops = resolveFilter(filter);
+        validateLimit(limit);
 
-        Stream<TireChangeTime> resultStream = allTimes.stream()
-                .filter(wsTimes ->
-                        allowedWorkshops.contains(wsTimes.workshopId)
-                ).map(CachedWsAvailableTimes::availableTimes)
-                .filter(Objects::nonNull)
-                .flatMap(List::stream);
+        List<CachedWsAvailableTimes> allTimes = refresher.getAllTimes();
+        List<WorkshopId> failedServiceIds = getAllFailedServiceIds(allTimes).stream()
+                .filter(allowedWorkshops::contains)
+                .toList();
+        Map<WorkshopId, Long> versions = getVersions(allTimes, allowedWorkshops);
 
-        resultStream = filterTimesOnInstant(
-                resultStream,
-                filter.fromDate(),
-                filter.toDate()
+        PriorityQueue<TimesCursor> cursors = new PriorityQueue<>(
+                Comparator.comparing((TimesCursor cursor) -> cursor.current().getInstant())
         );
-        resultStream = filterTimesOnReserved(resultStream);
+        for (CachedWsAvailableTimes wsTimes : allTimes) {
+            if (!allowedWorkshops.contains(wsTimes.workshopId()) || wsTimes.availableTimes() == null) {
+                continue;
+            }
+            TimesCursor cursor = new TimesCursor(
+                    wsTimes.availableTimes(),
+                    localTimeMatchingIndexes(wsTimes, filter),
+                    wsTimes.indexOfFirstNotBefore(filter.fromDate()),
+                    filter.toDate() == null ? wsTimes.availableTimes().size() : wsTimes.indexOfFirstAfter(filter.toDate()),
+                    1
+            );
+            if (cursor.skipReserved()) {
+                cursors.add(cursor);
+            }
+        }
+
+        List<TireChangeTime> result = pollCursors(cursors, limit);
 
-        return new AvailableTimesResponse(resultStream.toList(), failedServiceIds);
+        return new AvailableTimesResponse(result, failedServiceIds, versions);
     }
 
-    private Set<WorkshopId> allowedWorkshopIds(
-            List<WorkshopId> selectedWorkshops,
-            List<ServiceableVehicle> serviceableVehicles
-    ) {
-        Set<WorkshopId> allowedWorkshops = EnumSet.allOf(WorkshopId.class);
-        if (CollectionUtils.isNotEmpty(selectedWorkshops)) {
-            allowedWorkshops.removeIf(allowedWorkshop -> !selectedWorkshops.contains(allowedWorkshop));
-        }
-        if (CollectionUtils.isNotEmpty(serviceableVehicles)) {
-            allowedWorkshops.removeIf(allowedWorkshop ->
-                    !CollectionUtils.containsAny(
-                            workshopServiceableVehiclesMap.get(allowedWorkshop),
-                            serviceableVehicles
-                    )
-            );
+    /**
+     * Returns at most {@code limit} unreserved times matching the filter which are closest to {@code target},
+     * sorted ascending by instant.
+     * <p>
+     * Each workshop is searched outwards from the binary searched position of {@code target} in both directions,
+     * stopping as soon as {@code limit} times have been found.
+     */
+    public AvailableTimesResponse getNearestAvailableTireChangeTimes(TireChangeTimesFilter filter, Instant target, int limit) {
+        Set<WorkshopId> allowedWorkshops = resolveFilter(filter);
+        validateLimit(limit);
+
+        List<CachedWsAvailableTimes> allTimes = refresher.getAllTimes();
+        List<WorkshopId> failedServiceIds = getAllFailedServiceIds(allTimes).stream()
+                .filter(allowedWorkshops::contains)
+                .toList();
+        Map<WorkshopId, Long> versions = getVersions(allTimes, allowedWorkshops);
+
+        Comparator<TimesCursor> byDistance = Comparator
+                .comparing((TimesCursor cursor) -> Duration.between(cursor.current().getInstant(), target).abs())
+                .thenComparing(cursor -> cursor.current().getInstant());
+        PriorityQueue<TimesCursor> cursors = new PriorityQueue<>(byDistance);
+        for (CachedWsAvailableTimes wsTimes : allTimes) {
+            if (!allowedWorkshops.contains(wsTimes.workshopId()) || wsTimes.availableTimes() == null) {
+                continue;
+            }
+            int lowerBound = wsTimes.indexOfFirstNotBefore(filter.fromDate());
+            int upperBound = filter.toDate() == null ? wsTimes.availableTimes().size() : wsTimes.indexOfFirstAfter(filter.toDate());
+            int pivot = Math.min(Math.max(wsTimes.indexOfFirstNotBefore(target), lowerBound), upperBound);
+
+            BitSet matchingIndexes = localTimeMatchingIndexes(wsTimes, filter);
+
+            TimesCursor laterCursor = new TimesCursor(wsTimes.availableTimes(), matchingIndexes, pivot, upperBound, 1);
+            if (laterCursor.skipReserved()) {
+                cursors.add(laterCursor);
+            }
+            TimesCursor earlierCursor = new TimesCursor(wsTimes.availableTimes(), matchingIndexes, pivot - 1, lowerBound - 1, -1);
+            if (earlierCursor.skipReserved()) {
+                cursors.add(earlierCursor);
+            }
         }
-        return allowedWorkshops;
+
+        List<TireChangeTime> result = pollCursors(cursors, limit);
+        result.sort(Comparator.comparing(TireChangeTime::getInstant));
+
+        return new AvailableTimesResponse(result, failedServiceIds, versions);
     }
 
-    private Stream<TireChangeTime> filterTimesOnInstant(
-            Stream<TireChangeTime> timesStream,
-            Instant from,
-            @Nullable
-            Instant to
-    ){
-        Stream<TireChangeTime> resultStream = timesStream;
+    /**
+     * Returns the amount of unreserved times matching the filter per day in the time zone of each workshop, days
+     * without any times are left out. The days are the same as of the times returned by the search with the filter.
+     * <p>
+     * Without weekday and time of day constraints the counts are read from the per day counts of the cached
+     * workshops, so only the times of the edge days of the filter are visited.
+     */
+    public AvailableDaysResponse getAvailableDays(TireChangeTimesFilter filter, boolean perWorkshop) {
+        Set<WorkshopId> allowedWorkshops = resolveFilter(filter);
+
+        List<CachedWsAvailableTimes> allTimes = refresher.getAllTimes();
+        List<WorkshopId> failedServiceIds = getAllFailedServiceIds(allTimes).stream()
+                .filter(allowedWorkshops::contains)
+                .toList();
 
-        resultStream = resultStream.filter(el -> !el.getInstant().isBefore(from));
-        if (to != null) {
-            resultStream = resultStream.filter(el -> !el.getInstant().isAfter(to));
+        SortedMap<LocalDate, Map<WorkshopId, Integer>> countsByDay = new TreeMap<>();
+        for (CachedWsAvailableTimes wsTimes : allTimes) {
+            if (!allowedWorkshops.contains(wsTimes.workshopId()) || wsTimes.firstDay() == null) {
+                continue;
+            }
+            BitSet localTimeMatching = filter.hasLocalTimeConstraints()
+                    ? wsTimes.indexesMatchingLocalTime(filter.weekdays(), filter.timeOfDayFrom(), filter.timeOfDayTo())
+                    : null;
+            wsTimes.countsByLocalDay(filter.fromDate(), filter.toDate(), localTimeMatching).forEach((day, count) ->
+                    countsByDay.computeIfAbsent(day, key -> new EnumMap<>(WorkshopId.class)).put(wsTimes.workshopId(), count)
+            );
         }
 
-        return resultStream;
-    }
-    private Stream<TireChangeTime> filterTimesOnReserved(Stream<TireChangeTime> timesStream){
-        return timesStream.filter(time -> !time.isReservedSet());
+        List<AvailableDaysResponse.AvailableDay> availableDays = countsByDay.entrySet().stream()
+                .map(entry -> new AvailableDaysResponse.AvailableDay(
+                        entry.getKey(),
+                        entry.getValue().values().stream().mapToInt(Integer::intValue).sum(),
+                        perWorkshop ? entry.getValue() : null
+                ))
+                .toList();
+
+        return new AvailableDaysResponse(availableDays, failedServiceIds);
     }
 
-    private List<CachedWsAvailableTimes> getAllAvailableTimesFromCache() {
-        List<CachedWsAvailableTimes> availableTimes = cache.get(cacheKey);
+    /**
+     * Lazily merges the unreserved times matching the filter from the cached times of all workshops, ordered by
+     * {@link AvailableTimesCursor#TIME_ORDER}. Only the iteration state is held, so exporting doesn't depend on the
+     * amount of times.
+     *
+     * @param after cursor of the last time already exported, {@code null} to export from the start of the filter
+     */
+    public AvailableTimesExport exportAvailableTireChangeTimes(TireChangeTimesFilter filter, @Nullable AvailableTimesCursor after) {
+        Set<WorkshopId> allowedWorkshops = resolveFilter(filter);
 
-        if (availableTimes.stream().anyMatch(wsTimes -> wsTimes.cachePopulationEx != null)){
-            cache.invalidate(cacheKey);
-            return cache.get(cacheKey);
+        List<CachedWsAvailableTimes> allTimes = refresher.getAllTimes();
+        List<WorkshopId> failedServiceIds = getAllFailedServiceIds(allTimes).stream()
+                .filter(allowedWorkshops::contains)
+                .toList();
+
+        Instant from = after != null && after.time().isAfter(filter.fromDate()) ? after.time() : filter.fromDate();
+        PriorityQueue<TimesCursor> cursors = new PriorityQueue<>(
+                Comparator.comparing(TimesCursor::current, AvailableTimesCursor.TIME_ORDER)
+        );
+        for (CachedWsAvailableTimes wsTimes : allTimes) {
+            if (!allowedWorkshops.contains(wsTimes.workshopId()) || wsTimes.availableTimes() == null) {
+                continue;
+            }
+            TimesCursor cursor = new TimesCursor(
+                    wsTimes.availableTimes(),
+                    localTimeMatchingIndexes(wsTimes, filter),
+                    wsTimes.indexOfFirstNotBefore(from),
+                    filter.toDate() == null ? wsTimes.availableTimes().size() : wsTimes.indexOfFirstAfter(filter.toDate()),
+                    1
+            );
+            while (cursor.skipReserved() && after != null && after.isPassed(cursor.current())) {
+                cursor.advance();
+            }
+            if (cursor.skipReserved()) {
+                cursors.add(cursor);
+            }
         }
 
-        return availableTimes;
+        Iterator<TireChangeTime> times = new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return !cursors.isEmpty();
+            }
+
+            @Override
+            public TireChangeTime next() {
+                TimesCursor cursor = cursors.poll();
+                if (cursor == null) {
+                    throw new NoSuchElementException();
+                }
+                TireChangeTime time = cursor.current();
+                cursor.advance();
+                if (cursor.skipReserved()) {
+                    cursors.add(cursor);
+                }
+                return time;
+            }
+        };
+        return new AvailableTimesExport(times, failedServiceIds);
     }
 
-    private List<CachedWsAvailableTimes> updateAvailableTimesCache(){
-        log.info("Repopulating available tire change times cache");
+    private static List<TireChangeTime> pollCursors(PriorityQueue<TimesCursor> cursors, int limit) {
+        List<TireChangeTime> result = new ArrayList<>(limit);
+        while (result.size() < limit && !cursors.isEmpty()) {
+            TimesCursor cursor = cursors.poll();
+            result.add(cursor.current());
+            cursor.advance();
+            if (cursor.skipReserved()) {
+                cursors.add(cursor);
+            }
+        }
+        return result;
+    }
 
-        return workshopServices.values()
-                .parallelStream()
-                .map(WorkshopsService::getAvailableTimesFromService)
-                .toList();
+    private static void validateLimit(int limit) {
+        if (limit < 1 || limit > MAX_QUERY_LIMIT) {
+            throw new IllegalArgumentException(String.format(
+                    "Expected argument 'limit' value '%s' to be between 1 and %s",
+                    limit,
+                    MAX_QUERY_LIMIT
+            ));
+        }
     }
 
-    private static CachedWsAvailableTimes getAvailableTimesFromService(WsApiServiceI service) {
-        WorkshopId workshopId = service.getWorkshopProperties().workshopId();
-        List<TireChangeTime> times;
-        WsServiceCommunicationException ex = null;
-        try {
-            times = Collections.unmodifiableList(service.getAllAvailableTireChangeTimes());
-            log.info("Received {} available times from workshop with id '{}'", times.size(), workshopId);
-        } catch (WsServiceCommunicationException e) {
-            times = null;
-            ex = e;
-            log.warn("Failed refreshing cache of workshop '{}", workshopId, ex);
+    private Set<WorkshopId> allowedWorkshopIds(
+            List<WorkshopId> selectedWorkshops,
+            List<ServiceableVehicle> serviceableVehicles
+    ) {
+        Set<WorkshopId> allowedWorkshops = CollectionUtils.isNotEmpty(selectedWorkshops)
+                ? EnumSet.copyOf(selectedWorkshops)
+                : EnumSet.allOf(WorkshopId.class);
+        if (CollectionUtils.isNotEmpty(serviceableVehicles)) {
+            Set<WorkshopId> servingWorkshops = EnumSet.noneOf(WorkshopId.class);
+            for (ServiceableVehicle vehicle : serviceableVehicles) {
+                servingWorkshops.addAll(vehicleWorkshops.getOrDefault(vehicle, Set.of()));
+            }
+            allowedWorkshops.retainAll(servingWorkshops);
         }
-        return new CachedWsAvailableTimes(workshopId, times, ex);
+        return allowedWorkshops;
+    }
+
+    /**
+     * @return indexes of the workshop times matching the weekday and time of day constraints of the filter,
+     * {@code null} if the filter has no such constraints
+     */
+    @Nullable
+    private static BitSet localTimeMatchingIndexes(CachedWsAvailableTimes wsTimes, TireChangeTimesFilter filter) {
+        if (!filter.hasLocalTimeConstraints()) {
+            return null;
+        }
+        return wsTimes.indexesMatchingLocalTime(filter.weekdays(), filter.timeOfDayFrom(), filter.timeOfDayTo());
     }
 
     private static List<WorkshopId> getAllFailedServiceIds(List<CachedWsAvailableTimes> availableTimes){
@@ -188,15 +616,19 @@ public class WorkshopsService {
 
     public TireChangeTime bookTime(BookTimeRequest bookTimeRequest) throws WsServiceCommunicationException {
 
-        WsApiServiceI targetService = workshopServices.get(bookTimeRequest.workshopId());
+        WsApiServiceI targetService = refresher.getWorkshopService(bookTimeRequest.workshopId());
 
         TireChangeTime bookedTime;
         try {
             bookedTime = targetService.bookDesiredTime(bookTimeRequest);
+        } catch (WsServiceCommunicationException e) {
+            slotEventBus.publish(SlotEventType.BOOKING_FAILED, bookTimeRequest.workshopId(), 0, null, bookTimeRequest.id());
+            throw e;
         } catch (WsServiceResponseException e) {
+            slotEventBus.publish(SlotEventType.BOOKING_FAILED, bookTimeRequest.workshopId(), 0, null, bookTimeRequest.id());
             // If time already booked, try to update the cache as well
             if (e.getResponseStatusCode().isSameCodeAs(HttpStatus.UNPROCESSABLE_ENTITY)) {
-                updateBookedTimeInCache(new TireChangeTime(
+                refresher.reserveBookedTime(new TireChangeTime(
                         bookTimeRequest.workshopId(),
                         bookTimeRequest.id(),
                         null
@@ -204,30 +636,52 @@ public class WorkshopsService {
             }
             throw e;
         }
-        updateBookedTimeInCache(bookedTime);
+        refresher.reserveBookedTime(bookedTime);
+        slotEventBus.publish(SlotEventType.TIME_BOOKED, bookedTime.getWorkshopId(), 0, bookedTime);
         return bookedTime;
     }
 
-    private void updateBookedTimeInCache(TireChangeTime bookedTime) {
-        List<CachedWsAvailableTimes> cachedTimes = getAllAvailableTimesFromCache();
-        Optional<CachedWsAvailableTimes> wsTimesOpt = cachedTimes.stream()
-                .filter(wsTimes -> wsTimes.workshopId == bookedTime.getWorkshopId())
-                .findFirst();
-        if (wsTimesOpt.isPresent()) {
-            CachedWsAvailableTimes wsTimes = wsTimesOpt.get();
-            List<TireChangeTime> times = wsTimes.availableTimes;
-            if (CollectionUtils.isNotEmpty(times)){
-                times.stream()
-                        .filter(bookedTime::equals)
-                        .findFirst()
-                        .ifPresent(TireChangeTime::setReservedTrue);
+    /**
+     * Walks a sorted list of times from {@code index} towards {@code end} (exclusive) in the given direction,
+     * visiting only the indexes present in {@code matchingIndexes} when it is given.
+     */
+    private static class TimesCursor {
+        private final List<TireChangeTime> times;
+        @Nullable
+        private final BitSet matchingIndexes;
+        private final int end;
+        private final int step;
+        private int index;
+
+        private TimesCursor(List<TireChangeTime> times, @Nullable BitSet matchingIndexes, int index, int end, int step) {
+            this.times = times;
+            this.matchingIndexes = matchingIndexes;
+            this.index = index;
+            this.end = end;
+            this.step = step;
+        }
+
+        private TireChangeTime current() {
+            return times.get(index);
+        }
+
+        private void advance() {
+            index += step;
+        }
+
+        /**
+         * Moves the cursor past reserved and non-matching times.
+         * @return whether the cursor still points to a time
+         */
+        private boolean skipReserved() {
+            while (index != end && (times.get(index).isReservedSet() || !isMatching(index))) {
+                index += step;
             }
+            return index != end;
         }
-    }
 
-    public record CachedWsAvailableTimes(
-            WorkshopId workshopId,
-            @Nullable List<TireChangeTime> availableTimes,
-            @Nullable WsServiceCommunicationException cachePopulationEx
-    ) { }
+        private boolean isMatching(int index) {
+            return matchingIndexes == null || matchingIndexes.get(index);
+        }
+    }
 }
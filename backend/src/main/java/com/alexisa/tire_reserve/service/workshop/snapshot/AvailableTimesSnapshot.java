@@ -0,0 +1,17 @@
+package com.alexisa.tire_reserve.service.workshop.snapshot;
+
+import com.alexisa.tire_reserve.model.domain.TireChangeTime;
+import com.alexisa.tire_reserve.model.domain.enums.WorkshopId;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Persisted unreserved times of a workshop as they were fetched at {@code fetchedAt}.
+ */
+public record AvailableTimesSnapshot(
+        WorkshopId workshopId,
+        long version,
+        Instant fetchedAt,
+        List<TireChangeTime> times
+) { }
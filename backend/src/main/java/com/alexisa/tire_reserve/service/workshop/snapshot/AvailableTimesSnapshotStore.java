@@ -0,0 +1,185 @@
+package com.alexisa.tire_reserve.service.workshop.snapshot;
+
+import com.alexisa.tire_reserve.model.domain.TireChangeTime;
+import com.alexisa.tire_reserve.model.domain.enums.WorkshopId;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.zip.CRC32;
+
+/**
+ * Persists the times of every successful workshop refresh to a file per workshop, so they can be served right after
+ * a restart while the first refresh is still running. Disabled if {@code workshops.cache.snapshot-directory} is empty.
+ * Snapshots older than the cache expiry are not loaded, as the times wouldn't be served from the cache either.
+ * <p>
+ * A file starts with a header of the magic number, the format version, the version of the cached times, the time
+ * they were fetched at, the amount of times, the length of the payload and the CRC32 of the payload. The payload
+ * holds the epoch second, nano adjustment and UTF-8 id of every time. Files are written next to their final name
+ * and moved over it atomically, and read through a read-only memory map, rejecting files of another format
+ * version or with a checksum mismatch.
+ */
+@Slf4j
+@Component
+public class AvailableTimesSnapshotStore {
+
+    static final int MAGIC = 0x54525353;
+    static final int FORMAT_VERSION = 1;
+    static final int HEADER_SIZE = 4 + 4 + 8 + 8 + 4 + 4 + 4;
+    private static final String FILE_SUFFIX = ".snapshot";
+
+    @Nullable
+    private final Path directory;
+    private final Duration maxAge;
+
+    public AvailableTimesSnapshotStore(
+            @Value("${workshops.cache.snapshot-directory}") String directory,
+            @Value("${workshops.cache.expire-after-write}") Duration maxAge
+    ) {
+        this.directory = directory.isBlank() ? null : Path.of(directory);
+        this.maxAge = maxAge;
+        if (this.directory != null) {
+            log.info("Persisting available times snapshots to '{}'", this.directory.toAbsolutePath());
+        }
+    }
+
+    public boolean isEnabled() {
+        return directory != null;
+    }
+
+    /**
+     * Persists the unreserved times, failures are logged as the snapshots are only an optimization of restarts.
+     */
+    public void save(WorkshopId workshopId, long version, Instant fetchedAt, List<TireChangeTime> times) {
+        if (directory == null) {
+            return;
+        }
+        List<byte[]> ids = new ArrayList<>(times.size());
+        List<TireChangeTime> unreservedTimes = new ArrayList<>(times.size());
+        int payloadSize = 0;
+        for (TireChangeTime time : times) {
+            if (time.isReservedSet()) {
+                continue;
+            }
+            byte[] id = time.getId().getBytes(StandardCharsets.UTF_8);
+            ids.add(id);
+            unreservedTimes.add(time);
+            payloadSize += 8 + 4 + 4 + id.length;
+        }
+
+        ByteBuffer payload = ByteBuffer.allocate(payloadSize);
+        for (int i = 0; i < unreservedTimes.size(); i++) {
+            Instant instant = unreservedTimes.get(i).getInstant();
+            payload.putLong(instant.getEpochSecond())
+                    .putInt(instant.getNano())
+                    .putInt(ids.get(i).length)
+                    .put(ids.get(i));
+        }
+        payload.flip();
+        CRC32 crc = new CRC32();
+        crc.update(payload.duplicate());
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+                .putInt(MAGIC)
+                .putInt(FORMAT_VERSION)
+                .putLong(version)
+                .putLong(fetchedAt.toEpochMilli())
+                .putInt(unreservedTimes.size())
+                .putInt(payloadSize)
+                .putInt((int) crc.getValue())
+                .flip();
+
+        Path file = snapshotFile(workshopId);
+        Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(directory);
+            try (FileChannel channel = FileChannel.open(
+                    tempFile, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE
+            )) {
+                channel.write(new ByteBuffer[]{header, payload});
+                channel.force(false);
+            }
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.debug("Saved snapshot of {} times of workshop '{}'", unreservedTimes.size(), workshopId);
+        } catch (IOException e) {
+            log.warn("Failed saving available times snapshot of workshop '{}'", workshopId, e);
+        }
+    }
+
+    /**
+     * @return persisted snapshot of the workshop, empty if there is none or it can't be used
+     */
+    public Optional<AvailableTimesSnapshot> load(WorkshopId workshopId) {
+        if (directory == null) {
+            return Optional.empty();
+        }
+        Path file = snapshotFile(workshopId);
+        if (!Files.exists(file)) {
+            return Optional.empty();
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            AvailableTimesSnapshot snapshot = read(workshopId, buffer);
+            if (snapshot.fetchedAt().plus(maxAge).isBefore(Instant.now())) {
+                log.info("Ignoring snapshot of workshop '{}' fetched at {}, it has expired", workshopId, snapshot.fetchedAt());
+                return Optional.empty();
+            }
+            return Optional.of(snapshot);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Ignoring unusable available times snapshot of workshop '{}'", workshopId, e);
+            return Optional.empty();
+        }
+    }
+
+    private static AvailableTimesSnapshot read(WorkshopId workshopId, ByteBuffer buffer) throws IOException {
+        if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC) {
+            throw new IOException("Not an available times snapshot");
+        }
+        int formatVersion = buffer.getInt();
+        if (formatVersion != FORMAT_VERSION) {
+            throw new IOException("Unsupported snapshot format version " + formatVersion);
+        }
+        long version = buffer.getLong();
+        Instant fetchedAt = Instant.ofEpochMilli(buffer.getLong());
+        int count = buffer.getInt();
+        int payloadSize = buffer.getInt();
+        int checksum = buffer.getInt();
+        if (payloadSize != buffer.remaining()) {
+            throw new IOException("Snapshot payload is " + buffer.remaining() + " bytes, expected " + payloadSize);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.duplicate());
+        if ((int) crc.getValue() != checksum) {
+            throw new IOException("Snapshot checksum mismatch");
+        }
+
+        List<TireChangeTime> times = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            long epochSecond = buffer.getLong();
+            int nano = buffer.getInt();
+            byte[] id = new byte[buffer.getInt()];
+            buffer.get(id);
+            times.add(new TireChangeTime(workshopId, new String(id, StandardCharsets.UTF_8), Instant.ofEpochSecond(epochSecond, nano)));
+        }
+        return new AvailableTimesSnapshot(workshopId, version, fetchedAt, times);
+    }
+
+    private Path snapshotFile(WorkshopId workshopId) {
+        return directory.resolve(workshopId.name().toLowerCase() + FILE_SUFFIX);
+    }
+}
@@ -0,0 +1,107 @@
+package com.alexisa.tire_reserve.benchmark;
+
+import com.alexisa.tire_reserve.controller.EncodedAvailableTireTimesConverter;
+import com.alexisa.tire_reserve.model.domain.EncodedTimes;
+import com.alexisa.tire_reserve.model.domain.TireChangeTime;
+import com.alexisa.tire_reserve.model.domain.enums.WorkshopId;
+import com.alexisa.tire_reserve.model.dto.AvailableTireTimeDTO;
+import com.alexisa.tire_reserve.model.dto.AvailableTireTimesDTO;
+import com.alexisa.tire_reserve.model.dto.EncodedAvailableTireTimesDTO;
+import com.alexisa.tire_reserve.service.workshop.CachedWsAvailableTimes;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares writing the available times response through DTOs and Jackson with writing the pre-encoded times.
+ * <p>
+ * Run with {@code java -cp <test classpath> com.alexisa.tire_reserve.benchmark.AvailableTimesSerializationBenchmark}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AvailableTimesSerializationBenchmark {
+
+    @Param({"100", "2000"})
+    private int timeCount;
+
+    private List<TireChangeTime> times;
+    private EncodedTimes encodedTimes;
+    private final MappingJackson2HttpMessageConverter jacksonConverter =
+            new MappingJackson2HttpMessageConverter(Jackson2ObjectMapperBuilder.json().build());
+    private final EncodedAvailableTireTimesConverter encodedConverter = new EncodedAvailableTireTimesConverter();
+
+    @Setup
+    public void setUp() {
+        times = new ArrayList<>(timeCount);
+        Instant start = Instant.parse("2024-08-08T06:00:00Z");
+        for (int i = 0; i < timeCount; i++) {
+            TireChangeTime time = new TireChangeTime(
+                    i % 2 == 0 ? WorkshopId.MANCHESTER : WorkshopId.LONDON,
+                    String.valueOf(i),
+                    start.plus(Duration.ofMinutes(30L * i))
+            );
+            times.add(time);
+        }
+        // Looked up from the cached times of each workshop, as they are when writing responses
+        Map<WorkshopId, CachedWsAvailableTimes> wsTimes = new EnumMap<>(WorkshopId.class);
+        for (WorkshopId workshopId : WorkshopId.values()) {
+            wsTimes.put(workshopId, CachedWsAvailableTimes.fromTimes(
+                    workshopId,
+                    ZoneOffset.UTC,
+                    times.stream().filter(time -> time.getWorkshopId() == workshopId).toList()
+            ));
+        }
+        encodedTimes = time -> wsTimes.get(time.getWorkshopId()).findEncodedJson(time);
+    }
+
+    @Benchmark
+    public byte[] dtoMapping() throws IOException {
+        AvailableTireTimesDTO dto = new AvailableTireTimesDTO(
+                times.stream().map(AvailableTireTimeDTO::dtoFromModel).toList(),
+                List.of(),
+                Map.of(WorkshopId.MANCHESTER, 1L)
+        );
+        MockHttpOutputMessage outputMessage = new MockHttpOutputMessage();
+        jacksonConverter.write(dto, MediaType.APPLICATION_JSON, outputMessage);
+        return outputMessage.getBodyAsBytes();
+    }
+
+    @Benchmark
+    public byte[] encodedTimes() throws IOException {
+        EncodedAvailableTireTimesDTO dto = new EncodedAvailableTireTimesDTO(
+                times,
+                List.of(),
+                Map.of(WorkshopId.MANCHESTER, 1L),
+                encodedTimes
+        );
+        MockHttpOutputMessage outputMessage = new MockHttpOutputMessage();
+        encodedConverter.write(dto, MediaType.APPLICATION_JSON, outputMessage);
+        return outputMessage.getBodyAsBytes();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(AvailableTimesSerializationBenchmark.class.getSimpleName())
+                .build()
+        ).run();
+    }
+}
@@ -0,0 +1,94 @@
+package com.alexisa.tire_reserve.benchmark;
+
+import com.alexisa.tire_reserve.model.domain.TireChangeTime;
+import com.alexisa.tire_reserve.model.domain.TireChangeTimesFilter;
+import com.alexisa.tire_reserve.model.domain.enums.ServiceableVehicle;
+import com.alexisa.tire_reserve.model.domain.enums.WorkshopId;
+import com.alexisa.tire_reserve.service.workshop.AvailableTimesIndex;
+import com.alexisa.tire_reserve.service.workshop.CachedWsAvailableTimes;
+import com.alexisa.tire_reserve.service.workshop.ParallelFilterPool;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Filters the times of a full year with weekday and time of day constraints, for tuning the threshold above which
+ * the filtering is split into parallel chunks. The largest threshold never splits, which is the sequential baseline.
+ * <p>
+ * Run with {@code java -cp <test classpath> com.alexisa.tire_reserve.benchmark.ParallelFilterBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParallelFilterBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    private int slotCount;
+
+    @Param({"8192", "32768", "131072", "1073741823"})
+    private int threshold;
+
+    private AvailableTimesIndex index;
+    private ParallelFilterPool filterPool;
+    private TireChangeTimesFilter filter;
+
+    @Setup
+    public void setUp() {
+        Instant start = Instant.parse("2024-01-01T00:00:00Z");
+        Duration step = Duration.ofDays(365).dividedBy(slotCount / 2);
+        List<CachedWsAvailableTimes> allTimes = new ArrayList<>();
+        for (WorkshopId workshopId : WorkshopId.values()) {
+            List<TireChangeTime> times = new ArrayList<>(slotCount / 2);
+            for (int i = 0; i < slotCount / 2; i++) {
+                times.add(new TireChangeTime(workshopId, String.valueOf(i), start.plus(step.multipliedBy(i))));
+            }
+            allTimes.add(CachedWsAvailableTimes.fromTimes(workshopId, ZoneOffset.UTC, times));
+        }
+        index = AvailableTimesIndex.build(allTimes, Map.of(
+                WorkshopId.MANCHESTER, List.of(ServiceableVehicle.CAR),
+                WorkshopId.LONDON, List.of(ServiceableVehicle.CAR, ServiceableVehicle.TRUCK)
+        ));
+        filterPool = new ParallelFilterPool(threshold, 0);
+        filter = new TireChangeTimesFilter(
+                null,
+                start,
+                null,
+                List.of(ServiceableVehicle.CAR),
+                List.of(DayOfWeek.MONDAY, DayOfWeek.WEDNESDAY, DayOfWeek.FRIDAY),
+                LocalTime.of(8, 0),
+                LocalTime.of(17, 0)
+        );
+    }
+
+    @TearDown
+    public void tearDown() {
+        filterPool.shutdown();
+    }
+
+    @Benchmark
+    public List<TireChangeTime> query() {
+        return index.query(filter, EnumSet.allOf(WorkshopId.class), filterPool);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ParallelFilterBenchmark.class.getSimpleName())
+                .build()
+        ).run();
+    }
+}
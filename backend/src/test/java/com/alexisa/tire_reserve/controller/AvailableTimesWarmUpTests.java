@@ -0,0 +1,109 @@
+package com.alexisa.tire_reserve.controller;
+
+import com.alexisa.tire_reserve.config.WorkshopsProperties;
+import com.alexisa.tire_reserve.model.domain.enums.ServiceableVehicle;
+import com.alexisa.tire_reserve.model.domain.enums.WorkshopId;
+import com.alexisa.tire_reserve.model.dto.EncodedAvailableTireTimesDTO;
+import com.alexisa.tire_reserve.service.workshop.WorkshopsService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.boot.DefaultApplicationArguments;
+
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class AvailableTimesWarmUpTests {
+
+    private static final WorkshopsProperties.WorkshopProperties WORKSHOP_PROPERTIES = new WorkshopsProperties.WorkshopProperties(
+            WorkshopId.MANCHESTER,
+            "http://localhost:1111/api/v2/test",
+            "test", "test", "test", "test",
+            List.of(ServiceableVehicle.CAR),
+            ZoneOffset.UTC
+    );
+    private static final EncodedAvailableTireTimesDTO EMPTY_TIMES = new EncodedAvailableTireTimesDTO(
+            List.of(), List.of(), Map.of(WorkshopId.MANCHESTER, 1L)
+    );
+
+    @Mock(strictness = Mock.Strictness.LENIENT)
+    private WorkshopsService workshopsService;
+    @Mock(strictness = Mock.Strictness.LENIENT)
+    private TireChangeWebController controller;
+
+    @BeforeEach
+    public void setUp() {
+        when(workshopsService.getWorkshops()).thenReturn(List.of(WORKSHOP_PROPERTIES));
+        when(controller.getAvailableTireChangeTimes(any())).thenReturn(EMPTY_TIMES);
+        when(controller.getEarliestAvailableTireChangeTimes(any(), anyInt())).thenReturn(EMPTY_TIMES);
+    }
+
+    @Test
+    public void testWarmUpSearchesAfterPrefetch() throws InterruptedException {
+        when(workshopsService.prefetchAvailableTimes()).thenReturn(List.of());
+        AvailableTimesWarmUp warmUp = new AvailableTimesWarmUp(
+                workshopsService, controller, new EncodedAvailableTireTimesConverter(), Duration.ofSeconds(30), 20
+        );
+
+        warmUp.run(new DefaultApplicationArguments());
+
+        verify(workshopsService).prefetchAvailableTimes();
+        verify(controller, times(20)).getAvailableTireChangeTimes(any());
+        verify(controller, times(20)).getEarliestAvailableTireChangeTimes(any(), anyInt());
+    }
+
+    @Test
+    public void testWarmUpSearchesSkippedAfterFailedPrefetch() throws InterruptedException {
+        when(workshopsService.prefetchAvailableTimes()).thenReturn(List.of(WorkshopId.MANCHESTER));
+        AvailableTimesWarmUp warmUp = new AvailableTimesWarmUp(
+                workshopsService, controller, new EncodedAvailableTireTimesConverter(), Duration.ofSeconds(30), 20
+        );
+
+        warmUp.run(new DefaultApplicationArguments());
+
+        verify(controller, never()).getAvailableTireChangeTimes(any());
+    }
+
+    @Test
+    public void testWarmUpGivenUpAfterDeadline() throws InterruptedException {
+        AtomicBoolean prefetchInterrupted = new AtomicBoolean();
+        CountDownLatch prefetchFinished = new CountDownLatch(1);
+        when(workshopsService.prefetchAvailableTimes()).thenAnswer(invocation -> {
+            try {
+                Thread.sleep(Duration.ofMillis(500));
+            } catch (InterruptedException e) {
+                prefetchInterrupted.set(true);
+            }
+            prefetchFinished.countDown();
+            return List.of();
+        });
+        AvailableTimesWarmUp warmUp = new AvailableTimesWarmUp(
+                workshopsService, controller, new EncodedAvailableTireTimesConverter(), Duration.ofMillis(100), 20
+        );
+
+        long start = System.nanoTime();
+        warmUp.run(new DefaultApplicationArguments());
+
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofMillis(500));
+        // The prefetch keeps loading in the background, the searches past the deadline are skipped
+        assertThat(prefetchFinished.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(prefetchInterrupted).isFalse();
+        verify(controller, never()).getAvailableTireChangeTimes(any());
+    }
+}
@@ -1,41 +1,80 @@
 package com.alexisa.tire_reserve.controller;
 
+import com.alexisa.tire_reserve.config.CacheConfig;
 import com.alexisa.tire_reserve.config.WorkshopsProperties;
 import com.alexisa.tire_reserve.exceptions.service.workshops.WsServiceCommunicationException;
 import com.alexisa.tire_reserve.exceptions.service.workshops.response.WsServiceResponseException;
+import com.alexisa.tire_reserve.model.domain.AvailableDaysResponse;
+import com.alexisa.tire_reserve.model.domain.AvailableTimesCursor;
+import com.alexisa.tire_reserve.model.domain.AvailableTimesDelta;
+import com.alexisa.tire_reserve.model.domain.AvailableTimesExport;
 import com.alexisa.tire_reserve.model.domain.AvailableTimesResponse;
 import com.alexisa.tire_reserve.model.domain.BookTimeRequest;
+import com.alexisa.tire_reserve.model.domain.EncodedTimes;
 import com.alexisa.tire_reserve.model.domain.TireChangeTime;
 import com.alexisa.tire_reserve.model.domain.TireChangeTimesFilter;
 import com.alexisa.tire_reserve.model.domain.enums.ServiceableVehicle;
 import com.alexisa.tire_reserve.model.domain.enums.WorkshopId;
 import com.alexisa.tire_reserve.model.domain.error.WsServiceErrorDescription;
+import com.alexisa.tire_reserve.model.dto.AvailableDaysDTO;
+import com.alexisa.tire_reserve.model.dto.AvailableTimesChangesDTO;
 import com.alexisa.tire_reserve.model.dto.AvailableTireTimeDTO;
 import com.alexisa.tire_reserve.model.dto.AvailableTireTimesDTO;
+import com.alexisa.tire_reserve.model.dto.CompactAvailableTireTimesDTO;
 import com.alexisa.tire_reserve.model.dto.workshop.WorkshopsRequestDTO;
+import com.alexisa.tire_reserve.service.events.AvailableTimesEventsService;
 import com.alexisa.tire_reserve.service.workshop.WorkshopsService;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.ResultMatcher;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.DayOfWeek;
+import java.time.Duration;
 import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.GZIPInputStream;
 
 import static com.alexisa.tire_reserve.controller.TireChangeWebControllerTests.ResponseBodyMatchers.responseBody;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.not;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(TireChangeWebController.class)
+@Import(CacheConfig.class)
 public class TireChangeWebControllerTests {
 
     @Autowired
@@ -44,6 +83,14 @@ public class TireChangeWebControllerTests {
     @MockBean
     private WorkshopsService workshopsService;
 
+    @MockBean
+    private AvailableTimesEventsService availableTimesEventsService;
+
+    @BeforeEach
+    public void setUp() {
+        when(workshopsService.getEncodedTimes()).thenReturn(EncodedTimes.NONE);
+    }
+
     @Test
     public void testGetWorkshopsInformation() throws Exception {
         WorkshopsProperties.WorkshopProperties workshopProperties = new WorkshopsProperties.WorkshopProperties(
@@ -53,7 +100,8 @@ public class TireChangeWebControllerTests {
                 "testAddress",
                 "testPhoneNr",
                 "testEmail",
-                List.of(ServiceableVehicle.CAR)
+                List.of(ServiceableVehicle.CAR),
+                ZoneOffset.UTC
         );
 
         when(workshopsService.getWorkshops())
@@ -80,6 +128,54 @@ public class TireChangeWebControllerTests {
                 .andExpect(responseBody().containsObjectAsJson(expectedJson, WorkshopsRequestDTO.class));
     }
 
+    @Test
+    public void testGetBootstrap() throws Exception {
+        WorkshopsProperties.WorkshopProperties workshopProperties = new WorkshopsProperties.WorkshopProperties(
+                WorkshopId.MANCHESTER,
+                "testApiPath",
+                "testCity",
+                "testAddress",
+                "testPhoneNr",
+                "testEmail",
+                List.of(ServiceableVehicle.CAR),
+                ZoneOffset.UTC
+        );
+        TireChangeTime tireChangeTime = new TireChangeTime(WorkshopId.MANCHESTER, "1", Instant.parse("2024-08-08T06:00:00Z"));
+
+        when(workshopsService.getWorkshops())
+                .thenReturn(List.of(workshopProperties));
+        when(workshopsService.getAvailableTimesVersions(any()))
+                .thenReturn(new TreeMap<>(Map.of(WorkshopId.MANCHESTER, 1L)));
+        when(workshopsService.getEarliestAvailableTireChangeTimes(any(), eq(50)))
+                .thenReturn(new AvailableTimesResponse(List.of(tireChangeTime), List.of(), Map.of(WorkshopId.MANCHESTER, 1L)));
+
+        Instant requestedAt = Instant.now();
+        MvcResult result = mvc.perform(
+                    get("/api/bootstrap")
+                ).andExpect(status().isOk())
+                .andExpect(jsonPath("$.workshops[0].workshopId").value("MANCHESTER"))
+                .andExpect(jsonPath("$.workshops[0].city").value("testCity"))
+                .andExpect(jsonPath("$.availableTimes.tireChangeTimes[0].id").value("1"))
+                .andExpect(jsonPath("$.availableTimes.tireChangeTimes[0].time").value("2024-08-08T06:00:00Z"))
+                .andExpect(jsonPath("$.availableTimes.workshopVersions.MANCHESTER").value(1))
+                .andReturn();
+        String eTag = result.getResponse().getHeader(HttpHeaders.ETAG);
+
+        mvc.perform(
+                    get("/api/bootstrap").header(HttpHeaders.IF_NONE_MATCH, eTag)
+                ).andExpect(status().isNotModified());
+        mvc.perform(
+                    get("/api/bootstrap").accept(MediaType.APPLICATION_CBOR)
+                ).andExpect(status().isNotAcceptable());
+
+        // The search starts from now rather than from the start of the day
+        ArgumentCaptor<TireChangeTimesFilter> filterCaptor = ArgumentCaptor.forClass(TireChangeTimesFilter.class);
+        verify(workshopsService, times(1)).getEarliestAvailableTireChangeTimes(filterCaptor.capture(), eq(50));
+        TireChangeTimesFilter filter = filterCaptor.getValue();
+        assertThat(filter.fromDate()).isBetween(requestedAt.truncatedTo(ChronoUnit.MINUTES), Instant.now());
+        assertThat(filter.toDate()).isEqualTo(filter.fromDate().plus(Duration.ofDays(TireChangeWebController.BOOTSTRAP_DAYS)));
+    }
+
     @Test
     public void testPostAvailableTireChangeTimes() throws Exception {
         String requestBody = """
@@ -116,6 +212,439 @@ public class TireChangeWebControllerTests {
                 .andExpect(responseBody().containsObjectAsJson(expectedJson, AvailableTireTimesDTO.class));
     }
 
+    @Test
+    public void testPostAvailableTireChangeTimesWritesEncodedTimes() throws Exception {
+        String requestBody = """
+                {
+                    "fromDate": "2023-08-09"
+                }
+                """;
+
+        TireChangeTimesFilter filter = new TireChangeTimesFilter(null, Instant.parse("2023-08-09T00:00:00Z"), null, null);
+
+        TireChangeTime encodedTime = new TireChangeTime(WorkshopId.LONDON, "a\"b", Instant.parse("2024-08-09T06:00:00Z"));
+        byte[] encodedJson = EncodedTimes.encode(encodedTime);
+        when(workshopsService.getEncodedTimes()).thenReturn(time -> time == encodedTime ? encodedJson : null);
+        TireChangeTime tireChangeTime = new TireChangeTime(WorkshopId.MANCHESTER, "1", Instant.parse("2024-08-08T06:00:00Z"));
+        AvailableTimesResponse availableTimesResponse = new AvailableTimesResponse(
+                List.of(encodedTime, tireChangeTime),
+                List.of(),
+                new TreeMap<>(Map.of(WorkshopId.MANCHESTER, 1L, WorkshopId.LONDON, 2L))
+        );
+
+        when(workshopsService.getAvailableTireChangeTimes(filter))
+                .thenReturn(availableTimesResponse);
+
+        String expectedJson = "{\"tireChangeTimes\":["
+                + "{\"workshopId\":\"MANCHESTER\",\"id\":\"1\",\"time\":\"2024-08-08T06:00:00Z\"},"
+                + "{\"workshopId\":\"LONDON\",\"id\":\"a\\\"b\",\"time\":\"2024-08-09T06:00:00Z\"}"
+                + "],\"failedWorkshopIds\":[],\"workshopVersions\":{\"MANCHESTER\":1,\"LONDON\":2}}";
+
+        mvc.perform(
+                    post("/api/tire-change-times/available")
+                            .content(requestBody).contentType(MediaType.APPLICATION_JSON)
+                ).andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(content().string(expectedJson));
+    }
+
+    @Test
+    public void testPostAvailableTireChangeTimesCompactFormats() throws Exception {
+        String requestBody = """
+                {
+                    "fromDate": "2023-08-09"
+                }
+                """;
+
+        TireChangeTimesFilter filter = new TireChangeTimesFilter(null, Instant.parse("2023-08-09T00:00:00Z"), null, null);
+
+        AvailableTimesResponse availableTimesResponse = new AvailableTimesResponse(
+                List.of(
+                        new TireChangeTime(WorkshopId.MANCHESTER, "1", Instant.parse("2024-08-08T06:00:00Z")),
+                        new TireChangeTime(WorkshopId.LONDON, "a", Instant.parse("2024-08-08T07:00:00Z")),
+                        new TireChangeTime(WorkshopId.MANCHESTER, "2", Instant.parse("2024-08-08T08:00:00Z"))
+                ),
+                List.of(WorkshopId.LONDON)
+        );
+
+        when(workshopsService.getAvailableTireChangeTimes(filter))
+                .thenReturn(availableTimesResponse);
+
+        Map<MediaType, ObjectMapper> mappers = Map.of(
+                MediaType.APPLICATION_CBOR, new CBORMapper(),
+                CompactAvailableTireTimesConverter.APPLICATION_SMILE, new SmileMapper()
+        );
+        for (Map.Entry<MediaType, ObjectMapper> mapper : mappers.entrySet()) {
+            byte[] response = mvc.perform(
+                        post("/api/tire-change-times/available")
+                                .content(requestBody).contentType(MediaType.APPLICATION_JSON)
+                                .accept(mapper.getKey())
+                    ).andExpect(status().isOk())
+                    .andExpect(content().contentType(mapper.getKey()))
+                    .andReturn().getResponse().getContentAsByteArray();
+
+            CompactAvailableTireTimesDTO dto = mapper.getValue().readValue(response, CompactAvailableTireTimesDTO.class);
+            assertThat(dto.workshops()).containsExactly(WorkshopId.MANCHESTER, WorkshopId.LONDON);
+            assertThat(dto.workshopIndexes()).containsExactly(0, 1, 0);
+            assertThat(dto.ids()).containsExactly("1", "a", "2");
+            assertThat(dto.epochSeconds()).containsExactly(
+                    Instant.parse("2024-08-08T06:00:00Z").getEpochSecond(),
+                    Instant.parse("2024-08-08T07:00:00Z").getEpochSecond(),
+                    Instant.parse("2024-08-08T08:00:00Z").getEpochSecond()
+            );
+            assertThat(dto.failedWorkshopIds()).containsExactly(WorkshopId.LONDON);
+            assertThat(dto.workshopVersions()).isNull();
+        }
+    }
+
+    @Test
+    public void testExportAvailableTireChangeTimes() throws Exception {
+        TireChangeTimesFilter filter = new TireChangeTimesFilter(null, Instant.parse("2023-08-09T00:00:00Z"), null, null);
+        AvailableTimesCursor after = new AvailableTimesCursor(Instant.parse("2024-08-08T05:00:00Z"), WorkshopId.LONDON, "0");
+        List<TireChangeTime> times = List.of(
+                new TireChangeTime(WorkshopId.MANCHESTER, "1", Instant.parse("2024-08-08T06:00:00Z")),
+                new TireChangeTime(WorkshopId.LONDON, "a,\"b", Instant.parse("2024-08-08T07:00:00Z"))
+        );
+
+        when(workshopsService.exportAvailableTireChangeTimes(filter, after))
+                .thenAnswer(invocation -> new AvailableTimesExport(times.iterator(), List.of(WorkshopId.LONDON)));
+        when(workshopsService.exportAvailableTireChangeTimes(filter, null))
+                .thenAnswer(invocation -> new AvailableTimesExport(times.iterator(), List.of()));
+
+        MvcResult ndjsonResult = mvc.perform(
+                    get("/api/tire-change-times/available/export")
+                            .param("fromDate", "2023-08-09")
+                            .param("afterTime", "2024-08-08T05:00:00Z")
+                            .param("afterWorkshopId", "LONDON")
+                            .param("afterId", "0")
+                ).andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(ndjsonResult))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andExpect(header().string(TireChangeWebController.FAILED_WORKSHOP_IDS_HEADER, "LONDON"))
+                .andExpect(content().string(
+                        "{\"workshopId\":\"MANCHESTER\",\"id\":\"1\",\"time\":\"2024-08-08T06:00:00Z\"}\n"
+                        + "{\"workshopId\":\"LONDON\",\"id\":\"a,\\\"b\",\"time\":\"2024-08-08T07:00:00Z\"}\n"
+                ));
+
+        MvcResult csvResult = mvc.perform(
+                    get("/api/tire-change-times/available/export")
+                            .param("fromDate", "2023-08-09")
+                            .param("format", "CSV")
+                            .header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate")
+                ).andExpect(request().asyncStarted())
+                .andReturn();
+        byte[] compressedCsv = mvc.perform(asyncDispatch(csvResult))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andReturn().getResponse().getContentAsByteArray();
+        try (GZIPInputStream csv = new GZIPInputStream(new ByteArrayInputStream(compressedCsv))) {
+            assertThat(new String(csv.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo(
+                    "workshopId,id,time\n"
+                    + "MANCHESTER,1,2024-08-08T06:00:00Z\n"
+                    + "LONDON,\"a,\"\"b\",2024-08-08T07:00:00Z\n"
+            );
+        }
+    }
+
+    @Test
+    public void testAcceptsGzip() {
+        assertThat(TireChangeWebController.acceptsGzip("gzip, deflate")).isTrue();
+        assertThat(TireChangeWebController.acceptsGzip("deflate;q=1, GZIP;q=0.5")).isTrue();
+        assertThat(TireChangeWebController.acceptsGzip("br, *;q=0.1")).isTrue();
+        assertThat(TireChangeWebController.acceptsGzip("gzip;q=0, *")).isFalse();
+        assertThat(TireChangeWebController.acceptsGzip("gzip; q=0.0")).isFalse();
+        assertThat(TireChangeWebController.acceptsGzip("deflate, identity")).isFalse();
+        assertThat(TireChangeWebController.acceptsGzip(null)).isFalse();
+    }
+
+    @Test
+    public void testExportAvailableTireChangeTimesIncompleteCursor() throws Exception {
+        mvc.perform(
+                    get("/api/tire-change-times/available/export")
+                            .param("fromDate", "2023-08-09")
+                            .param("afterId", "0")
+                ).andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void testPostAvailableTireChangeTimesBatch() throws Exception {
+        String requestBody = """
+                {
+                    "filters": [
+                        { "fromDate": "2023-08-09", "selectedWorkshops": ["LONDON"] },
+                        { "fromDate": "2023-08-10", "serviceableVehicles": ["TRUCK"] }
+                    ]
+                }
+                """;
+
+        List<TireChangeTimesFilter> filters = List.of(
+                new TireChangeTimesFilter(List.of(WorkshopId.LONDON), Instant.parse("2023-08-09T00:00:00Z"), null, null),
+                new TireChangeTimesFilter(null, Instant.parse("2023-08-10T00:00:00Z"), null, List.of(ServiceableVehicle.TRUCK))
+        );
+        TireChangeTime tireChangeTime = new TireChangeTime(WorkshopId.LONDON, "1", Instant.parse("2024-08-08T06:00:00Z"));
+
+        when(workshopsService.getAvailableTireChangeTimesBatch(filters))
+                .thenReturn(List.of(
+                        new AvailableTimesResponse(List.of(tireChangeTime), List.of()),
+                        new AvailableTimesResponse(List.of(), List.of(WorkshopId.LONDON))
+                ));
+
+        mvc.perform(
+                    post("/api/tire-change-times/available/batch")
+                            .content(requestBody).contentType(MediaType.APPLICATION_JSON)
+                ).andExpect(status().isOk())
+                .andExpect(jsonPath("$.results.length()").value(2))
+                .andExpect(jsonPath("$.results[0].tireChangeTimes[0].id").value("1"))
+                .andExpect(jsonPath("$.results[0].tireChangeTimes[0].time").value("2024-08-08T06:00:00Z"))
+                .andExpect(jsonPath("$.results[1].tireChangeTimes").isEmpty())
+                .andExpect(jsonPath("$.results[1].failedWorkshopIds[0]").value("LONDON"));
+    }
+
+    @Test
+    public void testPostAvailableTireChangeTimesLocalTimeFilter() throws Exception {
+        String requestBody = """
+                {
+                    "fromDate": "2023-08-09",
+                    "weekdays": ["MONDAY", "FRIDAY"],
+                    "timeOfDayFrom": "08:00",
+                    "timeOfDayTo": "12:00"
+                }
+                """;
+
+        TireChangeTimesFilter filter = new TireChangeTimesFilter(
+                null,
+                Instant.parse("2023-08-09T00:00:00Z"),
+                null,
+                null,
+                List.of(DayOfWeek.MONDAY, DayOfWeek.FRIDAY),
+                LocalTime.of(8, 0),
+                LocalTime.of(12, 0)
+        );
+
+        when(workshopsService.getAvailableTireChangeTimes(filter))
+                .thenReturn(new AvailableTimesResponse(List.of(), List.of()));
+
+        mvc.perform(
+                    post("/api/tire-change-times/available")
+                            .content(requestBody).contentType(MediaType.APPLICATION_JSON)
+                ).andExpect(status().isOk())
+                .andExpect(jsonPath("$.tireChangeTimes").isEmpty());
+    }
+
+    @Test
+    public void testGetAvailableTireChangeTimesConditional() throws Exception {
+        TireChangeTimesFilter filter = new TireChangeTimesFilter(
+                List.of(WorkshopId.MANCHESTER, WorkshopId.LONDON),
+                Instant.parse("2023-08-09T00:00:00Z"),
+                null,
+                null
+        );
+        TireChangeTime tireChangeTime = new TireChangeTime(WorkshopId.MANCHESTER, "1", Instant.parse("2024-08-08T06:00:00Z"));
+
+        when(workshopsService.getAvailableTimesVersions(filter))
+                .thenReturn(new TreeMap<>(Map.of(WorkshopId.MANCHESTER, 1L, WorkshopId.LONDON, 2L)));
+        when(workshopsService.getAvailableTireChangeTimes(filter))
+                .thenReturn(new AvailableTimesResponse(List.of(tireChangeTime), List.of()));
+
+        // Workshops are normalized, so the order of the parameters doesn't matter
+        MvcResult result = mvc.perform(
+                    get("/api/tire-change-times/available")
+                            .param("fromDate", "2023-08-09")
+                            .param("selectedWorkshops", "MANCHESTER", "LONDON", "LONDON")
+                ).andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=1200, must-revalidate"))
+                .andExpect(jsonPath("$.tireChangeTimes[0].id").value("1"))
+                .andReturn();
+        String eTag = result.getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(eTag).isNotBlank();
+
+        mvc.perform(
+                    get("/api/tire-change-times/available")
+                            .param("fromDate", "2023-08-09")
+                            .param("selectedWorkshops", "LONDON", "MANCHESTER")
+                            .header(HttpHeaders.IF_NONE_MATCH, eTag)
+                ).andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        verify(workshopsService, times(1)).getAvailableTireChangeTimes(filter);
+
+        // Changed version results in a new response
+        when(workshopsService.getAvailableTimesVersions(filter))
+                .thenReturn(new TreeMap<>(Map.of(WorkshopId.MANCHESTER, 3L, WorkshopId.LONDON, 2L)));
+
+        mvc.perform(
+                    get("/api/tire-change-times/available")
+                            .param("fromDate", "2023-08-09")
+                            .param("selectedWorkshops", "LONDON", "MANCHESTER")
+                            .header(HttpHeaders.IF_NONE_MATCH, eTag)
+                ).andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, not(eTag)));
+    }
+
+    @Test
+    public void testGetAvailableTireChangeTimesConditionalWithUncoveredDays() throws Exception {
+        TireChangeTimesFilter filter = new TireChangeTimesFilter(
+                List.of(WorkshopId.LONDON),
+                Instant.parse("2023-08-09T00:00:00Z"),
+                Instant.parse("2025-08-09T00:00:00Z"),
+                null
+        );
+        TireChangeTime tireChangeTime = new TireChangeTime(WorkshopId.LONDON, "1", Instant.parse("2024-08-08T06:00:00Z"));
+        TireChangeTime farTime = new TireChangeTime(WorkshopId.LONDON, "2", Instant.parse("2025-08-08T06:00:00Z"));
+        when(workshopsService.getAvailableTimesVersions(filter))
+                .thenReturn(new TreeMap<>(Map.of(WorkshopId.LONDON, 1L)));
+        when(workshopsService.getAvailableTireChangeTimes(filter))
+                .thenReturn(new AvailableTimesResponse(List.of(tireChangeTime), List.of()))
+                .thenReturn(new AvailableTimesResponse(List.of(tireChangeTime), List.of()))
+                .thenReturn(new AvailableTimesResponse(List.of(tireChangeTime, farTime), List.of()));
+
+        String eTag = mvc.perform(
+                    get("/api/tire-change-times/available")
+                            .param("fromDate", "2023-08-09")
+                            .param("toDate", "2025-08-09")
+                            .param("selectedWorkshops", "LONDON")
+                ).andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(eTag).isNotBlank();
+
+        // The far days are left to fetch after a failed fetch, while the versions stay the same
+        when(workshopsService.hasUncoveredDays(filter)).thenReturn(true);
+        mvc.perform(
+                    get("/api/tire-change-times/available")
+                            .param("fromDate", "2023-08-09")
+                            .param("toDate", "2025-08-09")
+                            .param("selectedWorkshops", "LONDON")
+                            .header(HttpHeaders.IF_NONE_MATCH, eTag)
+                ).andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.ETAG))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-store"))
+                .andExpect(jsonPath("$.tireChangeTimes.length()").value(1));
+
+        // Each request queries the times again, which fetches the far days
+        mvc.perform(
+                    get("/api/tire-change-times/available")
+                            .param("fromDate", "2023-08-09")
+                            .param("toDate", "2025-08-09")
+                            .param("selectedWorkshops", "LONDON")
+                            .header(HttpHeaders.IF_NONE_MATCH, eTag)
+                ).andExpect(status().isOk())
+                .andExpect(jsonPath("$.tireChangeTimes[1].id").value("2"));
+        verify(workshopsService, times(3)).getAvailableTireChangeTimes(filter);
+    }
+
+    @Test
+    public void testGetAvailableTireChangeTimesNegotiatedFormat() throws Exception {
+        TireChangeTimesFilter filter = new TireChangeTimesFilter(null, Instant.parse("2023-08-09T00:00:00Z"), null, null);
+        TireChangeTime tireChangeTime = new TireChangeTime(WorkshopId.MANCHESTER, "1", Instant.parse("2024-08-08T06:00:00Z"));
+
+        when(workshopsService.getAvailableTimesVersions(filter))
+                .thenReturn(new TreeMap<>(Map.of(WorkshopId.MANCHESTER, 1L)));
+        when(workshopsService.getAvailableTireChangeTimes(filter))
+                .thenReturn(new AvailableTimesResponse(List.of(tireChangeTime), List.of()));
+
+        String jsonETag = mvc.perform(
+                    get("/api/tire-change-times/available").param("fromDate", "2023-08-09")
+                            .accept(MediaType.APPLICATION_CBOR_VALUE + ";q=0.5, application/json")
+                ).andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(header().stringValues(HttpHeaders.VARY, hasItem(HttpHeaders.ACCEPT)))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // The ETag of the JSON response doesn't match the CBOR response, so a cache can't serve JSON for it
+        MvcResult cborResult = mvc.perform(
+                    get("/api/tire-change-times/available").param("fromDate", "2023-08-09")
+                            .accept(MediaType.APPLICATION_CBOR)
+                            .header(HttpHeaders.IF_NONE_MATCH, jsonETag)
+                ).andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andExpect(header().stringValues(HttpHeaders.VARY, hasItem(HttpHeaders.ACCEPT)))
+                .andExpect(header().string(HttpHeaders.ETAG, not(jsonETag)))
+                .andReturn();
+        CompactAvailableTireTimesDTO dto = new CBORMapper().readValue(
+                cborResult.getResponse().getContentAsByteArray(), CompactAvailableTireTimesDTO.class
+        );
+        assertThat(dto.ids()).containsExactly("1");
+
+        mvc.perform(
+                    get("/api/tire-change-times/available").param("fromDate", "2023-08-09")
+                            .accept(MediaType.APPLICATION_CBOR)
+                            .header(HttpHeaders.IF_NONE_MATCH, cborResult.getResponse().getHeader(HttpHeaders.ETAG))
+                ).andExpect(status().isNotModified())
+                .andExpect(header().stringValues(HttpHeaders.VARY, hasItem(HttpHeaders.ACCEPT)));
+
+        // Refused JSON is not served through the wildcard
+        mvc.perform(
+                    get("/api/tire-change-times/available").param("fromDate", "2023-08-09")
+                            .accept("application/json;q=0, */*")
+                ).andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR));
+        mvc.perform(
+                    get("/api/tire-change-times/available").param("fromDate", "2023-08-09")
+                            .accept(MediaType.TEXT_PLAIN)
+                ).andExpect(status().isNotAcceptable());
+    }
+
+    @Test
+    public void testPostAvailableTireChangeTimesChanges() throws Exception {
+        String requestBody = """
+                {
+                    "filter": {
+                        "fromDate": "2023-08-09"
+                    },
+                    "knownVersions": {
+                        "MANCHESTER": 5
+                    }
+                }
+                """;
+
+        TireChangeTimesFilter filter = new TireChangeTimesFilter(null, Instant.parse("2023-08-09T00:00:00Z"), null, null);
+
+        TireChangeTime addedTime = new TireChangeTime(WorkshopId.MANCHESTER, "2", Instant.parse("2024-08-09T06:00:00Z"));
+        TireChangeTime removedTime = new TireChangeTime(WorkshopId.MANCHESTER, "1", Instant.parse("2024-08-08T06:00:00Z"));
+        AvailableTimesDelta delta = new AvailableTimesDelta(
+                List.of(addedTime),
+                List.of(removedTime),
+                List.of(WorkshopId.LONDON),
+                List.of(),
+                Map.of(WorkshopId.MANCHESTER, 7L, WorkshopId.LONDON, 3L)
+        );
+
+        when(workshopsService.getAvailableTimesDelta(filter, Map.of(WorkshopId.MANCHESTER, 5L)))
+                .thenReturn(delta);
+
+        String expectedJson = """
+                {
+                    "addedTimes": [
+                        {
+                            "workshopId": "MANCHESTER",
+                            "id": "2",
+                            "time": "2024-08-09T06:00:00Z"
+                        }
+                    ],
+                    "removedTimes": [
+                        {
+                            "workshopId": "MANCHESTER",
+                            "id": "1",
+                            "time": "2024-08-08T06:00:00Z"
+                        }
+                    ],
+                    "resetWorkshopIds": ["LONDON"],
+                    "failedWorkshopIds": [],
+                    "workshopVersions": {
+                        "MANCHESTER": 7,
+                        "LONDON": 3
+                    }
+                }
+                """;
+
+        mvc.perform(
+                    post("/api/tire-change-times/available/changes")
+                            .content(requestBody).contentType(MediaType.APPLICATION_JSON)
+                ).andExpect(status().isOk())
+                .andExpect(responseBody().containsObjectAsJson(expectedJson, AvailableTimesChangesDTO.class));
+    }
+
     @Test
     public void testPostAvailableTireChangeTimesIllegalFilter() throws Exception {
         String requestBody = """
@@ -212,6 +741,87 @@ public class TireChangeWebControllerTests {
                 .andExpect(jsonPath("$.message").value("Internal server error"));
     }
 
+    @Test
+    public void testPostEarliestAvailableTireChangeTimes() throws Exception {
+        String requestBody = """
+                {
+                    "fromDate": "2023-08-09"
+                }
+                """;
+
+        TireChangeTimesFilter filter = new TireChangeTimesFilter(null, Instant.parse("2023-08-09T00:00:00Z"), null, null);
+
+        TireChangeTime tireChangeTime = new TireChangeTime(WorkshopId.MANCHESTER, "1", Instant.parse("2024-08-08T06:00:00Z"));
+        AvailableTimesResponse availableTimesResponse = new AvailableTimesResponse(List.of(tireChangeTime), List.of());
+
+        when(workshopsService.getEarliestAvailableTireChangeTimes(filter, 1))
+                .thenReturn(availableTimesResponse);
+
+        String expectedJson = """
+                {
+                     "tireChangeTimes": [
+                         {
+                             "workshopId": "MANCHESTER",
+                             "id": "1",
+                             "time": "2024-08-08T06:00:00Z"
+                         }
+                     ],
+                     "failedWorkshopIds": []
+                }
+                """;
+
+        mvc.perform(
+                    post("/api/tire-change-times/available/earliest")
+                            .param("limit", "1")
+                            .content(requestBody).contentType(MediaType.APPLICATION_JSON)
+                ).andExpect(status().isOk())
+                .andExpect(responseBody().containsObjectAsJson(expectedJson, AvailableTireTimesDTO.class));
+    }
+
+    @Test
+    public void testGetAvailableDays() throws Exception {
+        TireChangeTimesFilter filter = new TireChangeTimesFilter(
+                List.of(WorkshopId.LONDON),
+                Instant.parse("2024-08-01T00:00:00Z"),
+                Instant.parse("2024-09-01T00:00:00Z"),
+                null,
+                List.of(DayOfWeek.MONDAY, DayOfWeek.SATURDAY),
+                LocalTime.parse("08:00"),
+                LocalTime.parse("12:30")
+        );
+        AvailableDaysResponse availableDaysResponse = new AvailableDaysResponse(
+                List.of(new AvailableDaysResponse.AvailableDay(LocalDate.parse("2024-08-08"), 3, null)),
+                List.of()
+        );
+
+        when(workshopsService.getAvailableDays(filter, false))
+                .thenReturn(availableDaysResponse);
+
+        String expectedJson = """
+                {
+                     "days": [
+                         {
+                             "date": "2024-08-08",
+                             "count": 3
+                         }
+                     ],
+                     "failedWorkshopIds": []
+                }
+                """;
+
+        mvc.perform(
+                    get("/api/tire-change-times/available/days")
+                            .param("fromDate", "2024-08-01")
+                            .param("toDate", "2024-09-01")
+                            .param("selectedWorkshops", "LONDON")
+                            .param("weekdays", "SATURDAY", "MONDAY")
+                            .param("timeOfDayFrom", "08:00")
+                            .param("timeOfDayTo", "12:30")
+                ).andExpect(status().isOk())
+                .andExpect(jsonPath("$.days[0].workshopCounts").doesNotExist())
+                .andExpect(responseBody().containsObjectAsJson(expectedJson, AvailableDaysDTO.class));
+    }
+
     public static class ResponseBodyMatchers {
         private static final ObjectMapper objectMapper = new ObjectMapper();
 
@@ -0,0 +1,135 @@
+package com.alexisa.tire_reserve.service.events.bus;
+
+import com.alexisa.tire_reserve.model.domain.TireChangeTime;
+import com.alexisa.tire_reserve.model.domain.enums.WorkshopId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class SlotEventBusTests {
+
+    private SlotEventBus slotEventBus;
+
+    @AfterEach
+    public void tearDown() {
+        if (slotEventBus != null) {
+            slotEventBus.shutdown();
+        }
+    }
+
+    @Test
+    public void testRingSizeMustBePowerOfTwo() {
+        assertThrows(IllegalArgumentException.class, () -> new SlotEventBus(100));
+    }
+
+    @Test
+    public void testConsumersReceiveEventsInOrder() throws InterruptedException {
+        slotEventBus = new SlotEventBus(64);
+        int eventCount = 50;
+
+        List<Long> fastVersions = Collections.synchronizedList(new ArrayList<>());
+        List<String> slowTimeIds = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch latch = new CountDownLatch(2 * eventCount);
+        slotEventBus.addConsumer("fast", (event, sequence, endOfBatch) -> {
+            fastVersions.add(event.getVersion());
+            latch.countDown();
+        });
+        slotEventBus.addConsumer("slow", (event, sequence, endOfBatch) -> {
+            slowTimeIds.add(event.getTimeId());
+            sleep();
+            latch.countDown();
+        });
+
+        List<Long> expectedVersions = new ArrayList<>();
+        List<String> expectedTimeIds = new ArrayList<>();
+        for (int i = 0; i < eventCount; i++) {
+            TireChangeTime time = new TireChangeTime(WorkshopId.LONDON, String.valueOf(i), Instant.EPOCH);
+            slotEventBus.publish(SlotEventType.TIME_ADDED, WorkshopId.LONDON, i, time);
+            expectedVersions.add((long) i);
+            expectedTimeIds.add(String.valueOf(i));
+        }
+
+        assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(fastVersions).isEqualTo(expectedVersions);
+        assertThat(slowTimeIds).isEqualTo(expectedTimeIds);
+        assertThat(slotEventBus.getDroppedEvents()).isZero();
+        assertThat(slotEventBus.getCursor()).isEqualTo(eventCount - 1);
+    }
+
+    @Test
+    public void testStalledConsumerIsResyncedWithoutBlockingPublisher() throws InterruptedException {
+        slotEventBus = new SlotEventBus(4);
+        CountDownLatch stalled = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Long> versions = Collections.synchronizedList(new ArrayList<>());
+        slotEventBus.addConsumer("stalled", (event, sequence, endOfBatch) -> {
+            versions.add(event.getVersion());
+            stalled.countDown();
+            await(release);
+        });
+
+        slotEventBus.publish(SlotEventType.TIME_ADDED, WorkshopId.LONDON, 0, null);
+        assertThat(stalled.await(5, TimeUnit.SECONDS)).isTrue();
+        // Laps the stalled consumer several times
+        for (int i = 1; i < 50; i++) {
+            slotEventBus.publish(SlotEventType.TIME_ADDED, WorkshopId.LONDON, i, null);
+        }
+        release.countDown();
+
+        awaitBacklog();
+        // The events overwritten while the consumer was stalled are skipped, the rest arrive in order
+        assertThat(versions).startsWith(0L).endsWith(46L, 47L, 48L, 49L).isSorted();
+        assertThat(slotEventBus.getDroppedEvents()).isPositive();
+    }
+
+    @Test
+    public void testFailingConsumerDoesNotStopConsuming() throws InterruptedException {
+        slotEventBus = new SlotEventBus(8);
+        CountDownLatch latch = new CountDownLatch(2);
+        slotEventBus.addConsumer("failing", (event, sequence, endOfBatch) -> {
+            latch.countDown();
+            if (sequence == 0) {
+                throw new IllegalStateException("test");
+            }
+            throw new AssertionError("test");
+        });
+
+        slotEventBus.publish(SlotEventType.REFRESH_FAILED, WorkshopId.MANCHESTER, 0, null);
+        slotEventBus.publish(SlotEventType.REFRESH_FAILED, WorkshopId.MANCHESTER, 0, null);
+
+        assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    private void awaitBacklog() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (slotEventBus.getBacklog() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertThat(slotEventBus.getBacklog()).isZero();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.alexisa.tire_reserve.service.workshop;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class AdaptiveRefreshIntervalTests {
+
+    private static final Duration MIN = Duration.ofMinutes(2);
+    private static final Duration MAX = Duration.ofHours(2);
+
+    @Test
+    public void testIntervalFollowsChurn() {
+        AdaptiveRefreshInterval interval = new AdaptiveRefreshInterval(Duration.ofMinutes(20), MIN, MAX, 0.02);
+
+        assertThat(interval.update(0.02)).isEqualTo(Duration.ofMinutes(20));
+        assertThat(interval.update(0.04)).isEqualTo(Duration.ofMinutes(10));
+        // Steps are bounded, however far the churn is from the target
+        assertThat(interval.update(1)).isEqualTo(Duration.ofMinutes(5));
+        assertThat(interval.update(0)).isEqualTo(Duration.ofMinutes(10));
+        assertThat(interval.update(0.01)).isEqualTo(Duration.ofMinutes(20));
+        assertThat(interval.current()).isEqualTo(Duration.ofMinutes(20));
+    }
+
+    @Test
+    public void testIntervalWithinBounds() {
+        AdaptiveRefreshInterval interval = new AdaptiveRefreshInterval(Duration.ofHours(5), MIN, MAX, 0.02);
+        assertThat(interval.current()).isEqualTo(MAX);
+
+        for (int i = 0; i < 10; i++) {
+            interval.update(1);
+        }
+        assertThat(interval.current()).isEqualTo(MIN);
+
+        for (int i = 0; i < 10; i++) {
+            interval.update(0);
+        }
+        assertThat(interval.current()).isEqualTo(MAX);
+    }
+
+    @Test
+    public void testInvalidBounds() {
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveRefreshInterval(MIN, MAX, MIN, 0.02));
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveRefreshInterval(MIN, MIN, MAX, 0));
+    }
+}
@@ -0,0 +1,65 @@
+package com.alexisa.tire_reserve.service.workshop;
+
+import com.alexisa.tire_reserve.model.domain.EncodedTimes;
+import com.alexisa.tire_reserve.model.domain.TireChangeTime;
+import com.alexisa.tire_reserve.model.domain.enums.WorkshopId;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CachedWsAvailableTimesTests {
+
+    private static final Instant START = Instant.parse("2024-08-08T06:00:00Z");
+
+    @Test
+    public void testUnreservedIndexesInRange() {
+        List<TireChangeTime> times = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            times.add(new TireChangeTime(WorkshopId.LONDON, String.valueOf(i), START.plus(Duration.ofMinutes(30L * i))));
+        }
+        CachedWsAvailableTimes wsTimes = CachedWsAvailableTimes.fromTimes(WorkshopId.LONDON, ZoneOffset.UTC, times);
+        wsTimes.reserve(wsTimes.availableTimes().get(70));
+        wsTimes.reserve(wsTimes.availableTimes().get(150));
+
+        // Both ends are inclusive, reserved times are left out across mask words
+        BitSet expected = new BitSet();
+        expected.set(10, 161);
+        expected.clear(70);
+        expected.clear(150);
+        assertThat(wsTimes.unreservedIndexesInRange(START.plus(Duration.ofMinutes(300)), START.plus(Duration.ofMinutes(4800))))
+                .isEqualTo(expected);
+
+        expected = new BitSet();
+        expected.set(11, 200);
+        expected.clear(70);
+        expected.clear(150);
+        assertThat(wsTimes.unreservedIndexesInRange(START.plus(Duration.ofMinutes(301)), null)).isEqualTo(expected);
+
+        assertThat(wsTimes.unreservedIndexesInRange(START.minus(Duration.ofDays(2)), START.minus(Duration.ofDays(1)))).isEqualTo(new BitSet());
+    }
+
+    @Test
+    public void testEncodedTimesReusedFromPreviousTimes() {
+        TireChangeTime kept = new TireChangeTime(WorkshopId.LONDON, "1", START);
+        TireChangeTime removed = new TireChangeTime(WorkshopId.LONDON, "2", START.plus(Duration.ofHours(1)));
+        CachedWsAvailableTimes previousTimes = CachedWsAvailableTimes.fromTimes(WorkshopId.LONDON, ZoneOffset.UTC, List.of(kept, removed));
+
+        TireChangeTime keptAgain = new TireChangeTime(WorkshopId.LONDON, "1", START);
+        TireChangeTime added = new TireChangeTime(WorkshopId.LONDON, "3", START.plus(Duration.ofHours(2)));
+        CachedWsAvailableTimes wsTimes = CachedWsAvailableTimes.fromTimes(
+                WorkshopId.LONDON, ZoneOffset.UTC, List.of(added, keptAgain), previousTimes
+        );
+
+        // Times fetched again keep the bytes encoded for the previous times, only new times are encoded
+        assertThat(wsTimes.findEncodedJson(keptAgain)).isSameAs(previousTimes.findEncodedJson(kept));
+        assertThat(wsTimes.findEncodedJson(added)).isEqualTo(EncodedTimes.encode(added));
+        assertThat(wsTimes.findEncodedJson(removed)).isNull();
+    }
+}
@@ -0,0 +1,100 @@
+package com.alexisa.tire_reserve.service.workshop;
+
+import com.alexisa.tire_reserve.exceptions.service.workshops.WsServiceCommunicationException;
+import com.alexisa.tire_reserve.model.domain.TireChangeTime;
+import com.alexisa.tire_reserve.model.domain.enums.WorkshopId;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.Period;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ChunkedWindowFetcherTests {
+
+    private static final LocalDate FROM = LocalDate.of(2024, 1, 1);
+    private static final LocalDate UNTIL = LocalDate.of(2024, 7, 1);
+
+    private static TireChangeTime timeOf(LocalDate day) {
+        return new TireChangeTime(WorkshopId.LONDON, day.toString(), day.atTime(6, 0).toInstant(ZoneOffset.UTC));
+    }
+
+    @Test
+    public void testChunksStitchedInOrder() throws WsServiceCommunicationException {
+        ChunkedWindowFetcher fetcher = new ChunkedWindowFetcher(WorkshopId.LONDON, Period.ofMonths(1), 2, 0);
+        Map<LocalDate, LocalDate> requestedChunks = new ConcurrentHashMap<>();
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+
+        List<TireChangeTime> times = fetcher.fetch(FROM, UNTIL, (from, until) -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            requestedChunks.put(from, until);
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            running.decrementAndGet();
+            // Both edge days, as an api treating the end of the window as inclusive would return them
+            return List.of(timeOf(from), timeOf(until));
+        });
+
+        assertThat(requestedChunks).hasSize(6)
+                .containsEntry(FROM, LocalDate.of(2024, 2, 1))
+                .containsEntry(LocalDate.of(2024, 6, 1), UNTIL);
+        assertThat(maxRunning.get()).isLessThanOrEqualTo(2);
+        assertThat(times).extracting(TireChangeTime::getId).containsExactly(
+                "2024-01-01", "2024-02-01", "2024-03-01", "2024-04-01", "2024-05-01", "2024-06-01", "2024-07-01"
+        );
+    }
+
+    @Test
+    public void testFailedChunkRetriedOnItsOwn() throws WsServiceCommunicationException {
+        ChunkedWindowFetcher fetcher = new ChunkedWindowFetcher(WorkshopId.LONDON, Period.ofMonths(1), 4, 2);
+        Map<LocalDate, AtomicInteger> attempts = new ConcurrentHashMap<>();
+
+        List<TireChangeTime> times = fetcher.fetch(FROM, UNTIL, (from, until) -> {
+            int attempt = attempts.computeIfAbsent(from, key -> new AtomicInteger()).incrementAndGet();
+            if (from.getMonthValue() == 3 && attempt < 3) {
+                throw new WsServiceCommunicationException(WorkshopId.LONDON);
+            }
+            return List.of(timeOf(from));
+        });
+
+        assertThat(times).hasSize(6);
+        assertThat(attempts.get(LocalDate.of(2024, 3, 1))).hasValue(3);
+        assertThat(attempts.get(FROM)).hasValue(1);
+    }
+
+    @Test
+    public void testChunkFailingEveryRetry() {
+        ChunkedWindowFetcher fetcher = new ChunkedWindowFetcher(WorkshopId.LONDON, Period.ofMonths(1), 4, 1);
+
+        WsServiceCommunicationException e = assertThrows(WsServiceCommunicationException.class, () -> fetcher.fetch(
+                FROM,
+                UNTIL,
+                (from, until) -> {
+                    if (from.getMonthValue() == 5) {
+                        throw new WsServiceCommunicationException(WorkshopId.LONDON);
+                    }
+                    return List.of(timeOf(from));
+                }
+        ));
+        assertThat(e.getCausedBy()).isEqualTo(WorkshopId.LONDON);
+    }
+
+    @Test
+    public void testSingleChunkWindow() throws WsServiceCommunicationException {
+        ChunkedWindowFetcher fetcher = new ChunkedWindowFetcher(WorkshopId.LONDON, Period.ofYears(1), 4, 0);
+
+        List<TireChangeTime> times = fetcher.fetch(FROM, UNTIL, (from, until) -> List.of(timeOf(from), timeOf(until)));
+
+        assertThat(times).containsExactly(timeOf(FROM), timeOf(UNTIL));
+    }
+}
@@ -0,0 +1,104 @@
+package com.alexisa.tire_reserve.service.workshop;
+
+import com.alexisa.tire_reserve.model.domain.enums.WorkshopId;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.Period;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FetchedIntervalsTests {
+
+    private static final Instant NOW = Instant.parse("2024-08-08T12:00:00Z");
+    private static final LocalDate TODAY = LocalDate.ofInstant(NOW, ZoneOffset.UTC);
+
+    private final FetchedIntervals fetchedIntervals = new FetchedIntervals(
+            Period.ofYears(1), Duration.ofHours(5), List.of(), Duration.ofHours(2), 0.2
+    );
+
+    @Test
+    public void testUncoveredRanges() {
+        fetchedIntervals.reset(WorkshopId.LONDON, TODAY, TODAY.plusDays(10), NOW);
+        fetchedIntervals.record(WorkshopId.LONDON, TODAY.plusDays(20), TODAY.plusDays(30), NOW);
+
+        assertThat(fetchedIntervals.uncovered(WorkshopId.LONDON, TODAY, TODAY.plusDays(10), NOW)).isEmpty();
+        assertThat(fetchedIntervals.uncovered(WorkshopId.LONDON, TODAY.plusDays(5), TODAY.plusDays(40), NOW)).containsExactly(
+                new FetchedIntervals.DayRange(TODAY.plusDays(10), TODAY.plusDays(20)),
+                new FetchedIntervals.DayRange(TODAY.plusDays(30), TODAY.plusDays(40))
+        );
+        assertThat(fetchedIntervals.uncovered(WorkshopId.MANCHESTER, TODAY, TODAY.plusDays(10), NOW))
+                .containsExactly(new FetchedIntervals.DayRange(TODAY, TODAY.plusDays(10)));
+    }
+
+    @Test
+    public void testUncoveredRangesLimitedFromTodayUntilHorizon() {
+        assertThat(fetchedIntervals.uncovered(WorkshopId.LONDON, TODAY.minusDays(10), TODAY.plusYears(2), NOW))
+                .containsExactly(new FetchedIntervals.DayRange(TODAY, TODAY.plusYears(1)));
+        assertThat(fetchedIntervals.uncovered(WorkshopId.LONDON, TODAY.minusDays(10), TODAY, NOW)).isEmpty();
+        assertThat(fetchedIntervals.uncovered(WorkshopId.LONDON, TODAY.plusYears(1), TODAY.plusYears(2), NOW)).isEmpty();
+    }
+
+    @Test
+    public void testStaleRangesUncovered() {
+        fetchedIntervals.reset(WorkshopId.LONDON, TODAY, TODAY.plusDays(30), NOW.minus(Duration.ofHours(6)));
+        fetchedIntervals.record(WorkshopId.LONDON, TODAY.plusDays(10), TODAY.plusDays(20), NOW);
+
+        // The fresh window splits the stale one, the stale parts on both sides are uncovered
+        assertThat(fetchedIntervals.uncovered(WorkshopId.LONDON, TODAY, TODAY.plusDays(30), NOW)).containsExactly(
+                new FetchedIntervals.DayRange(TODAY, TODAY.plusDays(10)),
+                new FetchedIntervals.DayRange(TODAY.plusDays(20), TODAY.plusDays(30))
+        );
+
+        // Adjacent uncovered ranges are merged
+        fetchedIntervals.record(WorkshopId.LONDON, TODAY.plusDays(5), TODAY.plusDays(25), NOW.minus(Duration.ofHours(6)));
+        assertThat(fetchedIntervals.uncovered(WorkshopId.LONDON, TODAY, TODAY.plusDays(30), NOW))
+                .containsExactly(new FetchedIntervals.DayRange(TODAY, TODAY.plusDays(30)));
+
+        fetchedIntervals.clear(WorkshopId.LONDON);
+        fetchedIntervals.record(WorkshopId.LONDON, TODAY, TODAY.plusDays(30), NOW);
+        assertThat(fetchedIntervals.uncovered(WorkshopId.LONDON, TODAY, TODAY.plusDays(30), NOW)).isEmpty();
+    }
+
+    @Test
+    public void testMaxAgeCoversSlowestRefreshTier() {
+        FetchedIntervals tieredIntervals = new FetchedIntervals(
+                Period.ofYears(1), Duration.ofHours(5), List.of("P14D:PT5M", "P1Y:PT24H"), Duration.ofHours(2), 0.25
+        );
+        assertThat(tieredIntervals.getMaxAge()).isEqualTo(Duration.ofHours(30));
+
+        // Days the slowest tier refreshed a day ago are still covered
+        tieredIntervals.reset(WorkshopId.LONDON, TODAY, TODAY.plusDays(100), NOW.minus(Duration.ofHours(24)));
+        assertThat(tieredIntervals.uncovered(WorkshopId.LONDON, TODAY, TODAY.plusDays(100), NOW)).isEmpty();
+        assertThat(tieredIntervals.uncovered(WorkshopId.LONDON, TODAY, TODAY.plusDays(100), NOW.plus(Duration.ofHours(7))))
+                .containsExactly(new FetchedIntervals.DayRange(TODAY, TODAY.plusDays(100)));
+
+        // The refresh interval adapts up to the max interval, which then bounds the age
+        FetchedIntervals adaptedIntervals = new FetchedIntervals(
+                Period.ofYears(1), Duration.ofHours(5), List.of("P14D:PT5M"), Duration.ofHours(8), 0.25
+        );
+        assertThat(adaptedIntervals.getMaxAge()).isEqualTo(Duration.ofHours(10));
+    }
+
+    @Test
+    public void testSubtractRanges() {
+        List<FetchedIntervals.DayRange> ranges = List.of(
+                new FetchedIntervals.DayRange(TODAY, TODAY.plusDays(10)),
+                new FetchedIntervals.DayRange(TODAY.plusDays(20), TODAY.plusDays(30))
+        );
+
+        assertThat(FetchedIntervals.subtract(ranges, List.of(
+                new FetchedIntervals.DayRange(TODAY.plusDays(2), TODAY.plusDays(4)),
+                new FetchedIntervals.DayRange(TODAY.plusDays(8), TODAY.plusDays(22))
+        ))).containsExactly(
+                new FetchedIntervals.DayRange(TODAY, TODAY.plusDays(2)),
+                new FetchedIntervals.DayRange(TODAY.plusDays(4), TODAY.plusDays(8)),
+                new FetchedIntervals.DayRange(TODAY.plusDays(22), TODAY.plusDays(30))
+        );
+        assertThat(FetchedIntervals.subtract(ranges, List.of(new FetchedIntervals.DayRange(TODAY, TODAY.plusDays(30))))).isEmpty();
+    }
+}
@@ -18,10 +18,13 @@ import org.springframework.context.annotation.Import;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.web.client.MockRestServiceServer;
 
 import java.net.ConnectException;
 import java.net.URI;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
 import java.util.List;
 import java.util.Map;
 
@@ -30,6 +33,8 @@ import static org.springframework.test.web.client.match.MockRestRequestMatchers.
 import static org.springframework.test.web.client.response.MockRestResponseCreators.*;
 
 @RestClientTest(LondonWsApiService.class)
+// A window is requested at once and without retries, chunking is covered by ChunkedWindowFetcherTests
+@TestPropertySource(properties = {"workshops.fetch.chunk-size=P1Y", "workshops.fetch.chunk-retries=0"})
 @Import(LondonWsApiServiceTests.LondonWsApiServiceTestsContextConfiguration.class)
 public class LondonWsApiServiceTests {
 
@@ -41,7 +46,8 @@ public class LondonWsApiServiceTests {
                     "test",
                     "test",
                     "test",
-                    List.of(ServiceableVehicle.CAR)
+                    List.of(ServiceableVehicle.CAR),
+                    ZoneOffset.UTC
             ))
     );
 
@@ -98,6 +104,31 @@ public class LondonWsApiServiceTests {
         assertThat(availableTimes.size()).isEqualTo(2);
     }
 
+    @Test
+    public void testAvailableTimesWindow() throws WsServiceCommunicationException {
+
+        String response = """
+                <tireChangeTimesResponse>
+                  <availableTime>
+                    <uuid>adb6d5c2-9c0f-41e6-ae3c-edceea03a583</uuid>
+                    <time>2024-10-23T06:00:00Z</time>
+                  </availableTime>
+                </tireChangeTimesResponse>
+                """;
+
+        server.expect(requestTo("http://localhost:1111/api/test/tire-change-times/available?from=2024-10-20&until=2024-11-03"))
+                .andExpect(method(HttpMethod.GET))
+                .andRespond(withSuccess(response, MediaType.APPLICATION_XML));
+
+        List<TireChangeTime> availableTimes = apiService.getAvailableTireChangeTimes(
+                LocalDate.of(2024, 10, 20),
+                LocalDate.of(2024, 11, 3)
+        );
+
+        server.verify();
+        assertThat(availableTimes).hasSize(1);
+    }
+
     @Test
     public void testAllAvailableTimesInternalServerError(){
         String response = """
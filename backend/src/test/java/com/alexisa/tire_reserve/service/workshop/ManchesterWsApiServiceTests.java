@@ -21,6 +21,7 @@ import org.springframework.http.MediaType;
 import org.springframework.test.web.client.MockRestServiceServer;
 
 import java.net.ConnectException;
+import java.time.ZoneOffset;
 import java.util.List;
 import java.util.Map;
 
@@ -41,7 +42,8 @@ public class ManchesterWsApiServiceTests {
                     "test",
                     "test",
                     "test",
-                    List.of(ServiceableVehicle.CAR)
+                    List.of(ServiceableVehicle.CAR),
+                    ZoneOffset.UTC
             ))
     );
 
@@ -0,0 +1,37 @@
+package com.alexisa.tire_reserve.service.workshop;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.Period;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class RefreshTierTests {
+
+    @Test
+    public void testParseTiers() {
+        List<RefreshTier> tiers = RefreshTier.parse(List.of("P14D:PT5M", " P8W:PT1H", "P1Y:PT24H", ""));
+
+        assertThat(tiers).containsExactly(
+                new RefreshTier(Period.ZERO, Period.ofDays(14), Duration.ofMinutes(5)),
+                new RefreshTier(Period.ofDays(14), Period.ofWeeks(8), Duration.ofHours(1)),
+                new RefreshTier(Period.ofWeeks(8), Period.ofYears(1), Duration.ofHours(24))
+        );
+        LocalDate today = LocalDate.of(2024, 8, 8);
+        assertThat(tiers.get(1).fromDay(today)).isEqualTo(LocalDate.of(2024, 8, 22));
+        assertThat(tiers.get(1).untilDay(today)).isEqualTo(LocalDate.of(2024, 10, 3));
+        assertThat(RefreshTier.parse(List.of())).isEmpty();
+    }
+
+    @Test
+    public void testParseInvalidTiers() {
+        assertThrows(IllegalArgumentException.class, () -> RefreshTier.parse(List.of("P14D")));
+        assertThrows(IllegalArgumentException.class, () -> RefreshTier.parse(List.of("P14D:5 minutes")));
+        assertThrows(IllegalArgumentException.class, () -> RefreshTier.parse(List.of("P14D:PT5M", "P7D:PT1H")));
+        assertThrows(IllegalArgumentException.class, () -> RefreshTier.parse(List.of("P14D:PT0S")));
+    }
+}
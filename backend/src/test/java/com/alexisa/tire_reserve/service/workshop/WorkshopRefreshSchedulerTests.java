@@ -0,0 +1,26 @@
+package com.alexisa.tire_reserve.service.workshop;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class WorkshopRefreshSchedulerTests {
+
+    @Test
+    public void testNextDelayWithinJitter() {
+        Duration interval = Duration.ofMinutes(20);
+        boolean sawShorter = false;
+        boolean sawLonger = false;
+        for (int i = 0; i < 1000; i++) {
+            Duration delay = WorkshopRefreshScheduler.nextDelay(interval, 0.2);
+            assertThat(delay).isBetween(Duration.ofMinutes(16), Duration.ofMinutes(24));
+            sawShorter |= delay.compareTo(interval) < 0;
+            sawLonger |= delay.compareTo(interval) > 0;
+        }
+        assertThat(sawShorter).isTrue();
+        assertThat(sawLonger).isTrue();
+        assertThat(WorkshopRefreshScheduler.nextDelay(interval, 0)).isEqualTo(interval);
+    }
+}
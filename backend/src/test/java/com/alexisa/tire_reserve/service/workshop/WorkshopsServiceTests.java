@@ -3,28 +3,53 @@ package com.alexisa.tire_reserve.service.workshop;
 import com.alexisa.tire_reserve.config.WorkshopsProperties;
 import com.alexisa.tire_reserve.exceptions.service.workshops.WsServiceCommunicationException;
 import com.alexisa.tire_reserve.exceptions.service.workshops.response.WsServiceResponseException;
+import com.alexisa.tire_reserve.model.domain.AvailableDaysResponse;
+import com.alexisa.tire_reserve.model.domain.AvailableTimesCursor;
+import com.alexisa.tire_reserve.model.domain.AvailableTimesDelta;
+import com.alexisa.tire_reserve.model.domain.AvailableTimesExport;
 import com.alexisa.tire_reserve.model.domain.AvailableTimesResponse;
 import com.alexisa.tire_reserve.model.domain.BookTimeRequest;
 import com.alexisa.tire_reserve.model.domain.TireChangeTime;
 import com.alexisa.tire_reserve.model.domain.TireChangeTimesFilter;
 import com.alexisa.tire_reserve.model.domain.enums.ServiceableVehicle;
 import com.alexisa.tire_reserve.model.domain.enums.WorkshopId;
+import com.alexisa.tire_reserve.service.events.bus.SlotEventBus;
+import com.alexisa.tire_reserve.service.events.bus.SlotEventType;
+import com.alexisa.tire_reserve.service.workshop.snapshot.AvailableTimesSnapshotStore;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import com.google.common.testing.FakeTicker;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpStatus;
 
+import java.nio.file.Path;
+import java.time.DayOfWeek;
 import java.time.Duration;
 import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.Period;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -37,14 +62,16 @@ public class WorkshopsServiceTests {
                             WorkshopId.MANCHESTER,
                             "http://localhost:1111/api/v2/test",
                             "test", "test", "test", "test",
-                            List.of(ServiceableVehicle.CAR)
+                            List.of(ServiceableVehicle.CAR),
+                            ZoneOffset.UTC
                     ),
                     "london",
                     new WorkshopsProperties.WorkshopProperties(
                             WorkshopId.LONDON,
                             "http://localhost:1111/api/test",
                             "test", "test", "test", "test",
-                            List.of(ServiceableVehicle.CAR, ServiceableVehicle.TRUCK)
+                            List.of(ServiceableVehicle.CAR, ServiceableVehicle.TRUCK),
+                            ZoneOffset.UTC
                     )
             )
     );
@@ -60,7 +87,16 @@ public class WorkshopsServiceTests {
             .executor(Runnable::run)
             .expireAfterWrite(Duration.ofMinutes(60));
 
+    private WorkshopTimesRefresher refresher;
+    private UncoveredWindowLoader uncoveredWindowLoader;
     private WorkshopsService workshopsService;
+    private SlotEventBus slotEventBus;
+    private AvailableTimesResultCache resultCache;
+    private ParallelFilterPool filterPool;
+    private AvailableTimesSnapshotStore snapshotStore;
+    private FetchedIntervals fetchedIntervals;
+    @TempDir
+    private Path snapshotDirectory;
 
     @Mock(strictness = Mock.Strictness.LENIENT)
     private ManchesterWsApiService manchesterWsApiService;
@@ -86,10 +122,22 @@ public class WorkshopsServiceTests {
                 londonTime2
         );
 
-        workshopsService = new WorkshopsService(WORKSHOPS_PROPERTIES, CAFFEINE_MOCK, londonWsApiService, manchesterWsApiService);
+        slotEventBus = new SlotEventBus(64);
+        resultCache = new AvailableTimesResultCache(16);
+        // Splits every range, so the filters are checked over the parallel chunks as well
+        filterPool = new ParallelFilterPool(1, 2);
+        snapshotStore = new AvailableTimesSnapshotStore(snapshotDirectory.toString(), Duration.ofHours(5));
+        fetchedIntervals = new FetchedIntervals(Period.ofYears(2), Duration.ofHours(5), List.of(), Duration.ofHours(2), 0.2);
+        refresher = new WorkshopTimesRefresher(
+                WORKSHOPS_PROPERTIES, CAFFEINE_MOCK, londonWsApiService, manchesterWsApiService, slotEventBus, resultCache,
+                snapshotStore, fetchedIntervals
+        );
+        uncoveredWindowLoader = new UncoveredWindowLoader(refresher, fetchedIntervals, Duration.ofSeconds(5));
+        workshopsService = new WorkshopsService(refresher, uncoveredWindowLoader, slotEventBus, resultCache, filterPool);
 
         when(manchesterWsApiService.getWorkshopProperties()).thenReturn(WORKSHOPS_PROPERTIES.map().get("manchester"));
         when(londonWsApiService.getWorkshopProperties()).thenReturn(WORKSHOPS_PROPERTIES.map().get("london"));
+        when(londonWsApiService.getPrefetchHorizon()).thenReturn(Period.ofWeeks(8));
 
         when(manchesterWsApiService.getAllAvailableTireChangeTimes()).thenReturn(allManchesterTimes);
         when(londonWsApiService.getAllAvailableTireChangeTimes()).thenReturn(allLondonTimes);
@@ -97,6 +145,13 @@ public class WorkshopsServiceTests {
         when(manchesterWsApiService.bookDesiredTime(BOOK_TIME_REQUEST)).thenReturn(manchesterTime1);
     }
 
+    @AfterEach
+    public void tearDown() {
+        uncoveredWindowLoader.shutdown();
+        slotEventBus.shutdown();
+        filterPool.shutdown();
+    }
+
     @Test
     public void testWorkshopsProperties() {
         assertThat(workshopsService.getWorkshops()).containsAll(WORKSHOPS_PROPERTIES.map().values());
@@ -266,6 +321,282 @@ public class WorkshopsServiceTests {
         assertThat(availableTimesResponse.availableTimes()).doesNotContain(manchesterTime1);
     }
 
+    @Test
+    public void testAvailableTimesResultCache() throws WsServiceCommunicationException {
+        TireChangeTimesFilter dayFilter = new TireChangeTimesFilter(
+                null,
+                Instant.parse("2024-08-08T00:00:00Z"),
+                Instant.parse("2024-08-10T00:00:00Z"),
+                null
+        );
+        AvailableTimesResponse availableTimesResponse = workshopsService.getAvailableTireChangeTimes(dayFilter);
+        assertThat(availableTimesResponse.availableTimes())
+                .containsExactly(manchesterTime1, londonTime1, manchesterTime2, londonTime2);
+        assertThat(resultCache.size()).isEqualTo(1);
+
+        // Same workshops selected explicitly and a range within the same days share the cached result
+        TireChangeTimesFilter narrowerFilter = new TireChangeTimesFilter(
+                List.of(WorkshopId.MANCHESTER, WorkshopId.LONDON),
+                Instant.parse("2024-08-08T12:00:00Z"),
+                Instant.parse("2024-08-09T23:00:00Z"),
+                null
+        );
+        availableTimesResponse = workshopsService.getAvailableTireChangeTimes(narrowerFilter);
+        assertThat(availableTimesResponse.availableTimes()).containsExactly(manchesterTime2, londonTime2);
+        assertThat(resultCache.size()).isEqualTo(1);
+        assertThat(resultCache.hitCount()).isEqualTo(1);
+
+        // Booking drops the results of the workshop and changes its version
+        workshopsService.bookTime(BOOK_TIME_REQUEST);
+        assertThat(resultCache.size()).isEqualTo(0);
+
+        availableTimesResponse = workshopsService.getAvailableTireChangeTimes(dayFilter);
+        assertThat(availableTimesResponse.availableTimes()).containsExactly(londonTime1, manchesterTime2, londonTime2);
+        assertThat(resultCache.hitCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testAvailableTimesCombinedFilters() {
+        TireChangeTimesFilter tireChangeTimesFilter = new TireChangeTimesFilter(
+                List.of(WorkshopId.MANCHESTER, WorkshopId.LONDON),
+                Instant.parse("2024-08-08T06:00:01Z"),
+                null,
+                List.of(ServiceableVehicle.TRUCK),
+                List.of(DayOfWeek.FRIDAY),
+                null,
+                null
+        );
+        AvailableTimesResponse availableTimesResponse = workshopsService.getAvailableTireChangeTimes(tireChangeTimesFilter);
+
+        assertThat(availableTimesResponse.availableTimes()).containsExactly(londonTime2);
+        assertThat(availableTimesResponse.workshopVersions()).containsOnlyKeys(WorkshopId.LONDON);
+    }
+
+    @Test
+    public void testSnapshotsServedAfterRestart() throws WsServiceCommunicationException {
+        TireChangeTimesFilter filter = new TireChangeTimesFilter(null, BEFORE_ALL, null, null);
+        Map<WorkshopId, Long> versions = workshopsService.getAvailableTireChangeTimes(filter).workshopVersions();
+
+        // Refreshes only run once the collected tasks are run
+        List<Runnable> deferredTasks = new ArrayList<>();
+        AvailableTimesResultCache restartedResultCache = new AvailableTimesResultCache(16);
+        FetchedIntervals restartedFetchedIntervals = new FetchedIntervals(Period.ofYears(2), Duration.ofHours(5), List.of(), Duration.ofHours(2), 0.2);
+        WorkshopTimesRefresher restartedRefresher = new WorkshopTimesRefresher(
+                WORKSHOPS_PROPERTIES, Caffeine.newBuilder().executor(deferredTasks::add), londonWsApiService, manchesterWsApiService,
+                slotEventBus, restartedResultCache, snapshotStore, restartedFetchedIntervals
+        );
+        UncoveredWindowLoader restartedLoader = new UncoveredWindowLoader(restartedRefresher, restartedFetchedIntervals, Duration.ofSeconds(5));
+        WorkshopsService restartedService = new WorkshopsService(restartedRefresher, restartedLoader, slotEventBus, restartedResultCache, filterPool);
+        TireChangeTime newLondonTime = new TireChangeTime(WorkshopId.LONDON, "3", Instant.parse("2024-08-10T06:00:00Z"));
+        when(londonWsApiService.getAllAvailableTireChangeTimes()).thenReturn(List.of(londonTime1, londonTime2, newLondonTime));
+
+        restartedRefresher.restoreSnapshots();
+
+        AvailableTimesResponse restoredResponse = restartedService.getAvailableTireChangeTimes(filter);
+        assertThat(restoredResponse.availableTimes())
+                .containsExactly(manchesterTime1, londonTime1, manchesterTime2, londonTime2);
+        assertThat(restoredResponse.workshopVersions()).isEqualTo(versions);
+        assertThat(restartedService.getRestoredSnapshotAge()).isNotNull();
+
+        deferredTasks.forEach(Runnable::run);
+
+        assertThat(restartedService.getAvailableTireChangeTimes(filter).availableTimes()).contains(newLondonTime);
+        assertThat(restartedService.getRestoredSnapshotAge()).isNull();
+        restartedLoader.shutdown();
+    }
+
+    @Test
+    public void testRefreshWorkshop() throws WsServiceCommunicationException {
+        TireChangeTimesFilter filter = new TireChangeTimesFilter(null, BEFORE_ALL, null, null);
+        Map<WorkshopId, Long> versions = workshopsService.getAvailableTireChangeTimes(filter).workshopVersions();
+        TireChangeTime newLondonTime = new TireChangeTime(WorkshopId.LONDON, "3", Instant.parse("2024-08-10T06:00:00Z"));
+        when(londonWsApiService.getAllAvailableTireChangeTimes()).thenReturn(List.of(londonTime2, newLondonTime));
+
+        // One of the two times was removed and one added
+        assertThat(refresher.refreshWorkshop(WorkshopId.LONDON)).hasValue(1.0);
+        assertThat(refresher.refreshWorkshop(WorkshopId.LONDON)).hasValue(0.0);
+
+        AvailableTimesResponse response = workshopsService.getAvailableTireChangeTimes(filter);
+        assertThat(response.availableTimes()).containsExactly(manchesterTime1, manchesterTime2, londonTime2, newLondonTime);
+        assertThat(response.workshopVersions().get(WorkshopId.MANCHESTER)).isEqualTo(versions.get(WorkshopId.MANCHESTER));
+        assertThat(response.workshopVersions().get(WorkshopId.LONDON)).isGreaterThan(versions.get(WorkshopId.LONDON));
+        verify(manchesterWsApiService, times(1)).getAllAvailableTireChangeTimes();
+
+        AvailableTimesDelta delta = workshopsService.getAvailableTimesDelta(filter, versions);
+        assertThat(delta.addedTimes()).containsExactly(newLondonTime);
+        assertThat(delta.removedTimes()).containsExactly(londonTime1);
+    }
+
+    @Test
+    public void testFailedRefreshWorkshopKeepsCachedTimes() throws WsServiceCommunicationException {
+        TireChangeTimesFilter filter = new TireChangeTimesFilter(null, BEFORE_ALL, null, null);
+        AvailableTimesResponse response = workshopsService.getAvailableTireChangeTimes(filter);
+        when(londonWsApiService.getAllAvailableTireChangeTimes())
+                .thenThrow(new WsServiceCommunicationException(WorkshopId.LONDON));
+
+        assertThat(refresher.refreshWorkshop(WorkshopId.LONDON)).isEmpty();
+
+        // Served from the cached times without loading the workshops again
+        AvailableTimesResponse responseAfterFailure = workshopsService.getAvailableTireChangeTimes(filter);
+        assertThat(responseAfterFailure.availableTimes()).isEqualTo(response.availableTimes());
+        assertThat(responseAfterFailure.failedWorkshops()).isEmpty();
+        assertThat(responseAfterFailure.workshopVersions()).isEqualTo(response.workshopVersions());
+        verify(manchesterWsApiService, times(1)).getAllAvailableTireChangeTimes();
+        verify(londonWsApiService, times(2)).getAllAvailableTireChangeTimes();
+    }
+
+    @Test
+    public void testBookingDuringRefreshCarriedOver() throws WsServiceCommunicationException {
+        TireChangeTimesFilter filter = new TireChangeTimesFilter(List.of(WorkshopId.LONDON), BEFORE_ALL, null, null);
+        Map<WorkshopId, Long> versions = workshopsService.getAvailableTireChangeTimes(filter).workshopVersions();
+        BookTimeRequest bookTimeRequest = new BookTimeRequest("test", "1", WorkshopId.LONDON);
+        when(londonWsApiService.bookDesiredTime(bookTimeRequest)).thenReturn(londonTime1);
+        // The time is booked after the workshop answered, so the fetched times still contain it
+        when(londonWsApiService.getAllAvailableTireChangeTimes()).thenAnswer(invocation -> {
+            List<TireChangeTime> fetchedTimes = List.of(
+                    new TireChangeTime(WorkshopId.LONDON, "1", londonTime1.getInstant()),
+                    new TireChangeTime(WorkshopId.LONDON, "2", londonTime2.getInstant())
+            );
+            workshopsService.bookTime(bookTimeRequest);
+            return fetchedTimes;
+        });
+
+        refresher.refreshWorkshop(WorkshopId.LONDON);
+
+        assertThat(workshopsService.getAvailableTireChangeTimes(filter).availableTimes()).containsExactly(londonTime2);
+        assertThat(workshopsService.getEarliestAvailableTireChangeTimes(filter, 10).availableTimes()).containsExactly(londonTime2);
+        assertThat(workshopsService.getAvailableDays(filter, false).availableDays()).containsExactly(
+                new AvailableDaysResponse.AvailableDay(LocalDate.parse("2024-08-09"), 1, null)
+        );
+        AvailableTimesDelta delta = workshopsService.getAvailableTimesDelta(filter, versions);
+        assertThat(delta.addedTimes()).isEmpty();
+        assertThat(delta.removedTimes()).containsExactly(londonTime1);
+    }
+
+    @Test
+    public void testConcurrentRefreshesOfWorkshopApplyInOrder() throws Exception {
+        TireChangeTimesFilter filter = new TireChangeTimesFilter(List.of(WorkshopId.LONDON), BEFORE_ALL, null, null);
+        Map<WorkshopId, Long> versions = workshopsService.getAvailableTireChangeTimes(filter).workshopVersions();
+        TireChangeTime newLondonTime = new TireChangeTime(WorkshopId.LONDON, "3", Instant.parse("2024-08-10T06:00:00Z"));
+        CountDownLatch firstFetchStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirstFetch = new CountDownLatch(1);
+        AtomicInteger fetchesInProgress = new AtomicInteger();
+        AtomicInteger maxFetchesInProgress = new AtomicInteger();
+        AtomicInteger fetches = new AtomicInteger();
+        when(londonWsApiService.getAllAvailableTireChangeTimes()).thenAnswer(invocation -> {
+            maxFetchesInProgress.accumulateAndGet(fetchesInProgress.incrementAndGet(), Math::max);
+            try {
+                if (fetches.incrementAndGet() == 1) {
+                    firstFetchStarted.countDown();
+                    releaseFirstFetch.await(5, TimeUnit.SECONDS);
+                    return List.of(londonTime2);
+                }
+                return List.of(londonTime2, newLondonTime);
+            } finally {
+                fetchesInProgress.decrementAndGet();
+            }
+        });
+
+        Thread firstRefresh = new Thread(() -> refresher.refreshWorkshop(WorkshopId.LONDON));
+        firstRefresh.start();
+        assertThat(firstFetchStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        Thread secondRefresh = new Thread(() -> refresher.refreshWorkshop(WorkshopId.LONDON));
+        secondRefresh.start();
+        // The second refresh waits for the first one instead of fetching alongside it
+        secondRefresh.join(200);
+        assertThat(secondRefresh.isAlive()).isTrue();
+        releaseFirstFetch.countDown();
+        firstRefresh.join(5000);
+        secondRefresh.join(5000);
+
+        assertThat(maxFetchesInProgress.get()).isEqualTo(1);
+        assertThat(workshopsService.getAvailableTireChangeTimes(filter).availableTimes()).containsExactly(londonTime2, newLondonTime);
+        AvailableTimesDelta delta = workshopsService.getAvailableTimesDelta(filter, versions);
+        assertThat(delta.addedTimes()).containsExactly(newLondonTime);
+        assertThat(delta.removedTimes()).containsExactly(londonTime1);
+        assertThat(snapshotStore.load(WorkshopId.LONDON).orElseThrow().times()).containsExactly(londonTime2, newLondonTime);
+    }
+
+    @Test
+    public void testRefreshWorkshopWindow() throws WsServiceCommunicationException {
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        TireChangeTime nearTime = new TireChangeTime(WorkshopId.LONDON, "near", today.plusDays(1).atTime(6, 0).toInstant(ZoneOffset.UTC));
+        TireChangeTime farTime = new TireChangeTime(WorkshopId.LONDON, "far", today.plusDays(30).atTime(6, 0).toInstant(ZoneOffset.UTC));
+        TireChangeTime newNearTime = new TireChangeTime(WorkshopId.LONDON, "new", today.plusDays(2).atTime(6, 0).toInstant(ZoneOffset.UTC));
+        when(londonWsApiService.getAllAvailableTireChangeTimes()).thenReturn(List.of(londonTime1, nearTime, farTime));
+        when(londonWsApiService.getAvailableTireChangeTimes(today, today.plusDays(14))).thenReturn(List.of(newNearTime, farTime));
+        TireChangeTimesFilter filter = new TireChangeTimesFilter(List.of(WorkshopId.LONDON), BEFORE_ALL, null, null);
+        workshopsService.getAvailableTireChangeTimes(filter);
+
+        assertThat(refresher.isWindowed(WorkshopId.LONDON)).isTrue();
+        assertThat(refresher.isWindowed(WorkshopId.MANCHESTER)).isFalse();
+        // The near time was replaced by the new one, the far time outside the window is left as it is
+        assertThat(refresher.refreshWorkshopWindow(WorkshopId.LONDON, today, today.plusDays(14))).hasValue(2.0);
+
+        // Past times are dropped
+        assertThat(workshopsService.getAvailableTireChangeTimes(filter).availableTimes()).containsExactly(newNearTime, farTime);
+        verify(londonWsApiService, times(1)).getAllAvailableTireChangeTimes();
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> refresher.refreshWorkshopWindow(WorkshopId.MANCHESTER, today, today.plusDays(14))
+        );
+    }
+
+    @Test
+    public void testUncoveredWindowsFetchedOnDemand() throws WsServiceCommunicationException {
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        TireChangeTime nearTime = new TireChangeTime(WorkshopId.LONDON, "near", today.plusDays(1).atTime(6, 0).toInstant(ZoneOffset.UTC));
+        TireChangeTime farTime = new TireChangeTime(WorkshopId.LONDON, "far", today.plusDays(100).atTime(6, 0).toInstant(ZoneOffset.UTC));
+        when(londonWsApiService.getAllAvailableTireChangeTimes()).thenReturn(List.of(nearTime));
+        when(londonWsApiService.getAvailableTireChangeTimes(today.plusWeeks(8), today.plusDays(111))).thenReturn(List.of(farTime));
+        Instant from = today.atStartOfDay(ZoneOffset.UTC).toInstant();
+
+        // Within the prefetched horizon and open ended searches aren't fetched on demand
+        assertThat(workshopsService.getAvailableTireChangeTimes(new TireChangeTimesFilter(
+                List.of(WorkshopId.LONDON), from, from.plus(Duration.ofDays(30)), null
+        )).availableTimes()).containsExactly(nearTime);
+        assertThat(workshopsService.getAvailableTireChangeTimes(new TireChangeTimesFilter(
+                List.of(WorkshopId.LONDON), from, null, null
+        )).availableTimes()).containsExactly(nearTime);
+
+        // Checking the versions doesn't fetch
+        TireChangeTimesFilter filter = new TireChangeTimesFilter(List.of(WorkshopId.LONDON), from, from.plus(Duration.ofDays(110)), null);
+        workshopsService.getAvailableTimesVersions(filter);
+        verify(londonWsApiService, never()).getAvailableTireChangeTimes(any(), any());
+
+        // Only the days past the prefetched horizon are fetched, once
+        assertThat(workshopsService.getAvailableTireChangeTimes(filter).availableTimes()).containsExactly(nearTime, farTime);
+        assertThat(workshopsService.getAvailableTireChangeTimes(filter).availableTimes()).containsExactly(nearTime, farTime);
+        verify(londonWsApiService, times(1)).getAllAvailableTireChangeTimes();
+        verify(londonWsApiService, times(1)).getAvailableTireChangeTimes(today.plusWeeks(8), today.plusDays(111));
+        assertThat(fetchedIntervals.uncovered(WorkshopId.LONDON, today, today.plusDays(111), Instant.now())).isEmpty();
+    }
+
+    @Test
+    public void testFailedOnDemandFetchLeavesDaysUncovered() throws WsServiceCommunicationException {
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        TireChangeTime farTime = new TireChangeTime(WorkshopId.LONDON, "far", today.plusDays(100).atTime(6, 0).toInstant(ZoneOffset.UTC));
+        when(londonWsApiService.getAllAvailableTireChangeTimes()).thenReturn(List.of());
+        when(londonWsApiService.getAvailableTireChangeTimes(today.plusWeeks(8), today.plusDays(111)))
+                .thenThrow(new WsServiceCommunicationException(WorkshopId.LONDON))
+                .thenReturn(List.of(farTime));
+        Instant from = today.atStartOfDay(ZoneOffset.UTC).toInstant();
+        TireChangeTimesFilter filter = new TireChangeTimesFilter(List.of(WorkshopId.LONDON), from, from.plus(Duration.ofDays(110)), null);
+        workshopsService.prefetchAvailableTimes();
+        assertThat(workshopsService.hasUncoveredDays(filter)).isTrue();
+
+        // The failed fetch keeps the version, the days stay uncovered until they are fetched
+        Map<WorkshopId, Long> versions = workshopsService.getAvailableTimesVersions(filter);
+        assertThat(workshopsService.getAvailableTireChangeTimes(filter).availableTimes()).isEmpty();
+        assertThat(workshopsService.getAvailableTimesVersions(filter)).isEqualTo(versions);
+        assertThat(workshopsService.hasUncoveredDays(filter)).isTrue();
+
+        assertThat(workshopsService.getAvailableTireChangeTimes(filter).availableTimes()).containsExactly(farTime);
+        assertThat(workshopsService.hasUncoveredDays(filter)).isFalse();
+        // Open ended searches are answered from the fetched days
+        assertThat(workshopsService.hasUncoveredDays(new TireChangeTimesFilter(List.of(WorkshopId.LONDON), from, null, null))).isFalse();
+    }
+
     @Test
     public void testBookDesiredTimeCommunicationException() throws WsServiceCommunicationException {
         when(manchesterWsApiService.bookDesiredTime(BOOK_TIME_REQUEST))
@@ -325,4 +656,387 @@ public class WorkshopsServiceTests {
         assertThat(availableTimesResponse.availableTimes()).doesNotContain(manchesterTime1);
 
     }
+
+    @Test
+    public void testEarliestAvailableTimes() {
+        TireChangeTimesFilter tireChangeTimesFilter = new TireChangeTimesFilter(
+                null,
+                BEFORE_ALL,
+                null,
+                null
+        );
+        AvailableTimesResponse availableTimesResponse = workshopsService.getEarliestAvailableTireChangeTimes(tireChangeTimesFilter, 3);
+
+        assertThat(availableTimesResponse.availableTimes().size()).isEqualTo(3);
+        assertThat(availableTimesResponse.availableTimes().subList(0, 2)).containsAll(List.of(manchesterTime1, londonTime1));
+        assertThat(availableTimesResponse.availableTimes().get(2).getInstant()).isEqualTo(manchesterTime2.getInstant());
+
+        tireChangeTimesFilter = new TireChangeTimesFilter(
+                List.of(WorkshopId.LONDON),
+                Instant.parse("2024-08-08T06:00:01Z"),
+                null,
+                null
+        );
+        availableTimesResponse = workshopsService.getEarliestAvailableTireChangeTimes(tireChangeTimesFilter, 3);
+
+        assertThat(availableTimesResponse.availableTimes()).containsExactly(londonTime2);
+    }
+
+    @Test
+    public void testEarliestAvailableTimesSkipsReserved() throws WsServiceCommunicationException {
+        TireChangeTimesFilter tireChangeTimesFilter = new TireChangeTimesFilter(
+                List.of(WorkshopId.MANCHESTER),
+                BEFORE_ALL,
+                null,
+                null
+        );
+        workshopsService.bookTime(BOOK_TIME_REQUEST);
+
+        AvailableTimesResponse availableTimesResponse = workshopsService.getEarliestAvailableTireChangeTimes(tireChangeTimesFilter, 1);
+
+        assertThat(availableTimesResponse.availableTimes()).containsExactly(manchesterTime2);
+    }
+
+    @Test
+    public void testNearestAvailableTimes() {
+        TireChangeTimesFilter tireChangeTimesFilter = new TireChangeTimesFilter(
+                List.of(WorkshopId.MANCHESTER),
+                BEFORE_ALL,
+                null,
+                null
+        );
+        AvailableTimesResponse availableTimesResponse = workshopsService.getNearestAvailableTireChangeTimes(
+                tireChangeTimesFilter,
+                Instant.parse("2024-08-09T01:00:00Z"),
+                1
+        );
+        assertThat(availableTimesResponse.availableTimes()).containsExactly(manchesterTime2);
+
+        availableTimesResponse = workshopsService.getNearestAvailableTireChangeTimes(
+                tireChangeTimesFilter,
+                Instant.parse("2024-08-08T17:00:00Z"),
+                1
+        );
+        assertThat(availableTimesResponse.availableTimes()).containsExactly(manchesterTime1);
+
+        // Target outside the queried range
+        tireChangeTimesFilter = new TireChangeTimesFilter(
+                null,
+                BEFORE_ALL,
+                Instant.parse("2024-08-09T00:00:00Z"),
+                null
+        );
+        availableTimesResponse = workshopsService.getNearestAvailableTireChangeTimes(
+                tireChangeTimesFilter,
+                Instant.parse("2025-01-01T00:00:00Z"),
+                5
+        );
+        assertThat(availableTimesResponse.availableTimes()).containsExactlyInAnyOrder(manchesterTime1, londonTime1);
+    }
+
+    @Test
+    public void testNearestAvailableTimesIllegalLimit() {
+        TireChangeTimesFilter tireChangeTimesFilter = new TireChangeTimesFilter(
+                null,
+                BEFORE_ALL,
+                null,
+                null
+        );
+
+        assertThrows(IllegalArgumentException.class, () ->
+                workshopsService.getNearestAvailableTireChangeTimes(tireChangeTimesFilter, BEFORE_ALL, 0)
+        );
+        assertThrows(IllegalArgumentException.class, () ->
+                workshopsService.getEarliestAvailableTireChangeTimes(tireChangeTimesFilter, WorkshopsService.MAX_QUERY_LIMIT + 1)
+        );
+    }
+
+    @Test
+    public void testAvailableDays() throws WsServiceCommunicationException {
+        TireChangeTimesFilter tireChangeTimesFilter = new TireChangeTimesFilter(
+                null,
+                BEFORE_ALL,
+                Instant.parse("2024-08-10T00:00:00Z"),
+                null
+        );
+        AvailableDaysResponse availableDaysResponse = workshopsService.getAvailableDays(tireChangeTimesFilter, true);
+
+        assertThat(availableDaysResponse.availableDays()).containsExactly(
+                new AvailableDaysResponse.AvailableDay(
+                        LocalDate.parse("2024-08-08"), 2, Map.of(WorkshopId.MANCHESTER, 1, WorkshopId.LONDON, 1)
+                ),
+                new AvailableDaysResponse.AvailableDay(
+                        LocalDate.parse("2024-08-09"), 2, Map.of(WorkshopId.MANCHESTER, 1, WorkshopId.LONDON, 1)
+                )
+        );
+
+        // Booked time is no longer counted and days are limited to the filter range
+        workshopsService.bookTime(BOOK_TIME_REQUEST);
+        tireChangeTimesFilter = new TireChangeTimesFilter(
+                null,
+                BEFORE_ALL,
+                Instant.parse("2024-08-09T00:00:00Z"),
+                null
+        );
+        availableDaysResponse = workshopsService.getAvailableDays(tireChangeTimesFilter, false);
+
+        assertThat(availableDaysResponse.availableDays()).containsExactly(
+                new AvailableDaysResponse.AvailableDay(LocalDate.parse("2024-08-08"), 1, null)
+        );
+    }
+
+    @Test
+    public void testAvailableTimesFilterOnLocalTime() {
+        TireChangeTimesFilter tireChangeTimesFilter = new TireChangeTimesFilter(
+                null,
+                BEFORE_ALL,
+                null,
+                null,
+                List.of(DayOfWeek.FRIDAY),
+                null,
+                null
+        );
+        AvailableTimesResponse availableTimesResponse = workshopsService.getAvailableTireChangeTimes(tireChangeTimesFilter);
+
+        assertThat(availableTimesResponse.availableTimes()).containsExactlyInAnyOrder(manchesterTime2, londonTime2);
+
+        tireChangeTimesFilter = new TireChangeTimesFilter(
+                null,
+                BEFORE_ALL,
+                null,
+                null,
+                null,
+                LocalTime.parse("07:00"),
+                LocalTime.parse("23:00")
+        );
+        availableTimesResponse = workshopsService.getAvailableTireChangeTimes(tireChangeTimesFilter);
+
+        assertThat(availableTimesResponse.availableTimes()).isEmpty();
+
+        // Window wrapping around midnight
+        tireChangeTimesFilter = new TireChangeTimesFilter(
+                List.of(WorkshopId.MANCHESTER),
+                BEFORE_ALL,
+                null,
+                null,
+                List.of(DayOfWeek.THURSDAY),
+                LocalTime.parse("22:00"),
+                LocalTime.parse("06:01")
+        );
+        availableTimesResponse = workshopsService.getAvailableTireChangeTimes(tireChangeTimesFilter);
+
+        assertThat(availableTimesResponse.availableTimes()).containsExactly(manchesterTime1);
+
+        AvailableTimesResponse earliestResponse = workshopsService.getEarliestAvailableTireChangeTimes(
+                new TireChangeTimesFilter(null, BEFORE_ALL, null, null, List.of(DayOfWeek.FRIDAY), null, null),
+                1
+        );
+        assertThat(earliestResponse.availableTimes().get(0).getInstant()).isEqualTo(manchesterTime2.getInstant());
+
+        assertThrows(IllegalArgumentException.class, () -> workshopsService.getAvailableTireChangeTimes(
+                new TireChangeTimesFilter(null, BEFORE_ALL, null, null, null, LocalTime.NOON, LocalTime.NOON)
+        ));
+    }
+
+    @Test
+    public void testLocalTimeIndexesUseWorkshopTimeZone() {
+        CachedWsAvailableTimes wsTimes = CachedWsAvailableTimes.fromTimes(
+                WorkshopId.LONDON,
+                ZoneId.of("Europe/London"),
+                List.of(londonTime2, londonTime1)
+        );
+
+        // 06:00 UTC is 07:00 in London during summer time
+        assertThat(wsTimes.indexesMatchingLocalTime(null, LocalTime.parse("07:00"), LocalTime.parse("07:30")).cardinality())
+                .isEqualTo(2);
+        assertThat(wsTimes.indexesMatchingLocalTime(List.of(DayOfWeek.THURSDAY), LocalTime.parse("06:00"), LocalTime.parse("07:00")).isEmpty())
+                .isTrue();
+        assertThat(wsTimes.indexesMatchingLocalTime(List.of(DayOfWeek.THURSDAY), null, null).stream().toArray())
+                .containsExactly(0);
+    }
+
+    @Test
+    public void testAvailableDaysFilterOnLocalTime() {
+        AvailableDaysResponse availableDaysResponse = workshopsService.getAvailableDays(
+                new TireChangeTimesFilter(null, BEFORE_ALL, null, null, List.of(DayOfWeek.FRIDAY), null, null),
+                false
+        );
+
+        assertThat(availableDaysResponse.availableDays()).containsExactly(
+                new AvailableDaysResponse.AvailableDay(LocalDate.parse("2024-08-09"), 2, null)
+        );
+
+        // Times before the start of the filter on its first day aren't counted either
+        availableDaysResponse = workshopsService.getAvailableDays(
+                new TireChangeTimesFilter(null, Instant.parse("2024-08-08T07:00:00Z"), null, null),
+                false
+        );
+        assertThat(availableDaysResponse.availableDays()).containsExactly(
+                new AvailableDaysResponse.AvailableDay(LocalDate.parse("2024-08-09"), 2, null)
+        );
+    }
+
+    @Test
+    public void testDayCountsUseWorkshopTimeZone() {
+        TireChangeTime lateTime = new TireChangeTime(WorkshopId.LONDON, "3", Instant.parse("2024-08-08T23:30:00Z"));
+        CachedWsAvailableTimes wsTimes = CachedWsAvailableTimes.fromTimes(
+                WorkshopId.LONDON,
+                ZoneId.of("Europe/London"),
+                List.of(londonTime1, lateTime, londonTime2)
+        );
+
+        // 23:30 UTC is already the next day in London during summer time
+        assertThat(wsTimes.getDayCount(LocalDate.parse("2024-08-08"))).isEqualTo(1);
+        assertThat(wsTimes.getDayCount(LocalDate.parse("2024-08-09"))).isEqualTo(2);
+        assertThat(wsTimes.countsByLocalDay(BEFORE_ALL, Instant.parse("2024-08-09T00:00:00Z"), null))
+                .containsExactly(Map.entry(LocalDate.parse("2024-08-08"), 1), Map.entry(LocalDate.parse("2024-08-09"), 1));
+
+        wsTimes.reserve(lateTime);
+        assertThat(wsTimes.getDayCount(LocalDate.parse("2024-08-09"))).isEqualTo(1);
+    }
+
+    @Test
+    public void testAvailableTimesVersions() throws WsServiceCommunicationException {
+        TireChangeTimesFilter tireChangeTimesFilter = new TireChangeTimesFilter(
+                null,
+                BEFORE_ALL,
+                null,
+                null
+        );
+        Map<WorkshopId, Long> versions = workshopsService.getAvailableTimesVersions(tireChangeTimesFilter);
+        assertThat(versions).containsOnlyKeys(WorkshopId.MANCHESTER, WorkshopId.LONDON);
+        assertThat(workshopsService.getAvailableTimesVersions(tireChangeTimesFilter)).isEqualTo(versions);
+
+        workshopsService.bookTime(BOOK_TIME_REQUEST);
+
+        Map<WorkshopId, Long> versionsAfterBooking = workshopsService.getAvailableTimesVersions(tireChangeTimesFilter);
+        assertThat(versionsAfterBooking.get(WorkshopId.MANCHESTER)).isGreaterThan(versions.get(WorkshopId.MANCHESTER));
+        assertThat(versionsAfterBooking.get(WorkshopId.LONDON)).isEqualTo(versions.get(WorkshopId.LONDON));
+
+        TireChangeTimesFilter londonFilter = new TireChangeTimesFilter(
+                List.of(WorkshopId.LONDON),
+                BEFORE_ALL,
+                null,
+                null
+        );
+        assertThat(workshopsService.getAvailableTimesVersions(londonFilter)).containsOnlyKeys(WorkshopId.LONDON);
+    }
+
+    @Test
+    public void testAvailableTimesDelta() throws WsServiceCommunicationException {
+        TireChangeTimesFilter tireChangeTimesFilter = new TireChangeTimesFilter(
+                List.of(WorkshopId.MANCHESTER),
+                BEFORE_ALL,
+                null,
+                null
+        );
+
+        // Unknown versions reset the workshops
+        AvailableTimesDelta delta = workshopsService.getAvailableTimesDelta(tireChangeTimesFilter, Map.of());
+        assertThat(delta.resetWorkshops()).containsExactly(WorkshopId.MANCHESTER);
+        assertThat(delta.addedTimes()).containsExactly(manchesterTime1, manchesterTime2);
+        Map<WorkshopId, Long> knownVersions = delta.workshopVersions();
+
+        delta = workshopsService.getAvailableTimesDelta(tireChangeTimesFilter, knownVersions);
+        assertThat(delta.resetWorkshops()).isEmpty();
+        assertThat(delta.addedTimes()).isEmpty();
+        assertThat(delta.removedTimes()).isEmpty();
+
+        // Booked time is removed
+        workshopsService.bookTime(BOOK_TIME_REQUEST);
+        delta = workshopsService.getAvailableTimesDelta(tireChangeTimesFilter, knownVersions);
+        assertThat(delta.resetWorkshops()).isEmpty();
+        assertThat(delta.removedTimes()).containsExactly(manchesterTime1);
+        assertThat(delta.addedTimes()).isEmpty();
+
+        // Changes of replaced times are combined with the booking
+        TireChangeTime manchesterTime3 = new TireChangeTime(WorkshopId.MANCHESTER, "3", Instant.parse("2024-08-10T06:00:00Z"));
+        when(manchesterWsApiService.getAllAvailableTireChangeTimes())
+                .thenReturn(List.of(manchesterTime3));
+        FAKE_TICKER.advance(Duration.ofMinutes(61));
+
+        delta = workshopsService.getAvailableTimesDelta(tireChangeTimesFilter, knownVersions);
+        assertThat(delta.resetWorkshops()).isEmpty();
+        assertThat(delta.removedTimes()).containsExactlyInAnyOrder(manchesterTime1, manchesterTime2);
+        assertThat(delta.addedTimes()).containsExactly(manchesterTime3);
+        assertThat(delta.workshopVersions().get(WorkshopId.MANCHESTER)).isGreaterThan(knownVersions.get(WorkshopId.MANCHESTER));
+
+        // Unknown version resets the workshop
+        delta = workshopsService.getAvailableTimesDelta(tireChangeTimesFilter, Map.of(WorkshopId.MANCHESTER, -1L));
+        assertThat(delta.resetWorkshops()).containsExactly(WorkshopId.MANCHESTER);
+        assertThat(delta.addedTimes()).containsExactly(manchesterTime3);
+    }
+
+    @Test
+    public void testSlotEventsPublishedForBookedTime() throws Exception {
+        List<String> events = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch latch = new CountDownLatch(2);
+        slotEventBus.addConsumer("test", (event, sequence, endOfBatch) -> {
+            events.add(event.getType() + " " + event.getWorkshopId() + " " + event.getTimeId());
+            latch.countDown();
+        });
+
+        TireChangeTimesFilter tireChangeTimesFilter = new TireChangeTimesFilter(
+                List.of(WorkshopId.MANCHESTER),
+                BEFORE_ALL,
+                null,
+                null
+        );
+        workshopsService.getAvailableTireChangeTimes(tireChangeTimesFilter);
+
+        workshopsService.bookTime(BOOK_TIME_REQUEST);
+
+        assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(events).containsExactly(
+                SlotEventType.TIME_REMOVED + " MANCHESTER 1",
+                SlotEventType.TIME_BOOKED + " MANCHESTER 1"
+        );
+    }
+
+    @Test
+    public void testExportAvailableTimesResumesFromCursor() {
+        TireChangeTimesFilter tireChangeTimesFilter = new TireChangeTimesFilter(
+                null,
+                BEFORE_ALL,
+                null,
+                null
+        );
+
+        AvailableTimesExport export = workshopsService.exportAvailableTireChangeTimes(tireChangeTimesFilter, null);
+        List<TireChangeTime> exportedTimes = new ArrayList<>();
+        export.availableTimes().forEachRemaining(exportedTimes::add);
+
+        assertThat(exportedTimes).containsExactly(manchesterTime1, londonTime1, manchesterTime2, londonTime2);
+        assertThat(export.failedWorkshops()).isEmpty();
+
+        AvailableTimesCursor after = new AvailableTimesCursor(londonTime1.getInstant(), WorkshopId.MANCHESTER, "1");
+        export = workshopsService.exportAvailableTireChangeTimes(tireChangeTimesFilter, after);
+        exportedTimes.clear();
+        export.availableTimes().forEachRemaining(exportedTimes::add);
+
+        assertThat(exportedTimes).containsExactly(londonTime1, manchesterTime2, londonTime2);
+    }
+
+    @Test
+    public void testAvailableTimesBatch() {
+        List<TireChangeTimesFilter> filters = List.of(
+                new TireChangeTimesFilter(List.of(WorkshopId.MANCHESTER), BEFORE_ALL, null, null),
+                new TireChangeTimesFilter(null, BEFORE_ALL, Instant.parse("2024-08-08T12:00:00Z"), List.of(ServiceableVehicle.TRUCK)),
+                new TireChangeTimesFilter(null, Instant.parse("2024-08-09T00:00:00Z"), null, null)
+        );
+
+        List<AvailableTimesResponse> responses = workshopsService.getAvailableTireChangeTimesBatch(filters);
+
+        assertThat(responses).hasSize(3);
+        assertThat(responses.get(0).availableTimes()).containsExactly(manchesterTime1, manchesterTime2);
+        assertThat(responses.get(0).workshopVersions()).containsOnlyKeys(WorkshopId.MANCHESTER);
+        assertThat(responses.get(1).availableTimes()).containsExactly(londonTime1);
+        assertThat(responses.get(2).availableTimes()).containsExactlyInAnyOrder(manchesterTime2, londonTime2);
+        for (int i = 0; i < filters.size(); i++) {
+            assertThat(responses.get(i).availableTimes())
+                    .containsExactlyInAnyOrderElementsOf(workshopsService.getAvailableTireChangeTimes(filters.get(i)).availableTimes());
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> workshopsService.getAvailableTireChangeTimesBatch(List.of()));
+    }
 }
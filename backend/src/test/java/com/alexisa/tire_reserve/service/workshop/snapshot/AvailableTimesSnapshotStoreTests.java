@@ -0,0 +1,81 @@
+package com.alexisa.tire_reserve.service.workshop.snapshot;
+
+import com.alexisa.tire_reserve.model.domain.TireChangeTime;
+import com.alexisa.tire_reserve.model.domain.enums.WorkshopId;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AvailableTimesSnapshotStoreTests {
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    public void testSnapshotRoundTrip() {
+        AvailableTimesSnapshotStore store = new AvailableTimesSnapshotStore(directory.toString(), Duration.ofHours(5));
+        TireChangeTime time1 = new TireChangeTime(WorkshopId.LONDON, "ä-1", Instant.parse("2024-08-08T06:00:00.5Z"));
+        TireChangeTime time2 = new TireChangeTime(WorkshopId.LONDON, "2", Instant.parse("2024-08-09T06:00:00Z"));
+        TireChangeTime reservedTime = new TireChangeTime(WorkshopId.LONDON, "3", Instant.parse("2024-08-10T06:00:00Z"));
+        reservedTime.setReservedTrue();
+        Instant fetchedAt = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+
+        store.save(WorkshopId.LONDON, 42, fetchedAt, List.of(time1, time2, reservedTime));
+
+        Optional<AvailableTimesSnapshot> snapshot = store.load(WorkshopId.LONDON);
+        assertThat(snapshot).isPresent();
+        assertThat(snapshot.get().version()).isEqualTo(42);
+        assertThat(snapshot.get().fetchedAt()).isEqualTo(fetchedAt);
+        assertThat(snapshot.get().times()).containsExactly(time1, time2);
+        assertThat(snapshot.get().times().get(0).getInstant()).isEqualTo(time1.getInstant());
+        assertThat(store.load(WorkshopId.MANCHESTER)).isEmpty();
+    }
+
+    @Test
+    public void testCorruptedSnapshotIgnored() throws IOException {
+        AvailableTimesSnapshotStore store = new AvailableTimesSnapshotStore(directory.toString(), Duration.ofHours(5));
+        store.save(
+                WorkshopId.MANCHESTER,
+                1,
+                Instant.now(),
+                List.of(new TireChangeTime(WorkshopId.MANCHESTER, "1", Instant.parse("2024-08-08T06:00:00Z")))
+        );
+        Path file = directory.resolve("manchester.snapshot");
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length - 1] ^= 1;
+        Files.write(file, bytes);
+
+        assertThat(store.load(WorkshopId.MANCHESTER)).isEmpty();
+
+        Files.write(file, new byte[]{1, 2, 3});
+
+        assertThat(store.load(WorkshopId.MANCHESTER)).isEmpty();
+    }
+
+    @Test
+    public void testExpiredSnapshotIgnored() {
+        AvailableTimesSnapshotStore store = new AvailableTimesSnapshotStore(directory.toString(), Duration.ofHours(5));
+        store.save(WorkshopId.MANCHESTER, 1, Instant.now().minus(Duration.ofHours(6)), List.of());
+
+        assertThat(store.load(WorkshopId.MANCHESTER)).isEmpty();
+    }
+
+    @Test
+    public void testDisabledStore() {
+        AvailableTimesSnapshotStore store = new AvailableTimesSnapshotStore("", Duration.ofHours(5));
+        store.save(WorkshopId.MANCHESTER, 1, Instant.now(), List.of());
+
+        assertThat(store.isEnabled()).isFalse();
+        assertThat(store.load(WorkshopId.MANCHESTER)).isEmpty();
+    }
+}
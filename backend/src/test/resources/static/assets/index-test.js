@@ -0,0 +1 @@
+console.log("tire reserve test asset");
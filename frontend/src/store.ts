@@ -1,5 +1,5 @@
 import { defineStore } from 'pinia'
-import { Workshop } from './types/Workshop'
+import { AvailableTireChangeTimes, Bootstrap, Workshop } from './types/Workshop'
 
 import axios from "./axios";
 
@@ -22,6 +22,8 @@ export const useStore = defineStore('workshops', {
   state: () => {
     return {
       workshops: null as Workshop[] | null,
+      // Earliest times of the default search, shown until the first search is made
+      initialAvailableTimes: null as AvailableTireChangeTimes | null,
       isLoading: true,
       bookingInfo: null as BookingInfo | null,
     }
@@ -36,6 +38,21 @@ export const useStore = defineStore('workshops', {
   },
 
   actions: {
+    async fetchBootstrap(): Promise<void> {
+      await axios.get("/bootstrap")
+        .then((response) => {
+          const bootstrap = response.data as Bootstrap;
+          this.workshops = bootstrap.workshops
+          this.initialAvailableTimes = bootstrap.availableTimes
+          console.log("Set store workshops to:", bootstrap.workshops)
+        })
+        .catch((error) => {
+          console.error("Failed fetching bootstrap data, fetching workshops only", error.message);
+          return this.fetchWorkshops();
+        })
+        this.isLoading = false;
+    },
+
     async fetchWorkshops(): Promise<void> {
       await axios.get("/workshops")
         .then((response) => {
@@ -17,6 +17,22 @@ export type TireChangeTime = {
 
 export type AvailableTireChangeTimes = {
   tireChangeTimes: TireChangeTime[],
+  failedWorkshopIds: string[],
+  workshopVersions?: Record<string, number>
+}
+
+export type AvailableDay = {
+  date: string,
+  count: number,
+  workshopCounts?: Record<string, number>
+}
+
+export type AvailableDays = {
+  days: AvailableDay[],
   failedWorkshopIds: string[]
 }
 
+export type Bootstrap = {
+  workshops: Workshop[],
+  availableTimes: AvailableTireChangeTimes
+}
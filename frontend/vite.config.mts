@@ -5,8 +5,37 @@ import Vuetify, { transformAssetUrls } from 'vite-plugin-vuetify'
 import ViteFonts from 'unplugin-fonts/vite'
 
 // Utilities
-import { defineConfig } from 'vite'
+import { defineConfig, Plugin } from 'vite'
 import { fileURLToPath, URL } from 'node:url'
+import { brotliCompressSync, constants as zlibConstants, gzipSync } from 'node:zlib'
+
+const COMPRESSIBLE_ASSET = /\.(js|mjs|css|svg|json|ttf|eot)$/
+
+// Adds .gz and .br variants of the compressible assets to the build, served by the backend by Accept-Encoding
+function compressAssets(): Plugin {
+  return {
+    name: 'compress-assets',
+    apply: 'build',
+    generateBundle(_, bundle) {
+      for (const [fileName, output] of Object.entries(bundle)) {
+        if (!COMPRESSIBLE_ASSET.test(fileName)) {
+          continue
+        }
+        const content = output.type === 'chunk' ? output.code : output.source
+        const source = typeof content === 'string' ? new TextEncoder().encode(content) : content
+        const variants = {
+          gz: gzipSync(source, { level: 9 }),
+          br: brotliCompressSync(source, { params: { [zlibConstants.BROTLI_PARAM_QUALITY]: 11 } }),
+        }
+        for (const [extension, compressed] of Object.entries(variants)) {
+          if (compressed.length < source.length) {
+            this.emitFile({ type: 'asset', fileName: `${fileName}.${extension}`, source: compressed })
+          }
+        }
+      }
+    },
+  }
+}
 
 // https://vitejs.dev/config/
 export default defineConfig({
@@ -25,6 +54,7 @@ export default defineConfig({
         }],
       },
     }),
+    compressAssets(),
   ],
   define: { 'process.env': {} },
   resolve: {